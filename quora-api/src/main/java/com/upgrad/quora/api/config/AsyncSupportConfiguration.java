@@ -0,0 +1,59 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Writes the rows of the reactive feeds and of the stream=true dumps to the responses, each on a pool of its own.
+ * Spring MVC falls back to a new thread per write otherwise, which does not hold up under load.
+ * A feed only holds a writer thread while it drains the rows already fetched, its database work runs on the
+ * DatabaseWorkExecutor, but a dump holds one, along with a database connection, for as long as its client reads it.
+ * The dump pool is therefore sized by the {@link ConnectionBudget}, and slow dump clients only hold up the other dumps:
+ * the dumps beyond the dump pool size wait in its queue, and are answered with 503 Service Unavailable once it is full.
+ * A slow client of either kind still holds its writer thread while a write to it blocks.
+ */
+@Configuration
+public class AsyncSupportConfiguration implements WebMvcConfigurer {
+
+    @Value("${quora.response-writer.pool-size:16}")
+    private int poolSize;
+
+    @Value("${quora.response-writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Autowired
+    private ConnectionBudget connectionBudget;
+
+    @Value("${quora.response-writer.dump-queue-capacity:100}")
+    private int dumpQueueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor responseWriterExecutor() {
+        return writerPool(poolSize, queueCapacity, "response-writer-");
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor dumpWriterExecutor() {
+        return writerPool(connectionBudget.getDumpWriters(), dumpQueueCapacity, "dump-writer-");
+    }
+
+    @Override
+    public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new ResponseWriterExecutor(responseWriterExecutor(), dumpWriterExecutor()));
+    }
+
+    private static ThreadPoolTaskExecutor writerPool(final int size, final int queueCapacity, final String threadNamePrefix) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setDaemon(true);
+        return executor;
+    }
+}
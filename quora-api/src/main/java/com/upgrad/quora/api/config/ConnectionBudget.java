@@ -0,0 +1,55 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Shares the connections of the pool of spring.datasource between the threads holding one while they work: the
+ * scheduled background jobs, the dump writers, each holding a connection for as long as its client reads the dump,
+ * and the database workers serving the other requests.
+ * The dump writers get a quarter of the connections left by the background jobs unless configured, and the database
+ * workers the rest, so slow dump clients cannot take the connections of the request work. The application fails to
+ * start when the configured pools add up to more connections than the pool holds, as their threads would then wait
+ * for a connection rather than for work.
+ */
+@Component
+public class ConnectionBudget {
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${quora.connections.background:1}")
+    private int backgroundConnections;
+
+    @Value("${quora.response-writer.dump-pool-size:0}")
+    private int configuredDumpWriters;
+
+    @Value("${quora.database-work.pool-size:0}")
+    private int configuredDatabaseWorkers;
+
+    private int dumpWriters;
+
+    private int databaseWorkers;
+
+    @PostConstruct
+    public void allocate() {
+        final int requestConnections = connectionPoolSize - backgroundConnections;
+        dumpWriters = configuredDumpWriters > 0 ? configuredDumpWriters : Math.max(1, requestConnections / 4);
+        databaseWorkers = configuredDatabaseWorkers > 0 ? configuredDatabaseWorkers : requestConnections - dumpWriters;
+        if (databaseWorkers < 1 || backgroundConnections + dumpWriters + databaseWorkers > connectionPoolSize) {
+            throw new IllegalStateException("The " + dumpWriters + " dump writers, " + databaseWorkers + " database workers and "
+                    + backgroundConnections + " background connections need more than the " + connectionPoolSize
+                    + " connections of spring.datasource.hikari.maximum-pool-size");
+        }
+    }
+
+    public int getDumpWriters() {
+        return dumpWriters;
+    }
+
+    public int getDatabaseWorkers() {
+        return databaseWorkers;
+    }
+}
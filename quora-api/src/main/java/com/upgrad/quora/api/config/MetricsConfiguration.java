@@ -0,0 +1,56 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.api.exception.ErrorCodeResponseAdvice;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tags the http.server.requests timers of the endpoints by outcome and by error code, besides the tags of spring boot:
+ * the outcome is the class of the HTTP status, e.g. CLIENT_ERROR, and the code the error code of the error response,
+ * none for a response which is not an error.
+ * The timers of the services, DAOs and connection pools are published along, see OperationTimingAspect of
+ * quora-service, and all of them are scraped from /actuator/prometheus on the management port.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    private static final String NO_ERROR_CODE = "none";
+
+    @Bean
+    public WebMvcTagsProvider webMvcTagsProvider() {
+        return new DefaultWebMvcTagsProvider() {
+            @Override
+            public Iterable<Tag> getTags(final HttpServletRequest request, final HttpServletResponse response,
+                                         final Object handler, final Throwable exception) {
+                final Object code = request.getAttribute(ErrorCodeResponseAdvice.ERROR_CODE_ATTRIBUTE);
+                return Tags.of(super.getTags(request, response, handler, exception))
+                        .and("outcome", outcome(response))
+                        .and("code", code == null ? NO_ERROR_CODE : code.toString());
+            }
+        };
+    }
+
+    private static String outcome(final HttpServletResponse response) {
+        if (response == null) {
+            return "UNKNOWN";
+        }
+        final int status = response.getStatus();
+        if (status < 200) {
+            return "INFORMATIONAL";
+        }
+        if (status < 300) {
+            return "SUCCESS";
+        }
+        if (status < 400) {
+            return "REDIRECTION";
+        }
+        return status < 500 ? "CLIENT_ERROR" : "SERVER_ERROR";
+    }
+}
@@ -0,0 +1,63 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * The executor of the asynchronous writes of Spring MVC, handing the writes of the responses marked as dumps to the
+ * dump writers and all the other writes, e.g. of the reactive feeds, to the feed writers.
+ * A write is submitted by a thread working on its request, which holds the request attributes the mark is read from.
+ */
+public class ResponseWriterExecutor implements AsyncTaskExecutor {
+
+    private static final String DUMP_ATTRIBUTE = ResponseWriterExecutor.class.getName() + ".DUMP";
+
+    private final AsyncTaskExecutor feedWriters;
+
+    private final AsyncTaskExecutor dumpWriters;
+
+    public ResponseWriterExecutor(final AsyncTaskExecutor feedWriters, final AsyncTaskExecutor dumpWriters) {
+        this.feedWriters = feedWriters;
+        this.dumpWriters = dumpWriters;
+    }
+
+    /**
+     * This method marks the response of a request as a dump, written by the dump writers
+     *
+     * @param webRequest The request whose response streams a whole listing
+     */
+    public static void markAsDump(final WebRequest webRequest) {
+        webRequest.setAttribute(DUMP_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        writersOfCurrentRequest().execute(task);
+    }
+
+    @Override
+    public void execute(final Runnable task, final long startTimeout) {
+        writersOfCurrentRequest().execute(task, startTimeout);
+    }
+
+    @Override
+    public Future<?> submit(final Runnable task) {
+        return writersOfCurrentRequest().submit(task);
+    }
+
+    @Override
+    public <T> Future<T> submit(final Callable<T> task) {
+        return writersOfCurrentRequest().submit(task);
+    }
+
+    private AsyncTaskExecutor writersOfCurrentRequest() {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return requestAttributes != null && requestAttributes.getAttribute(DUMP_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null
+                ? dumpWriters : feedWriters;
+    }
+}
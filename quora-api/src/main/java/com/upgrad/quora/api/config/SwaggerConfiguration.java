@@ -3,14 +3,20 @@ package com.upgrad.quora.api.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import springfox.documentation.builders.ParameterBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.ModelRef;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.Collections;
+
 /**
  * This Configuration integrates Swagger2 into the existing Spring Boot project.
+ * The authorization header is read by a filter rather than the controllers, so it is documented on every operation.
  */
 @Configuration
 @EnableSwagger2
@@ -18,6 +24,9 @@ public class SwaggerConfiguration {
 
     @Bean
     public Docket swagger() {
-        return new Docket(DocumentationType.SWAGGER_2).select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build();
+        return new Docket(DocumentationType.SWAGGER_2).select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build()
+                .globalOperationParameters(Collections.singletonList(new ParameterBuilder().name(HttpHeaders.AUTHORIZATION)
+                        .description("Basic credentials for sign in, the Bearer access token for everything else")
+                        .modelRef(new ModelRef("string")).parameterType("header").required(false).build()));
     }
 }
\ No newline at end of file
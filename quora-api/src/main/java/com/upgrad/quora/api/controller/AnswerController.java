@@ -1,51 +1,139 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.config.ResponseWriterExecutor;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.common.CursorPage;
+import com.upgrad.quora.service.common.RowStream;
+import com.upgrad.quora.service.dto.AnswerRevision;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.BulkItemResult;
 import com.upgrad.quora.service.entity.Answer;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.VersionConflictException;
+import com.upgrad.quora.service.util.QuoraUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class AnswerController {
     @Autowired
     private AnswerBusinessService answerBusinessService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatabaseWorkExecutor databaseWorkExecutor;
+
     /**
      * This method retrieves all the answers for a specific Question
      * after validating the user authorization token
+     * The cursor of the next page, if any, is sent in the X-Next-Cursor response header
      *
-     * @param questionId    The UUID of the question for which answers are to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return The question content and the list of all answers with respective uuid and answer content
+     * @param questionId The UUID of the question for which answers are to be retrieved
+     * @param cursor     The cursor of the page to be retrieved, taken from X-Next-Cursor of the previous page
+     * @param limit      The maximum number of answers in the page
+     * @param webRequest The request, checked for an If-None-Match header matching the current listing
+     * @return The question content and a page of the answers with respective uuid and answer content, newest first,
+     * or nothing with 304 Not Modified
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
      */
     @RequestMapping(path = "/answer/all/{questionId}", method = RequestMethod.GET)
-    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(
-            @PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        final List<Answer> allAnswersToQuestion = answerBusinessService.getAllAnswersToQuestion(questionId, authorization);
-        List<AnswerDetailsResponse> answerDetailsResponseList = new ArrayList<>();
-        for (Answer answer : allAnswersToQuestion) {
+    public CompletableFuture<ResponseEntity<List<AnswerDetailsResponse>>> getAllAnswersToQuestion(
+            @PathVariable("questionId") final String questionId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest) {
+        final String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return databaseWorkExecutor.submit(() -> {
+            final String eTag = answerBusinessService.getAllAnswersToQuestionETag(questionId);
+            // Answered with 304 Not Modified when the client holds the current version of the listing
+            if (EntityTags.matches(ifNoneMatch, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+            final CursorPage<AnswerSummary> allAnswersToQuestion = answerBusinessService.getAllAnswersToQuestion(questionId, cursor, limit);
+            List<AnswerDetailsResponse> answerDetailsResponseList = toAnswerDetailsResponses(allAnswersToQuestion.getItems());
+            HttpHeaders httpHeaders = new HttpHeaders();
+            if (eTag != null) {
+                httpHeaders.setETag(eTag);
+            }
+            if (allAnswersToQuestion.getNextCursor() != null) {
+                httpHeaders.add(QuoraUtil.NEXT_CURSOR_HEADER, allAnswersToQuestion.getNextCursor());
+            }
+            return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponseList, httpHeaders, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * This method maps the answers to their response objects, setting the uuid, the question content and the answer
+     * content of each answer. Public for the benchmarks of quora-bench, as it runs for every answer listed
+     *
+     * @param answers The answers retrieved from the Database
+     * @return The answer details of the answers, in the same order
+     */
+    public static List<AnswerDetailsResponse> toAnswerDetailsResponses(final List<AnswerSummary> answers) {
+        List<AnswerDetailsResponse> answerDetailsResponseList = new ArrayList<>(answers.size());
+        for (AnswerSummary answer : answers) {
             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
             answerDetailsResponse.id(answer.getUuid())
-                    .questionContent(answer.getQuestion().getContent())
-                    .answerContent(answer.getAns());
+                    .questionContent(answer.getQuestionContent())
+                    .answerContent(answer.getAnswerContent());
             answerDetailsResponseList.add(answerDetailsResponse);
         }
-        return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponseList, HttpStatus.OK);
+        return answerDetailsResponseList;
+    }
+
+    /**
+     * This method streams all the answers for a specific Question after validating the user authorization token
+     * Selected over the paginated listing by the stream=true parameter, for the clients needing a full dump
+     * The answers are read through a database cursor and written to the response one by one, so memory use
+     * does not grow with the number of answers
+     *
+     * @param questionId The UUID of the question for which answers are to be retrieved
+     * @param webRequest The request, checked for an If-None-Match header matching the current listing
+     * @return The question content and the list of all answers with respective uuid and answer content, newest first,
+     * or nothing with 304 Not Modified
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
+     */
+    @RequestMapping(path = "/answer/all/{questionId}", params = "stream=true", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamAllAnswersToQuestion(@PathVariable("questionId") final String questionId,
+                                                                                               final WebRequest webRequest) {
+        final String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        // Written by the dump writers for as long as the client reads it, away from the reactive feeds
+        ResponseWriterExecutor.markAsDump(webRequest);
+        return databaseWorkExecutor.submit(() -> {
+            final String eTag = answerBusinessService.getAllAnswersToQuestionETag(questionId);
+            if (EntityTags.matches(ifNoneMatch, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+            final RowStream<AnswerSummary> allAnswersToQuestion = answerBusinessService.streamAllAnswersToQuestion(questionId);
+            return ResponseEntity.ok().headers(EntityTags.headers(eTag)).body(JsonArrayStreamingResponse.of(objectMapper, allAnswersToQuestion, (generator, answer) -> {
+                generator.writeStringField("id", answer.getUuid());
+                generator.writeStringField("questionContent", answer.getQuestionContent());
+                generator.writeStringField("answerContent", answer.getAnswerContent());
+            }));
+        });
     }
 
     /**
@@ -53,26 +141,61 @@ public class AnswerController {
      * is to be answered in the database
      *
      * @param questionId    To get respective question using unique key call questionId
-     * @param authorization holds the Bearer access token for authenticating the user.
-     * @return the response for the answer which is created along with httpStatus
+     * @return the response for the answer which is created along with httpStatus and the ETag of the answer version
      * @throws AuthorizationFailedException If the access token provided by the user does not exist
      *                                      in the database, If the user has signed out
      * @throws InvalidQuestionException     If the question uuid entered by the user whose answer
      *                                      is to be posted does not exist in the database
      */
     @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/create")
-    public ResponseEntity<AnswerResponse> createAnswer(final AnswerRequest answerRequest,
-                                                       @PathVariable("questionId") final String questionId,
-                                                       @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException {
+    public CompletableFuture<ResponseEntity<AnswerResponse>> createAnswer(final AnswerRequest answerRequest,
+                                                                          @PathVariable("questionId") final String questionId) {
+        return databaseWorkExecutor.submit(() -> {
+            final Answer answer = new Answer();
+            answer.setAns(answerRequest.getAnswer());
+            answer.setDate(ZonedDateTime.now());
+            final Answer updatedAnswer = answerBusinessService.createAnswer(answer, questionId);
+            AnswerResponse answerResponse = new AnswerResponse().id(updatedAnswer.getUuid()).status("ANSWER CREATED");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.setETag(EntityTags.of(updatedAnswer.getVersion()));
+            return new ResponseEntity<AnswerResponse>(answerResponse, httpHeaders, HttpStatus.CREATED);
+        });
+    }
 
-        final Answer answer = new Answer();
-        answer.setAns(answerRequest.getAnswer());
-        answer.setDate(ZonedDateTime.now());
-        answer.setUuid(UUID.randomUUID().toString());
-        final Answer updatedAnswer = answerBusinessService.createAnswer(answer, questionId, authorization);
-        AnswerResponse answerResponse = new AnswerResponse().id(updatedAnswer.getUuid()).status("ANSWER CREATED");
-        return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+    /**
+     * This method is used to post many answers to a question at once, e.g. by an importer
+     * The user is validated and the question looked up once for all the answers
+     *
+     * @param answerRequests The answers to be created, each with its content
+     * @param questionId     To get respective question using unique key call questionId
+     * @return the outcome of every answer, at its position in the request: the answer uuid if it was created,
+     * the error code and message otherwise
+     * @throws AuthorizationFailedException If the access token provided by the user does not exist
+     *                                      in the database, If the user has signed out
+     * @throws InvalidQuestionException     If the question uuid entered by the user whose answers
+     *                                      are to be posted does not exist in the database
+     * @throws InvalidBulkRequestException  If more answers are posted at once than allowed
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/bulk", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<List<AnswerBulkResponse>>> createAnswers(@RequestBody final List<AnswerRequest> answerRequests,
+                                                                                     @PathVariable("questionId") final String questionId) {
+        return databaseWorkExecutor.submit(() -> {
+            final ZonedDateTime now = ZonedDateTime.now();
+            final List<Answer> answers = new ArrayList<>(answerRequests.size());
+            for (AnswerRequest answerRequest : answerRequests) {
+                final Answer answer = new Answer();
+                answer.setAns(answerRequest.getAnswer());
+                answer.setDate(now);
+                answers.add(answer);
+            }
+            final List<BulkItemResult> results = answerBusinessService.createAnswers(answers, questionId);
+            List<AnswerBulkResponse> answerBulkResponses = new ArrayList<>(results.size());
+            for (BulkItemResult result : results) {
+                answerBulkResponses.add(new AnswerBulkResponse().index(result.getIndex()).id(result.getUuid())
+                        .status(result.isCreated() ? "ANSWER CREATED" : "REJECTED").code(result.getCode()).message(result.getMessage()));
+            }
+            return new ResponseEntity<List<AnswerBulkResponse>>(answerBulkResponses, HttpStatus.OK);
+        });
     }
 
 
@@ -82,43 +205,50 @@ public class AnswerController {
      * only the owner of the answer or admin can delete the question
      *
      * @param answerId      It is the Uuid of answer to be deleted
-     * @param authorization holds the Bearer access token for authenticating the user.
+     * @param ifMatch       The ETag of the answer version the client holds, if the delete is conditional
      * @return uuid of the deleted answer and message 'ANSWER DELETED' in the JSON response with the corresponding HTTP status.
      * @throws AuthorizationFailedException If the access token provided by the user does not exist in the database,
      *                                      If the user has signed out, if the user who is not the owner of the answer or the role of the user is ‘nonadmin’ and tries to delete the answer
      * @throws AnswerNotFoundException      If the answer with uuid which is to be deleted does not exist in the database
+     * @throws VersionConflictException     If the answer has been changed since the version in If-Match
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/answer/delete/{answerId}")
-    public ResponseEntity<AnswerResponse> deleteAnswer(
-            @PathVariable("answerId") final String answerId, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, AnswerNotFoundException, InvalidQuestionException {
-        String answerUUID = answerBusinessService.deleteAnswer(answerId, authorization);
-        final AnswerResponse answerResponse = new AnswerResponse();
-        answerResponse.id(answerUUID).status("ANSWER DELETED");
-        return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<AnswerResponse>> deleteAnswer(
+            @PathVariable("answerId") final String answerId,
+            @RequestHeader(value = "If-Match", required = false) final String ifMatch) {
+        return databaseWorkExecutor.submit(() -> {
+            String answerUUID = answerBusinessService.deleteAnswer(answerId, EntityTags.expectedVersion(ifMatch));
+            final AnswerResponse answerResponse = new AnswerResponse();
+            answerResponse.id(answerUUID).status("ANSWER DELETED");
+            return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.OK);
+        });
     }
     /**
      * This method is used to edit the content of a specfic answer in a database
      * Note,only the owner of the answer can edit the answer
      *
      * @param answerId          Is the uuid of the answer that needed to be edited
-     * @param authorization     holds the Bearer access token for authenticating the user.
+     * @param ifMatch           The ETag of the answer version the client holds, if the edit is conditional
      * @param answerEditRequest Is uuid of the edited answer and message 'ANSWER EDITED' in the JSON response with the corresponding HTTP status.
-     * @return answer uuid with the message 'ANSWER EDITED'
+     * @return answer uuid with the message 'ANSWER EDITED', and the ETag of the new answer version
      * @throws AnswerNotFoundException      If answer with uuid which is to be edited does not exist in the database
      * @throws AuthorizationFailedException If access token does not exit : if user has signed out : if non-owner tries to edit
+     * @throws VersionConflictException     If the answer has been changed since the version in If-Match
      */
     @RequestMapping(method = RequestMethod.PUT, path = "/answer/edit/{answerId}")
-    public ResponseEntity<AnswerEditResponse> editAnswerContent(
+    public CompletableFuture<ResponseEntity<AnswerEditResponse>> editAnswerContent(
             @PathVariable("answerId") final String answerId,
-            @RequestHeader("authorization") final String authorization,
-            final AnswerEditRequest answerEditRequest)
-            throws AnswerNotFoundException, AuthorizationFailedException {
-        final Answer answer = new Answer();
-        answer.setAns(answerEditRequest.getContent());
-        final Answer editAnswerEntity = answerBusinessService.editAnswerContent(answer, answerId, authorization);
-        AnswerEditResponse answerEditResponse = new AnswerEditResponse().id(editAnswerEntity.getUuid()).status("ANSWER EDITED");
-        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+            @RequestHeader(value = "If-Match", required = false) final String ifMatch,
+            final AnswerEditRequest answerEditRequest) {
+        return databaseWorkExecutor.submit(() -> {
+            final Answer answer = new Answer();
+            answer.setAns(answerEditRequest.getContent());
+            final AnswerRevision editedAnswer = answerBusinessService.editAnswerContent(answer, answerId, EntityTags.expectedVersion(ifMatch));
+            AnswerEditResponse answerEditResponse = new AnswerEditResponse().id(editedAnswer.getUuid()).status("ANSWER EDITED");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.setETag(EntityTags.of(editedAnswer.getVersion()));
+            return new ResponseEntity<AnswerEditResponse>(answerEditResponse, httpHeaders, HttpStatus.OK);
+        });
     }
 }
 
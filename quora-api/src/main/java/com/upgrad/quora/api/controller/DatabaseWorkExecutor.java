@@ -0,0 +1,144 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.config.ConnectionBudget;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated worker pool for the blocking database work of the controllers, so the request threads are released while
+ * the queries run and slow queries cannot exhaust them.
+ * The pool is sized by the {@link ConnectionBudget} to the connections left by the background jobs and the dump
+ * writers, so a worker does not wait for a connection of the pool of spring.datasource. A sharded write also holds a
+ * connection of the shard it writes to, out of the pool of that shard. The work waiting for a worker is bounded by the
+ * queue: work beyond the queue limit is rejected right away with a {@link ServiceUnavailableException} instead of
+ * piling up latency.
+ * The work runs with the request scope of the request submitting it, so the business services read the request
+ * principal as they do on the request thread. With quora.database-work.offload disabled, the work runs on the request
+ * thread instead, as the controllers did before.
+ */
+@Component
+public class DatabaseWorkExecutor {
+
+    @Value("${quora.database-work.offload:true}")
+    private boolean offload;
+
+    @Autowired
+    private ConnectionBudget connectionBudget;
+
+    @Value("${quora.database-work.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        final int threads = connectionBudget.getDatabaseWorkers();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "database-work-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the database work of a request on the database work pool
+     *
+     * @param task The work to be run, calling the business services and mapping their results to the response
+     * @param <T>  The result type of the task
+     * @return A future completed with the result of the task or the exception it threw, or with a
+     * {@link ServiceUnavailableException} if the pool is at capacity
+     */
+    public <T> CompletableFuture<T> submit(final DatabaseTask<T> task) {
+        return submit(RequestContextHolder.getRequestAttributes(), task);
+    }
+
+    /**
+     * Runs the database work of a request on the database work pool, from a thread which may not be the request
+     * thread, e.g. the one asking for the next page of a reactive feed
+     *
+     * @param requestAttributes The attributes of the request, read on its request thread
+     * @param task              The work to be run, calling the business services
+     * @param <T>               The result type of the task
+     * @return A future completed with the result of the task or the exception it threw, or with a
+     * {@link ServiceUnavailableException} if the pool is at capacity
+     */
+    public <T> CompletableFuture<T> submit(final RequestAttributes requestAttributes, final DatabaseTask<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        if (!offload) {
+            runInRequest(requestAttributes, task, result);
+            return result;
+        }
+        try {
+            executor.execute(() -> runInRequest(requestAttributes, task, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new ServiceUnavailableException("SRV-002", "Too many requests waiting for the database, try again later"));
+        }
+        return result;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    private static <T> void runInRequest(final RequestAttributes requestAttributes, final DatabaseTask<T> task,
+                                         final CompletableFuture<T> result) {
+        final RequestAttributes current = RequestContextHolder.getRequestAttributes();
+        if (current == requestAttributes || !(requestAttributes instanceof ServletRequestAttributes)) {
+            run(task, result);
+            return;
+        }
+        // The attributes of the request thread turn inactive once it returns, so the work reads the request through
+        // attributes of its own
+        final ServletRequestAttributes servletRequestAttributes = (ServletRequestAttributes) requestAttributes;
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequestAttributes.getRequest(),
+                servletRequestAttributes.getResponse()));
+        try {
+            run(task, result);
+        } finally {
+            RequestContextHolder.setRequestAttributes(current);
+        }
+    }
+
+    private static <T> void run(final DatabaseTask<T> task, final CompletableFuture<T> result) {
+        try {
+            result.complete(task.call());
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The database work of a request that may throw the business exceptions of the endpoint
+     *
+     * @param <T> The result type of the task
+     */
+    @FunctionalInterface
+    public interface DatabaseTask<T> {
+        T call() throws Exception;
+    }
+}
@@ -0,0 +1,90 @@
+package com.upgrad.quora.api.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Maps the version of a question or an answer to the strong ETag sent with it, and the If-Match header of a
+ * conditional edit or delete back to the version expected. Also checks the If-None-Match header of a conditional
+ * listing against the ETag of the listing
+ */
+final class EntityTags {
+
+    // Matches no version, so an If-Match naming no version of this server is refused as a conflict
+    private static final Integer NO_VERSION = -1;
+
+    private EntityTags() {
+    }
+
+    /**
+     * @param version The version of the question or the answer
+     * @return The strong ETag of that version
+     */
+    static String of(final Integer version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch The If-Match header of the request, if any
+     * @return The version the item has to be at, null when any version may be changed
+     */
+    static Integer expectedVersion(final String ifMatch) {
+        if (ifMatch == null || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        final String tag = ifMatch.trim();
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return NO_VERSION;
+        }
+        try {
+            return Integer.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+    /**
+     * @param ifNoneMatch The If-None-Match header of the request, if any
+     * @param eTag        The current ETag of the listing, null if the listing has none
+     * @return true if the client holds the current version of the listing
+     */
+    static boolean matches(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            final String trimmed = tag.trim();
+            // If-None-Match compares the tags weakly
+            if ("*".equals(trimmed) || withoutWeakPrefix(trimmed).equals(withoutWeakPrefix(eTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param eTag The current ETag of the listing
+     * @param <T>  The type of the body of the listing
+     * @return The 304 Not Modified response to a client holding the current version of the listing
+     */
+    static <T> ResponseEntity<T> notModified(final String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+
+    /**
+     * @param eTag The current ETag of the listing, null if the listing has none
+     * @return The headers of a full response to the listing
+     */
+    static HttpHeaders headers(final String eTag) {
+        final HttpHeaders httpHeaders = new HttpHeaders();
+        if (eTag != null) {
+            httpHeaders.setETag(eTag);
+        }
+        return httpHeaders;
+    }
+
+    private static String withoutWeakPrefix(final String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,40 @@
+package com.upgrad.quora.api.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Chains the steps of a request run on different pools, e.g. the database work and the password hashing of a sign in.
+ * Unlike {@link CompletableFuture#thenCompose(Function)} the exception a step fails with is passed on as it is rather
+ * than wrapped, so it is still answered with its own status.
+ */
+final class FutureSteps {
+
+    private FutureSteps() {
+    }
+
+    /**
+     * @param step     The step to be completed first
+     * @param nextStep Starts the next step with the result of the first one
+     * @param <S>      The result type of the first step
+     * @param <T>      The result type of the next step
+     * @return A future completed with the result of the next step, or the exception either step failed with
+     */
+    static <S, T> CompletableFuture<T> then(final CompletableFuture<S> step, final Function<S, CompletableFuture<T>> nextStep) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        step.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            nextStep.apply(value).whenComplete((nextValue, nextFailure) -> {
+                if (nextFailure != null) {
+                    result.completeExceptionally(nextFailure);
+                } else {
+                    result.complete(nextValue);
+                }
+            });
+        });
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.service.common.RowStream;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the rows of a {@link RowStream} to the response as a JSON array, each row being serialized as soon as it
+ * is read, so the response body is never held in memory
+ */
+final class JsonArrayStreamingResponse {
+
+    private JsonArrayStreamingResponse() {
+    }
+
+    /**
+     * @param objectMapper The object mapper whose factory creates the JSON generator
+     * @param rows         The rows to be written
+     * @param rowWriter    Writes a row as one JSON object
+     * @param <T>          The type of the rows
+     * @return The response body writing the rows
+     */
+    static <T> StreamingResponseBody of(final ObjectMapper objectMapper, final RowStream<T> rows, final RowWriter<T> rowWriter) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+                // The servlet container owns the response stream
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                try {
+                    rows.forEach(row -> {
+                        try {
+                            generator.writeStartObject();
+                            rowWriter.write(generator, row);
+                            generator.writeEndObject();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Writes the fields of a row into the current JSON object
+     *
+     * @param <T> The type of the rows
+     */
+    @FunctionalInterface
+    interface RowWriter<T> {
+        void write(JsonGenerator generator, T row) throws IOException;
+    }
+}
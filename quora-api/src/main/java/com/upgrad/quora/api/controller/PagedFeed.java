@@ -0,0 +1,54 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.common.CursorPage;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Publishes a keyset paginated listing as a {@link Flux} of its rows, following the cursors from page to page.
+ * A page is fetched only once the subscriber has started on the rows of the previous one, so a slow client holds
+ * at most two pages in memory and no database connection while it reads them. The pages themselves are still read by
+ * blocking queries, off the calling thread.
+ */
+final class PagedFeed {
+
+    private PagedFeed() {
+    }
+
+    /**
+     * @param firstPage The first page, fetched before the response is committed so its errors get their status
+     * @param limit     The number of rows published at most, null for all of them
+     * @param nextPage  Fetches the page at a cursor
+     * @param mapper    Maps the rows of a page to the ones published
+     * @param <S>       The type of the rows of the pages
+     * @param <T>       The type of the rows published
+     * @return The rows of the listing, from the first page on
+     */
+    static <S, T> Flux<T> of(final CursorPage<S> firstPage, final Integer limit, final PageFetcher<S> nextPage,
+                             final Function<List<S>, List<T>> mapper) {
+        final long maxRows = limit == null || limit <= 0 ? Long.MAX_VALUE : limit;
+        final AtomicLong fetchedRows = new AtomicLong();
+        final Flux<T> rows = Flux.just(firstPage)
+                .expand(page -> page.getNextCursor() == null || fetchedRows.addAndGet(page.getItems().size()) >= maxRows
+                        ? Mono.empty()
+                        : Mono.defer(() -> Mono.fromFuture(nextPage.fetch(page.getNextCursor()))))
+                // One page requested at a time rather than the default prefetch of pages
+                .concatMapIterable(page -> mapper.apply(page.getItems()), 1);
+        return maxRows == Long.MAX_VALUE ? rows : rows.take(maxRows);
+    }
+
+    /**
+     * Fetches a page of the listing off the calling thread
+     *
+     * @param <S> The type of the rows
+     */
+    @FunctionalInterface
+    interface PageFetcher<S> {
+        CompletableFuture<CursorPage<S>> fetch(String cursor);
+    }
+}
@@ -1,62 +1,154 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.config.ResponseWriterExecutor;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.common.CursorPage;
+import com.upgrad.quora.service.common.RowStream;
+import com.upgrad.quora.service.dto.BulkItemResult;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.exception.VersionConflictException;
+import com.upgrad.quora.service.util.QuoraUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class QuestionController {
     @Autowired
     private QuestionBusinessService questionBusinessService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DatabaseWorkExecutor databaseWorkExecutor;
+
     /**
      * This method is used to create a new question
      * It uses Bearer token to validate the user
      *
      * @param questionRequest Contains all the attributes about the question
-     * @param authorization   Holds the Bearer access token for authenticating the user
-     * @return ResponseEntity with required question uuid and status
+     * @return ResponseEntity with required question uuid and status, and the ETag of the question version
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      */
     @RequestMapping(method = RequestMethod.POST, path = "/question/create", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionResponse> createQuestion(final QuestionRequest questionRequest,
-                                                           @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException {
-        final Question question = new Question();
-        question.setUuid(UUID.randomUUID().toString());
-        question.setContent(questionRequest.getContent());
-        Question createdQuestion = questionBusinessService.createNewQuestion(question, authorization);
-        QuestionResponse questionResponse = new QuestionResponse();
-        questionResponse.id(createdQuestion.getUuid()).status("QUESTION CREATED");
-        return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<QuestionResponse>> createQuestion(final QuestionRequest questionRequest) {
+        return databaseWorkExecutor.submit(() -> {
+            final Question question = new Question();
+            question.setContent(questionRequest.getContent());
+            Question createdQuestion = questionBusinessService.createNewQuestion(question);
+            QuestionResponse questionResponse = new QuestionResponse();
+            questionResponse.id(createdQuestion.getUuid()).status("QUESTION CREATED");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.setETag(EntityTags.of(createdQuestion.getVersion()));
+            return new ResponseEntity<QuestionResponse>(questionResponse, httpHeaders, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * This method is used to create many questions at once, e.g. by an importer
+     * It uses Bearer token to validate the user once for all the questions
+     *
+     * @param questionRequests The questions to be created, each with its content
+     * @return ResponseEntity with the outcome of every question, at its position in the request: the question uuid
+     * if it was created, the error code and message otherwise
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidBulkRequestException  If more questions are posted at once than allowed
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/bulk", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<List<QuestionBulkResponse>>> createQuestions(@RequestBody final List<QuestionRequest> questionRequests) {
+        return databaseWorkExecutor.submit(() -> {
+            final List<Question> questions = new ArrayList<>(questionRequests.size());
+            for (QuestionRequest questionRequest : questionRequests) {
+                final Question question = new Question();
+                question.setContent(questionRequest.getContent());
+                questions.add(question);
+            }
+            final List<BulkItemResult> results = questionBusinessService.createNewQuestions(questions);
+            List<QuestionBulkResponse> questionBulkResponses = new ArrayList<>(results.size());
+            for (BulkItemResult result : results) {
+                questionBulkResponses.add(new QuestionBulkResponse().index(result.getIndex()).id(result.getUuid())
+                        .status(result.isCreated() ? "QUESTION CREATED" : "REJECTED").code(result.getCode()).message(result.getMessage()));
+            }
+            return new ResponseEntity<List<QuestionBulkResponse>>(questionBulkResponses, HttpStatus.OK);
+        });
     }
 
     /**
-     * This method validates the user session and if active pulls all the questions from the database
+     * This method validates the user session and if active pulls a page of the questions from the database
      * Populates the uuid and content of each question posted earlier in the application and sends in the response
+     * The cursor of the next page, if any, is sent in the X-Next-Cursor response header
      * If session token is invalid, then throws the error message of Authorization failure
      *
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return The List of question details(uuid, question content) present in the database
+     * @param cursor     The cursor of the page to be retrieved, taken from X-Next-Cursor of the previous page
+     * @param limit      The maximum number of questions in the page
+     * @param webRequest The request, checked for an If-None-Match header matching the current listing
+     * @return The List of question details(uuid, question content) present in the database, newest first,
+     * or nothing with 304 Not Modified
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidCursorException       If the cursor cannot be decoded
      */
     @RequestMapping(method = RequestMethod.GET, path = "/question/all")
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException {
-        final List<Question> allQuestions = questionBusinessService.getAllQuestions(authorization);
-        return getQuestionDetailsResponse(allQuestions);
+    public CompletableFuture<ResponseEntity<List<QuestionDetailsResponse>>> getAllQuestions(
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            final WebRequest webRequest) {
+        final String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return databaseWorkExecutor.submit(() -> {
+            final String eTag = questionBusinessService.getAllQuestionsETag();
+            // Answered with 304 Not Modified when the client holds the current version of the listing
+            if (EntityTags.matches(ifNoneMatch, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+            final CursorPage<QuestionSummary> allQuestions = questionBusinessService.getAllQuestions(cursor, limit);
+            return getQuestionDetailsResponse(allQuestions, eTag);
+        });
+    }
+
+    /**
+     * This method validates the user session and if active streams all the questions from the database
+     * Selected over the paginated listing by the stream=true parameter, for the clients needing a full dump
+     * The questions are read through a database cursor and written to the response one by one, so memory use
+     * does not grow with the number of questions
+     *
+     * @param webRequest The request, checked for an If-None-Match header matching the current listing
+     * @return The List of question details(uuid, question content) present in the database, newest first,
+     * or nothing with 304 Not Modified
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all", params = "stream=true", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> streamAllQuestions(final WebRequest webRequest) {
+        final String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+        // Written by the dump writers for as long as the client reads it, away from the reactive feeds
+        ResponseWriterExecutor.markAsDump(webRequest);
+        return databaseWorkExecutor.submit(() -> {
+            final String eTag = questionBusinessService.getAllQuestionsETag();
+            if (EntityTags.matches(ifNoneMatch, eTag)) {
+                return EntityTags.notModified(eTag);
+            }
+            final RowStream<QuestionSummary> allQuestions = questionBusinessService.streamAllQuestions();
+            return ResponseEntity.ok().headers(EntityTags.headers(eTag)).body(JsonArrayStreamingResponse.of(objectMapper, allQuestions, (generator, question) -> {
+                generator.writeStringField("id", question.getUuid());
+                generator.writeStringField("content", question.getContent());
+            }));
+        });
     }
 
     /**
@@ -64,19 +156,22 @@ public class QuestionController {
      * Note, only the owner of the question or admin can delete the question
      *
      * @param questionId    It is uuid of the question to be deleted
-     * @param authorization holds the Bearer access token for authenticating the user.
+     * @param ifMatch       The ETag of the question version the client holds, if the delete is conditional
      * @return uuid of the deleted question and message 'QUESTION DELETED' in the JSON response with the corresponding HTTP status.
      * @throws AuthorizationFailedException if access token does not exit : if user has signed out : if non-owner tries to edit
      * @throws InvalidQuestionException     if question with uuid which is to be deleted does not exist in the database
+     * @throws VersionConflictException     if the question has been changed since the version in If-Match
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/question/delete/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(
-            @PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        String questionUUID = questionBusinessService.deleteQuestion(questionId, authorization);
-        final QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
-        questionDeleteResponse.id(questionUUID).status("QUESTION DELETED");
-        return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<QuestionDeleteResponse>> deleteQuestion(
+            @PathVariable("questionId") final String questionId,
+            @RequestHeader(value = "If-Match", required = false) final String ifMatch) {
+        return databaseWorkExecutor.submit(() -> {
+            String questionUUID = questionBusinessService.deleteQuestion(questionId, EntityTags.expectedVersion(ifMatch));
+            final QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
+            questionDeleteResponse.id(questionUUID).status("QUESTION DELETED");
+            return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+        });
     }
 
     /**
@@ -87,35 +182,82 @@ public class QuestionController {
      * If the userId doesn't match with any of the users in DB, then an error message
      * is thrown saying user doesn't exist.
      *
-     * @param userId        The user UUID whose questions have to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return The list of all questions posted by the user matched with userId
+     * @param userId The user UUID whose questions have to be retrieved
+     * @param cursor The cursor of the page to be retrieved, taken from X-Next-Cursor of the previous page
+     * @param limit  The maximum number of questions in the page
+     * @return A page of the questions posted by the user matched with userId, newest first
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws UserNotFoundException        If no user id with that UUID exists in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
      */
     @RequestMapping(method = RequestMethod.GET, path = "/question/all/{userId}")
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestionsByUser(
-            @PathVariable("userId") final String userId, @RequestHeader final String authorization)
-            throws AuthorizationFailedException, UserNotFoundException {
-        List<Question> allQuestionsByUser = questionBusinessService.getAllQuestionsByUser(userId, authorization);
-        return getQuestionDetailsResponse(allQuestionsByUser);
+    public CompletableFuture<ResponseEntity<List<QuestionDetailsResponse>>> getAllQuestionsByUser(
+            @PathVariable("userId") final String userId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        return databaseWorkExecutor.submit(() -> {
+            CursorPage<QuestionSummary> allQuestionsByUser = questionBusinessService.getAllQuestionsByUser(userId, cursor, limit);
+            return getQuestionDetailsResponse(allQuestionsByUser);
+        });
+    }
+    /**
+     * This method searches the questions by their content after validating the user authorization token
+     *
+     * @param query The search text, whose terms are matched against the question content
+     * @param limit The maximum number of questions returned
+     * @return The List of question details(uuid, question content) matching the query, best match first
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/search", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<List<QuestionDetailsResponse>>> searchQuestions(
+            @RequestParam("q") final String query,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        return databaseWorkExecutor.submit(() -> {
+            final List<QuestionSummary> questions = questionBusinessService.searchQuestions(query, limit);
+            return new ResponseEntity<List<QuestionDetailsResponse>>(toQuestionDetailsResponses(questions), HttpStatus.OK);
+        });
     }
+
     /**
-     * This method takes the list of question as input and populates the corresponding response objects
-     * setting the uuid and the content of each question. Add the Http Response code so that this method
-     * return value can be used to return in the corresponding request mapped methods
+     * This method takes the page of question as input and populates the corresponding response objects
+     * setting the uuid and the content of each question. Add the Http Response code and the next page cursor
+     * so that this method return value can be used to return in the corresponding request mapped methods
      *
-     * @param allQuestions The List of Questions retrieved from the Database to populate the responses
+     * @param allQuestions The page of Questions retrieved from the Database to populate the responses
      * @return ResponseEntity with the required question details populated and the HTTP Status added
      */
-    private ResponseEntity<List<QuestionDetailsResponse>> getQuestionDetailsResponse(List<Question> allQuestions) {
-        List<QuestionDetailsResponse> allQuesDetailsResponse = new ArrayList<>();
-        for (Question question : allQuestions) {
+    private ResponseEntity<List<QuestionDetailsResponse>> getQuestionDetailsResponse(CursorPage<QuestionSummary> allQuestions) {
+        return getQuestionDetailsResponse(allQuestions, null);
+    }
+
+    private ResponseEntity<List<QuestionDetailsResponse>> getQuestionDetailsResponse(CursorPage<QuestionSummary> allQuestions,
+                                                                                     final String eTag) {
+        List<QuestionDetailsResponse> allQuesDetailsResponse = toQuestionDetailsResponses(allQuestions.getItems());
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (eTag != null) {
+            httpHeaders.setETag(eTag);
+        }
+        if (allQuestions.getNextCursor() != null) {
+            httpHeaders.add(QuoraUtil.NEXT_CURSOR_HEADER, allQuestions.getNextCursor());
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuesDetailsResponse, httpHeaders, HttpStatus.OK);
+    }
+
+    /**
+     * This method maps the questions to their response objects, setting the uuid and the content of each question.
+     * Public for the benchmarks of quora-bench, as it runs for every question listed
+     *
+     * @param questions The questions retrieved from the Database
+     * @return The question details of the questions, in the same order
+     */
+    public static List<QuestionDetailsResponse> toQuestionDetailsResponses(final List<QuestionSummary> questions) {
+        List<QuestionDetailsResponse> questionDetailsResponses = new ArrayList<>(questions.size());
+        for (QuestionSummary question : questions) {
             QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
             questionDetailsResponse.id(question.getUuid()).content(question.getContent());
-            allQuesDetailsResponse.add(questionDetailsResponse);
+            questionDetailsResponses.add(questionDetailsResponse);
         }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(allQuesDetailsResponse, HttpStatus.OK);
+        return questionDetailsResponses;
     }
 
     /**
@@ -123,21 +265,26 @@ public class QuestionController {
      * question can edit the question.
      *
      * @param questionId    for the question which needs to be edited.
-     * @param authorization holds the Bearer access token for authenticating the user.
-     * @return uuid of the edited question and message 'QUESTION EDITED' in the JSON response with the corresponding HTTP status.
+     * @param ifMatch       The ETag of the question version the client holds, if the edit is conditional
+     * @return uuid of the edited question and message 'QUESTION EDITED' in the JSON response with the corresponding HTTP status,
+     * and the ETag of the new question version
      * @throws AuthorizationFailedException : if access token does not exit : if user has signed out : if non-owner tries to edit
      * @throws InvalidQuestionException     : if question with uuid which is to be edited does not exist in the database
+     * @throws VersionConflictException     : if the question has been changed since the version in If-Match
      */
     @RequestMapping(method = RequestMethod.PUT, path = "/question/edit/{questionId}")
-    public ResponseEntity<QuestionEditResponse> editQuestionContent(
+    public CompletableFuture<ResponseEntity<QuestionEditResponse>> editQuestionContent(
             @PathVariable("questionId") final String questionId,
-            @RequestHeader("authorization") final String authorization,
-            final QuestionEditRequest questionEditRequest)
-            throws InvalidQuestionException, AuthorizationFailedException {
-        final Question question = new Question();
-        question.setContent(questionEditRequest.getContent());
-        final Question editQuestionEntity = questionBusinessService.editQuestionContent(question, questionId, authorization);
-        QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(editQuestionEntity.getUuid()).status("QUESTION EDITED");
-        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+            @RequestHeader(value = "If-Match", required = false) final String ifMatch,
+            final QuestionEditRequest questionEditRequest) {
+        return databaseWorkExecutor.submit(() -> {
+            final Question question = new Question();
+            question.setContent(questionEditRequest.getContent());
+            final Question editQuestionEntity = questionBusinessService.editQuestionContent(question, questionId, EntityTags.expectedVersion(ifMatch));
+            QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(editQuestionEntity.getUuid()).status("QUESTION EDITED");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.setETag(EntityTags.of(editQuestionEntity.getVersion()));
+            return new ResponseEntity<QuestionEditResponse>(questionEditResponse, httpHeaders, HttpStatus.OK);
+        });
     }
 }
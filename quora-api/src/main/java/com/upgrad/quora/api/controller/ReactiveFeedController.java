@@ -0,0 +1,149 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.api.model.UserDetailsResponse;
+import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.business.PaginationSettings;
+import com.upgrad.quora.service.business.QuestionBusinessService;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.common.CursorPage;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
+import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The read endpoints with the most traffic, served as streamed feeds next to the paginated ones: a listing is written
+ * as newline delimited JSON (application/stream+json), one response model per line, while its pages, of
+ * quora.pagination.feed-page-size rows, are fetched on demand. The first page is fetched before the response is
+ * committed, so an invalid session, an unknown question or user and an invalid cursor are still answered with their
+ * error status.
+ * These are Reactor return types on Spring MVC, not a non-blocking stack: the pages are read by blocking JPA queries
+ * on the {@link DatabaseWorkExecutor}, and the rows are written by blocking servlet writes on the response writer pool.
+ * What they save is the request thread and, between pages, the database connection; a client still holds a writer
+ * thread while a write to it blocks.
+ */
+@RestController
+@RequestMapping("/reactive")
+public class ReactiveFeedController {
+
+    @Autowired
+    private QuestionBusinessService questionBusinessService;
+
+    @Autowired
+    private AnswerBusinessService answerBusinessService;
+
+    @Autowired
+    private UserBusinessService userBusinessService;
+
+    @Autowired
+    private DatabaseWorkExecutor databaseWorkExecutor;
+
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    /**
+     * This method streams the questions, newest first, after validating the user authorization token
+     *
+     * @param cursor The cursor to start from, taken from X-Next-Cursor of a paginated listing, null for the newest
+     * @param limit  The maximum number of questions streamed, null for all of them
+     * @return The questions, fetched a page at a time as the client reads them
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidCursorException       If the cursor cannot be decoded
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<Flux<QuestionDetailsResponse>>> getAllQuestions(
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final int pageSize = paginationSettings.resolveFeedPageSize(limit);
+        return databaseWorkExecutor.submit(() -> {
+            final CursorPage<QuestionSummary> firstPage = questionBusinessService.getAllQuestions(cursor, pageSize);
+            return ResponseEntity.ok(PagedFeed.of(firstPage, limit,
+                    nextCursor -> databaseWorkExecutor.submit(requestAttributes, () -> questionBusinessService.getAllQuestions(nextCursor, pageSize)),
+                    QuestionController::toQuestionDetailsResponses));
+        });
+    }
+
+    /**
+     * This method streams the questions posted by a user, newest first, after validating the user authorization token
+     *
+     * @param userId The user UUID whose questions have to be retrieved
+     * @param cursor The cursor to start from, null for the newest
+     * @param limit  The maximum number of questions streamed, null for all of them
+     * @return The questions of the user, fetched a page at a time as the client reads them
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws UserNotFoundException        If no user id with that UUID exists in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/all/{userId}", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<Flux<QuestionDetailsResponse>>> getAllQuestionsByUser(
+            @PathVariable("userId") final String userId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final int pageSize = paginationSettings.resolveFeedPageSize(limit);
+        return databaseWorkExecutor.submit(() -> {
+            final CursorPage<QuestionSummary> firstPage = questionBusinessService.getAllQuestionsByUser(userId, cursor, pageSize);
+            return ResponseEntity.ok(PagedFeed.of(firstPage, limit,
+                    nextCursor -> databaseWorkExecutor.submit(requestAttributes, () -> questionBusinessService.getAllQuestionsByUser(userId, nextCursor, pageSize)),
+                    QuestionController::toQuestionDetailsResponses));
+        });
+    }
+
+    /**
+     * This method streams the answers posted to a question, newest first, after validating the user authorization token
+     *
+     * @param questionId The UUID of the question whose answers have to be retrieved
+     * @param cursor     The cursor to start from, null for the newest
+     * @param limit      The maximum number of answers streamed, null for all of them
+     * @return The answers to the question, fetched a page at a time as the client reads them
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidQuestionException     If the question with the uuid passed doesn't exist in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/answer/all/{questionId}", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<Flux<AnswerDetailsResponse>>> getAllAnswersToQuestion(
+            @PathVariable("questionId") final String questionId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final int pageSize = paginationSettings.resolveFeedPageSize(limit);
+        return databaseWorkExecutor.submit(() -> {
+            final CursorPage<AnswerSummary> firstPage = answerBusinessService.getAllAnswersToQuestion(questionId, cursor, pageSize);
+            return ResponseEntity.ok(PagedFeed.of(firstPage, limit,
+                    nextCursor -> databaseWorkExecutor.submit(requestAttributes, () -> answerBusinessService.getAllAnswersToQuestion(questionId, nextCursor, pageSize)),
+                    AnswerController::toAnswerDetailsResponses));
+        });
+    }
+
+    /**
+     * This method gets the profile of a user after validating the user authorization token
+     *
+     * @param userId The UUID of the user whose profile is retrieved
+     * @return The profile of the user, once read
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws UserNotFoundException        If the user with the uuid passed doesn't exist in DB
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{userId}", produces = MediaType.APPLICATION_STREAM_JSON_VALUE)
+    public Mono<UserDetailsResponse> getUser(@PathVariable("userId") final String userId) {
+        return Mono.fromFuture(databaseWorkExecutor.submit(() -> CommonController.toUserDetailsResponse(userBusinessService.getUser(userId))));
+    }
+}
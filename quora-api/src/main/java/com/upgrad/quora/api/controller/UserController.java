@@ -4,23 +4,29 @@ import com.upgrad.quora.api.model.SigninResponse;
 import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
+import com.upgrad.quora.api.model.UserAvailabilityResponse;
+import com.upgrad.quora.service.business.PasswordHashingExecutor;
+import com.upgrad.quora.service.business.RequestPrincipal;
+import com.upgrad.quora.service.business.SignupAvailabilityIndex;
 import com.upgrad.quora.service.business.UserBusinessService;
 import com.upgrad.quora.service.entity.User;
 import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
-import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import com.upgrad.quora.service.util.AuthorizationCredentials;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/")
@@ -28,18 +34,32 @@ public class UserController {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private SignupAvailabilityIndex signupAvailabilityIndex;
+
+    @Autowired
+    private RequestPrincipal requestPrincipal;
+
+    @Autowired
+    private DatabaseWorkExecutor databaseWorkExecutor;
+
     /**
      * This method registers a user with all the details provided and handles the
      * Scenario when user provides empty or invalid username/email and throws an error message
+     * The password hashing runs on the hashing pool and the user is saved on the database work pool, so neither pool
+     * waits on the other's work and the request thread is released meanwhile
      *
      * @param signupUserRequest Holds all the details keyed in by the user at the time of Signup
-     * @return UUID of the registered user for further login
-     * @throws SignUpRestrictedException if the user provides invalid username/email
+     * @return UUID of the registered user for further login, completed with SignUpRestrictedException
+     * if the user provides invalid username/email
      */
     @RequestMapping(method = RequestMethod.POST, path = "/user/signup", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignupUserResponse> signUp(final SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
+    public CompletableFuture<ResponseEntity<SignupUserResponse>> signUp(final SignupUserRequest signupUserRequest) {
         final User user = new User();
-        user.setUuid(UUID.randomUUID().toString());
+        user.setUuid(TimeOrderedUuid.generate().toString());
         user.setFirstName(signupUserRequest.getFirstName());
         user.setLastName(signupUserRequest.getLastName());
         user.setUserName(signupUserRequest.getUserName());
@@ -49,46 +69,80 @@ public class UserController {
         user.setAboutMe(signupUserRequest.getAboutMe());
         user.setDob(signupUserRequest.getDob());
         user.setContactNumber(signupUserRequest.getContactNumber());
-        final User createdUser = userBusinessService.signup(user);
-        SignupUserResponse signupUserResponse = new SignupUserResponse();
-        signupUserResponse.id(createdUser.getUuid()).status("USER SUCCESSFULLY REGISTERED");
-        return new ResponseEntity<SignupUserResponse>(signupUserResponse, HttpStatus.CREATED);
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final CompletableFuture<User> hashed = passwordHashingExecutor.submit(() -> {
+            userBusinessService.encryptPassword(user);
+            return user;
+        });
+        return FutureSteps.then(hashed, hashedUser -> databaseWorkExecutor.submit(requestAttributes, () -> {
+            final User createdUser = userBusinessService.signup(hashedUser);
+            SignupUserResponse signupUserResponse = new SignupUserResponse();
+            signupUserResponse.id(createdUser.getUuid()).status("USER SUCCESSFULLY REGISTERED");
+            return new ResponseEntity<SignupUserResponse>(signupUserResponse, HttpStatus.CREATED);
+        }));
     }
 
+    /**
+     * This method checks if a username and email are still available to sign up with
+     * A value the in-memory availability index may have seen is reported as not available without hitting the
+     * database, so not available means possibly taken, while available means free in the database as well
+     *
+     * @param userName The username to be checked
+     * @param email    The email to be checked
+     * @return The availability of the username and the email, false for the ones not passed
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/user/availability", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<UserAvailabilityResponse> availability(@RequestParam(value = "username", required = false) final String userName,
+                                                                 @RequestParam(value = "email", required = false) final String email) {
+        UserAvailabilityResponse userAvailabilityResponse = new UserAvailabilityResponse()
+                .userNameAvailable(userName != null && signupAvailabilityIndex.isUserNameAvailable(userName))
+                .emailAddressAvailable(email != null && signupAvailabilityIndex.isEmailAvailable(email));
+        return new ResponseEntity<UserAvailabilityResponse>(userAvailabilityResponse, HttpStatus.OK);
+    }
 
     /**
      * This method signs out the user from the application if his session is still active.
      * If not, throws an error message stating the user is not logged in before to signout.
      *
-     * @param authorization Holds the access token generated at the time of signin and is used for authentication
      * @return UUID of the use̥r and a message stating Sign Out Successful
      * @throws SignOutRestrictedException when the user session is inactive or he never signed in before
      */
     @RequestMapping(method = RequestMethod.POST, path = "/user/signout", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignoutResponse> signOut(@RequestHeader("authorization") final String authorization) throws SignOutRestrictedException {
-        String uuid = userBusinessService.getUserUUID(authorization);
-        SignoutResponse signoutResponse = new SignoutResponse();
-        signoutResponse.setId(uuid);
-        signoutResponse.setMessage("SIGNED OUT SUCCESSFULLY");
-        return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<SignoutResponse>> signOut() {
+        return databaseWorkExecutor.submit(() -> {
+            String uuid = userBusinessService.getUserUUID();
+            SignoutResponse signoutResponse = new SignoutResponse();
+            signoutResponse.setId(uuid);
+            signoutResponse.setMessage("SIGNED OUT SUCCESSFULLY");
+            return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+        });
     }
 
     /**
      * This method is used to sign in a user who has successfully registered
      * If not,throws a error message that the username does not exist or password is wrong
+     * The user is looked up on the database work pool, the password checked on the hashing pool and the session
+     * created back on the database work pool, so the request thread is released meanwhile
+     * The basic credentials are taken from the request principal before leaving the request thread
      *
-     * @param authorization this contains the encoded username and password
-     * @return SignIn Response which contains user UUID and message stating sign in successfully or not
-     * @throws AuthenticationFailedException will be thrown when the username or password does not match
+     * @return SignIn Response which contains user UUID and message stating sign in successfully or not,
+     * completed with AuthenticationFailedException when the username or password does not match
      */
     @RequestMapping(method = RequestMethod.POST, path = "/user/signin", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SigninResponse> signIn(@RequestHeader("authorization") final String authorization) throws AuthenticationFailedException {
-        UserAuthEntity userAuthEntity = userBusinessService.signIn(authorization);
-        User user = userAuthEntity.getUser();
-        SigninResponse signinResponse = new SigninResponse().id(user.getUuid()).message("SIGNED IN SUCCESSFULLY");
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("access_token", userAuthEntity.getAccessToken());
-        return new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<SigninResponse>> signIn() {
+        final AuthorizationCredentials credentials = requestPrincipal.getCredentials();
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final CompletableFuture<User> signInUser = databaseWorkExecutor.submit(() -> userBusinessService.getSignInUser(credentials));
+        final CompletableFuture<Boolean> rehashed = FutureSteps.then(signInUser, user -> passwordHashingExecutor.submit(
+                () -> userBusinessService.verifyPassword(user, credentials.getPassword())));
+        return FutureSteps.then(rehashed, upgraded -> databaseWorkExecutor.submit(requestAttributes, () -> {
+            UserAuthEntity userAuthEntity = userBusinessService.createSession(signInUser.join(), upgraded);
+            User user = userAuthEntity.getUser();
+            SigninResponse signinResponse = new SigninResponse().id(user.getUuid()).message("SIGNED IN SUCCESSFULLY");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.add("access_token", userAuthEntity.getAccessToken());
+            return new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+        }));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.upgrad.quora.api.exception;
+
+import com.upgrad.quora.api.model.ErrorResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Records the error code of every error response on its request, so the request metrics are tagged by the error code,
+ * e.g. ATHR-001 or QUES-001, rather than by the HTTP status alone, which several error codes share.
+ */
+@ControllerAdvice
+public class ErrorCodeResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String ERROR_CODE_ATTRIBUTE = ErrorCodeResponseAdvice.class.getName() + ".errorCode";
+
+    @Override
+    public boolean supports(final MethodParameter returnType, final Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body, final MethodParameter returnType, final MediaType selectedContentType,
+                                  final Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  final ServerHttpRequest request, final ServerHttpResponse response) {
+        if (body instanceof ErrorResponse && request instanceof ServletServerHttpRequest) {
+            ((ServletServerHttpRequest) request).getServletRequest().setAttribute(ERROR_CODE_ATTRIBUTE, ((ErrorResponse) body).getCode());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,33 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.business.RequestPrincipal;
+import com.upgrad.quora.service.util.AuthorizationCredentials;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Parses the authorization header of every request once, and hands the credentials to the business services
+ * through the request scoped {@link RequestPrincipal}.
+ * Registered with the default lowest precedence, so it runs after the request scope is set up.
+ */
+@Component
+public class AuthorizationHeaderFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private RequestPrincipal requestPrincipal;
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        requestPrincipal.setCredentials(AuthorizationCredentials.parse(request.getHeader(HttpHeaders.AUTHORIZATION)));
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,49 @@
+package com.upgrad.quora.api.config;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConnectionBudgetTest {
+
+    //This test case passes when the dump writers get a quarter of the connections left by the background jobs and the database workers the rest.
+    @Test
+    public void allocateDefaultPools() {
+        final ConnectionBudget connectionBudget = connectionBudget(10, 1, 0, 0);
+        connectionBudget.allocate();
+        assertEquals(2, connectionBudget.getDumpWriters());
+        assertEquals(7, connectionBudget.getDatabaseWorkers());
+    }
+
+    //This test case passes when the database workers get the connections left by the configured dump writers.
+    @Test
+    public void allocateConfiguredDumpWriters() {
+        final ConnectionBudget connectionBudget = connectionBudget(20, 1, 5, 0);
+        connectionBudget.allocate();
+        assertEquals(5, connectionBudget.getDumpWriters());
+        assertEquals(14, connectionBudget.getDatabaseWorkers());
+    }
+
+    //This test case passes when the application refuses to start with dump writers and database workers needing more connections than the pool holds.
+    @Test(expected = IllegalStateException.class)
+    public void allocateMoreThanPool() {
+        connectionBudget(10, 1, 8, 10).allocate();
+    }
+
+    //This test case passes when the application refuses to start with dump writers leaving no connection to the database workers.
+    @Test(expected = IllegalStateException.class)
+    public void allocateNoDatabaseWorker() {
+        connectionBudget(10, 1, 9, 0).allocate();
+    }
+
+    private static ConnectionBudget connectionBudget(final int connectionPoolSize, final int backgroundConnections,
+                                                     final int dumpWriters, final int databaseWorkers) {
+        final ConnectionBudget connectionBudget = new ConnectionBudget();
+        ReflectionTestUtils.setField(connectionBudget, "connectionPoolSize", connectionPoolSize);
+        ReflectionTestUtils.setField(connectionBudget, "backgroundConnections", backgroundConnections);
+        ReflectionTestUtils.setField(connectionBudget, "configuredDumpWriters", dumpWriters);
+        ReflectionTestUtils.setField(connectionBudget, "configuredDatabaseWorkers", databaseWorkers);
+        return connectionBudget;
+    }
+}
@@ -1,17 +1,29 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.UserSessionCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -23,11 +35,20 @@ public class AnswerControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserSessionCache userSessionCache;
+
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
     public void createAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-7000-8001-000000001024/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -35,7 +56,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to create the answer but the user corresponding to the JWT token entered is signed out of the application.
     @Test
     public void createAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-7000-8001-000000001024/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -43,7 +67,21 @@ public class AnswerControllerTest {
     //This test case passes when you try to create the answer for the question which does not exist in the database.
     @Test
     public void createAnswerForNonExistingQuestion() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when you try to create answers in bulk for the question which does not exist in the database.
+    @Test
+    public void createAnswersForNonExistingQuestion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken").content("[{\"answer\":\"my_answer\"},{\"answer\":\"my_other_answer\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
@@ -51,7 +89,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer but the JWT token entered does not exist in the database.
     @Test
     public void editAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-7000-8002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -59,7 +100,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void editAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-7000-8002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -67,7 +111,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer which does not exist in the database.
     @Test
     public void editNonExistingAnswer() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/non_existing_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/non_existing_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
     }
@@ -75,7 +122,56 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer.
     @Test
     public void editAnswerWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-7000-8002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you edit the answer by its owner with an If-Match header naming its current version, and get the ETag of the new version.
+    @Test
+    public void editAnswerWithCurrentVersion() throws Exception {
+        final MockHttpServletResponse createdResponse = createAnswer();
+        final String answerId = JsonPath.read(createdResponse.getContentAsString(), "$.id");
+        final String eTag = createdResponse.getHeader("ETag");
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String newETag = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(eTag, newETag);
+    }
+
+    //This test case passes when you try to delete the answer by its owner with an If-Match header naming a version it was at before an edit.
+    @Test
+    public void deleteAnswerWithStaleVersion() throws Exception {
+        final MockHttpServletResponse createdResponse = createAnswer();
+        final String answerId = JsonPath.read(createdResponse.getContentAsString(), "$.id");
+        final MvcResult edited = mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(edited))
+                .andExpect(status().isOk());
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + answerId).header("authorization", "database_accesstoken1").header("If-Match", createdResponse.getHeader("ETag")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("VER-001"));
+    }
+
+    //This test case passes when you try to delete the answer by a nonadmin user who is not its owner with an If-Match header naming a version the answer is not at, and the ownership is reported first.
+    @Test
+    public void deleteAnswerWithoutOwnershipAndStaleVersion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-7000-8002-000000001024").header("authorization", "database_accesstoken2").header("If-Match", "\"99\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -83,7 +179,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer but the JWT token entered does not exist in the database.
     @Test
     public void deleteAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-7000-8002-000000001024").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -91,7 +190,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void deleteAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-7000-8002-000000001024").header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -99,7 +201,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer which does not exist in the database.
     @Test
     public void deleteNonExistingAnswer() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/non_existing_answer_uuid").header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/non_existing_answer_uuid").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
     }
@@ -107,15 +212,109 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer or he is not the admin.
     @Test
     public void deleteAnswerWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken2"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-7000-8002-000000001024").header("authorization", "database_accesstoken2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
 
+    //This test case passes when getting all the answers posted for a specific question takes one statement each for the session, the question id and the page of answers.
+    @Test
+    public void getAllAnswersToQuestionStatementCount() throws Exception {
+        userSessionCache.invalidate("database_accesstoken1");
+        // The question id lookup is served from the query cache once run, so it is emptied beforehand
+        entityManagerFactory.getCache().unwrap(org.hibernate.Cache.class).evictQueryRegions();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when the question id lookup of a repeated request for all the answers posted for a specific question is served from the query cache.
+    @Test
+    public void getAllAnswersToQuestionCachedQuestionLookup() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        userSessionCache.invalidate("database_accesstoken1");
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        final MvcResult secondResult = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isOk());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    //This test case passes when you get all the answers posted for a specific question again with the ETag of the previous response, and nothing changed in between.
+    @Test
+    public void getAllAnswersToQuestionNotModified() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String eTag = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        final MvcResult secondResult = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
+    }
+
+    //This test case passes when you get all the answers posted for a specific question again with the ETag of the previous response, an answer being posted in between, and get the answers with a new ETag.
+    @Test
+    public void getAllAnswersToQuestionModified() throws Exception {
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=etag_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String questionId = JsonPath.read(mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        // Polled with the upper case UUID, which names the same question as the canonical one the answer is posted to
+        final String listing = "/answer/all/" + questionId.toUpperCase();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get(listing).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String eTag = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        final MvcResult answered = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=etag_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(answered))
+                .andExpect(status().isCreated());
+        final MvcResult secondResult = mvc.perform(MockMvcRequestBuilders.get(listing).header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String newETag = mvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.answerContent == 'etag_answer')]").exists())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(eTag, newETag);
+    }
+
     //This test case passes when you try to get all the answers posted for a specific question but the JWT token entered does not exist in the database.
     @Test
     public void getAllAnswersToQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -123,7 +322,10 @@ public class AnswerControllerTest {
     //This test case passes when you try to get all the answers posted for a specific question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllAnswersToQuestionWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -131,10 +333,20 @@ public class AnswerControllerTest {
     //This test case passes when you try to get all the answers posted for a specific question which does not exist in the database.
     @Test
     public void getAllAnswersToNonExistingQuestion() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/answer/all/non_existing_question_uuid").header("authorization", "database_accesstoken"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/non_existing_question_uuid").header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
-
+    private MockHttpServletResponse createAnswer() throws Exception {
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-7000-8001-000000001024/answer/create?answer=conditional_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+    }
 }
@@ -0,0 +1,66 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.business.UserSessionCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chunks of as many items as the JDBC batch size, so every chunk is written by one batch
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.bulk.chunk-size=50", "quora.bulk.max-items=100"})
+@AutoConfigureMockMvc
+public class BulkBatchTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserSessionCache userSessionCache;
+
+    //This test case passes when the questions created in bulk are inserted by one statement per chunk, and their ids are allocated by a few sequence calls.
+    @Test
+    public void createQuestionsStatementCount() throws Exception {
+        final StringBuilder content = new StringBuilder("[");
+        for (int index = 0; index < 100; index++) {
+            content.append(index == 0 ? "" : ",").append("{\"content\":\"batched_bulk_question_").append(index).append("\"}");
+        }
+        content.append("]");
+        userSessionCache.invalidate("database_accesstoken1");
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").content(content.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[99].status").value("QUESTION CREATED"));
+        assertEquals(100, statistics.getEntityInsertCount());
+        // One statement for the session, one insert per chunk of 50, and one sequence call per block of 50 ids,
+        // the first block being possibly shared with ids already handed out
+        final long statementCount = statistics.getPrepareStatementCount();
+        assertTrue("statements: " + statementCount, statementCount >= 3 && statementCount <= 6);
+    }
+}
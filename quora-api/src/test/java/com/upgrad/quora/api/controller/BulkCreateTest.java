@@ -0,0 +1,87 @@
+package com.upgrad.quora.api.controller;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// One item written per transaction, so an item failing to be saved is rejected apart from the others
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.bulk.chunk-size=1", "quora.bulk.max-items=3"})
+@AutoConfigureMockMvc
+public class BulkCreateTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    //This test case passes when you create questions in bulk and the user corresponding to the JWT token entered is signed in.
+    @Test
+    public void createQuestions() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").content("[{\"content\":\"bulk_question\"},{\"content\":\"other_bulk_question\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].index").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].index").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").exists());
+    }
+
+    //This test case passes when the questions created in bulk are reported next to the ones which are invalid or cannot be saved, each at its position.
+    @Test
+    public void createQuestionsWithRejectedItems() throws Exception {
+        // PostgreSQL refuses the NUL character in text, which the validation lets through
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").content("[{\"content\":\"valid_bulk_question\"},{\"content\":null},{\"content\":\"unsaved\\u0000question\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("QUESTION CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].code").value("BLK-002"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].id").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].code").value("BLK-003"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].id").doesNotExist());
+    }
+
+    //This test case passes when you try to create more questions in bulk than a bulk request can hold.
+    @Test
+    public void createQuestionsOverItemLimit() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").content("[{\"content\":\"a\"},{\"content\":\"b\"},{\"content\":\"c\"},{\"content\":\"d\"}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("BLK-001"));
+    }
+
+    //This test case passes when the answers created in bulk for a question are reported next to the ones which are invalid, each at its position.
+    @Test
+    public void createAnswersWithRejectedItem() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-7000-8001-000000001024/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").content("[{\"answer\":\"bulk_answer\"},{\"answer\":null}]"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("ANSWER CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].code").value("BLK-002"));
+    }
+}
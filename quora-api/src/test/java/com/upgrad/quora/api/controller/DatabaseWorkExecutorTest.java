@@ -0,0 +1,82 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.config.ConnectionBudget;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DatabaseWorkExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private DatabaseWorkExecutor databaseWorkExecutor;
+
+    @After
+    public void stop() {
+        release.countDown();
+        if (databaseWorkExecutor != null) {
+            databaseWorkExecutor.stop();
+        }
+    }
+
+    //This test case passes when the work submitted beyond the worker and the queue is rejected right away with SRV-002.
+    @Test
+    public void submitWithFullQueue() throws Exception {
+        databaseWorkExecutor = databaseWorkExecutor(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CompletableFuture<String> running = databaseWorkExecutor.submit(null, () -> {
+            started.countDown();
+            release.await();
+            return "running";
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final CompletableFuture<String> queued = databaseWorkExecutor.submit(null, () -> "queued");
+        final CompletableFuture<String> rejected = databaseWorkExecutor.submit(null, () -> "rejected");
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServiceUnavailableException);
+            assertEquals("SRV-002", ((ServiceUnavailableException) e.getCause()).getCode());
+        }
+        release.countDown();
+        assertEquals("running", running.get(10, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+    }
+
+    //This test case passes when the work runs on the calling thread with quora.database-work.offload disabled.
+    @Test
+    public void submitWithoutOffload() throws Exception {
+        databaseWorkExecutor = databaseWorkExecutor(false);
+        final Thread caller = Thread.currentThread();
+        final CompletableFuture<Thread> result = databaseWorkExecutor.submit(null, Thread::currentThread);
+        assertTrue(result.isDone());
+        assertEquals(caller, result.get());
+    }
+
+    // One worker and room for one task in the queue
+    private static DatabaseWorkExecutor databaseWorkExecutor(final boolean offload) {
+        final ConnectionBudget connectionBudget = new ConnectionBudget();
+        ReflectionTestUtils.setField(connectionBudget, "connectionPoolSize", 3);
+        ReflectionTestUtils.setField(connectionBudget, "backgroundConnections", 1);
+        ReflectionTestUtils.setField(connectionBudget, "configuredDumpWriters", 1);
+        connectionBudget.allocate();
+        final DatabaseWorkExecutor executor = new DatabaseWorkExecutor();
+        ReflectionTestUtils.setField(executor, "connectionBudget", connectionBudget);
+        ReflectionTestUtils.setField(executor, "offload", offload);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        executor.start();
+        return executor;
+    }
+}
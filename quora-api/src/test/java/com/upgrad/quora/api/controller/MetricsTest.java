@@ -0,0 +1,59 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.metrics.OperationTimingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //This test case passes when a request failing with an error code is timed under that code, by the endpoint and by the business service.
+    @Test
+    public void timeRequestByErrorCode() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden());
+        final Timer request = meterRegistry.find("http.server.requests")
+                .tags("uri", "/question/all", "outcome", "CLIENT_ERROR", "code", "ATHR-001").timer();
+        assertNotNull(request);
+        final Timer operation = meterRegistry.find(OperationTimingAspect.SERVICE_TIMER).tag("outcome", "ATHR-001").timer();
+        assertNotNull(operation);
+    }
+
+    //This test case passes when a successful request is timed by the endpoint, the business service and the DAO queries it ran.
+    @Test
+    public void timeSuccessfulRequest() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertNotNull(meterRegistry.find("http.server.requests").tags("uri", "/question/all", "code", "none").timer());
+        assertNotNull(meterRegistry.find(OperationTimingAspect.SERVICE_TIMER).tag("outcome", OperationTimingAspect.SUCCESS).timer());
+        assertNotNull(meterRegistry.find(OperationTimingAspect.DAO_TIMER).tag("outcome", OperationTimingAspect.SUCCESS).timer());
+    }
+}
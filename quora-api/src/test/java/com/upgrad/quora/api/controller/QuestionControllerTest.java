@@ -1,17 +1,31 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.UserSessionCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -23,11 +37,20 @@ public class QuestionControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserSessionCache userSessionCache;
+
 
     //This test case passes when you try to create the question but the JWT token entered does not exist in the database.
     @Test
     public void createQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -35,7 +58,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to create the question but the user corresponding to the JWT token entered is signed out of the application.
     @Test
     public void createQuestionWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -43,14 +69,90 @@ public class QuestionControllerTest {
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
     @Test
     public void getAllQuestions() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when you try to get a page of the questions with a cursor that was not returned by the application.
+    @Test
+    public void getAllQuestionsWithInvalidCursor() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all?cursor=invalid_cursor&limit=10").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAG-001"));
+    }
+
+    //This test case passes when you stream the detail of all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all?stream=true").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MvcResult dump = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Completed once the whole dump is written
+        dump.getAsyncResult();
+        assertTrue(dump.getResponse().getContentAsString().contains("\"id\":\"00000000-0000-7000-8001-000000001024\""));
+    }
+
+    //This test case passes when getting the detail of all the questions takes one statement for the session and one for the page of questions.
+    @Test
+    public void getAllQuestionsStatementCount() throws Exception {
+        userSessionCache.invalidate("database_accesstoken1");
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when you search the questions by a term of their content and the user corresponding to the JWT token entered is signed in.
+    @Test
+    public void searchQuestions() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/search?q=DATABASE_QUESTION_CONTENT").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '00000000-0000-7000-8001-000000001024')]").exists());
+    }
+
+    //This test case passes when you get the detail of all the questions again with the ETag of the previous response, and nothing changed in between.
+    @Test
+    public void getAllQuestionsNotModified() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String eTag = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        final MvcResult secondResult = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(secondResult))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag));
     }
 
     //This test case passes when you try to get the detail of all the questions but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -58,7 +160,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllQuestionsWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -66,7 +171,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question but the JWT token entered does not exist in the database.
     @Test
     public void editQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-7000-8001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -74,7 +182,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void editQuestionWithWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-7000-8001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -82,7 +193,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question.
     @Test
     public void editQuestionWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-7000-8001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -90,15 +204,112 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question which does not exist in the database.
     @Test
     public void editNonExistingQuestion() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/non_exisitng_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/non_exisitng_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when you try to edit the question by its owner with an If-Match header naming a version the question is not at.
+    @Test
+    public void editQuestionWithStaleVersion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-7000-8001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"99\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("VER-001"));
+    }
+
+    //This test case passes when you edit the question by its owner with an If-Match header naming its current version, and get the ETag of the new version.
+    @Test
+    public void editQuestionWithCurrentVersion() throws Exception {
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=conditional_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MockHttpServletResponse createdResponse = mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        final String questionId = JsonPath.read(createdResponse.getContentAsString(), "$.id");
+        final String eTag = createdResponse.getHeader("ETag");
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String newETag = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(eTag, newETag);
+        final MvcResult staleResult = mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_again").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(staleResult))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("VER-001"));
+    }
+
+    //This test case passes when you try to edit the question by a user who is not its owner with an If-Match header naming a version the question is not at, and the ownership is reported first.
+    @Test
+    public void editQuestionWithoutOwnershipAndStaleVersion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-7000-8001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken").header("If-Match", "\"99\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you try to delete the question by its owner with an If-Match header naming a version it was at before an edit, and then delete it with its current version.
+    @Test
+    public void deleteQuestionWithStaleVersion() throws Exception {
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=conditional_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MockHttpServletResponse createdResponse = mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        final String questionId = JsonPath.read(createdResponse.getContentAsString(), "$.id");
+        final MvcResult edited = mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String eTag = mvc.perform(asyncDispatch(edited))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        final MvcResult staleResult = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken1").header("If-Match", createdResponse.getHeader("ETag")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(staleResult))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("VER-001"));
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken1").header("If-Match", eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId));
+    }
+
+    //This test case passes when you try to delete the question by a nonadmin user who is not its owner with an If-Match header naming a version the question is not at, and the ownership is reported first.
+    @Test
+    public void deleteQuestionWithoutOwnershipAndStaleVersion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken2").header("If-Match", "\"99\""))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
     //This test case passes when you try to delete the question but the JWT token entered does not exist in the database.
     @Test
     public void deleteQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-7000-8001-000000001024").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -106,7 +317,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void deleteQuestionWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -114,7 +328,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question or he is not the admin.
     @Test
     public void deleteQuestionWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken2"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -123,7 +340,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question which does not exist in the database.
     @Test
     public void deleteNoneExistingQuestion() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/non_existing_question_uuid").header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/question/delete/non_existing_question_uuid").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
@@ -131,7 +351,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to get all the questions posted by a specific user but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsByUserWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "non_existing_access_token"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-7000-8000-000000001026").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -139,7 +362,10 @@ public class QuestionControllerTest {
     //This test case passes when you try to get all the questions posted by a specific user and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllQuestionsByUserWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken3"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-7000-8000-000000001026").header("authorization", "database_accesstoken3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -147,10 +373,24 @@ public class QuestionControllerTest {
     //This test case passes when you try to get all the questions posted by a specific user which does not exist in the database.
     @Test
     public void getAllQuestionsForNonExistingUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all/non_existing_user_uuid").header("authorization", "database_accesstoken1"))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/non_existing_user_uuid").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you get all the questions posted by a specific user, the user and question being looked up by their uuid column.
+    @Test
+    public void getAllQuestionsByUser() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-7000-8000-000000001026").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '00000000-0000-7000-8001-000000001024')]").exists());
+    }
+
 
 }
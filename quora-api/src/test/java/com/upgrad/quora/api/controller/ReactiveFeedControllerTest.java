@@ -0,0 +1,135 @@
+package com.upgrad.quora.api.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Small pages, so the feeds are read over several of them
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.pagination.feed-page-size=2")
+@AutoConfigureMockMvc
+public class ReactiveFeedControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    //This test case passes when you read the feed of all the questions and the user corresponding to the JWT token entered is signed in.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/reactive/question/all").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MvcResult feed = mvc.perform(asyncDispatch(result))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Completed once the whole feed is written
+        feed.getAsyncResult();
+        assertTrue(feed.getResponse().getContentAsString().contains("\"id\":\"00000000-0000-7000-8001-000000001024\""));
+    }
+
+    //This test case passes when the feed of all the questions, read over several pages, lists every question once, newest first, and ends.
+    @Test
+    public void streamAllQuestionsOverPages() throws Exception {
+        final List<String> createdQuestions = createQuestions("paged_feed_question", 5);
+        final List<String> ids = readFeed("/reactive/question/all");
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        Collections.reverse(createdQuestions);
+        assertEquals(createdQuestions, ids.subList(0, 5));
+        assertTrue(ids.contains("00000000-0000-7000-8001-000000001024"));
+    }
+
+    //This test case passes when the feed of all the questions ends at the limit requested, the limit spanning several pages.
+    @Test
+    public void streamAllQuestionsUpToLimit() throws Exception {
+        createQuestions("limited_feed_question", 5);
+        final List<String> ids = readFeed("/reactive/question/all");
+        assertEquals(ids.subList(0, 3), readFeed("/reactive/question/all?limit=3"));
+    }
+
+    //This test case passes when you try to read the feed of the answers to a question which does not exist in the database, and get its error status rather than an empty feed.
+    @Test
+    public void streamAnswersToNonExistingQuestion() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/reactive/answer/all/non_existing_question_uuid").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when you try to read the feed of all the questions but the JWT token entered does not exist in the database.
+    @Test
+    public void streamAllQuestionsWithNonExistingAccessToken() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/reactive/question/all").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when you get the profile of an existing user through the reactive feeds.
+    @Test
+    public void details() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/reactive/userprofile/00000000-0000-7000-8000-000000001026").accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("user_name").exists());
+    }
+
+    private List<String> createQuestions(final String content, final int count) throws Exception {
+        final List<String> ids = new ArrayList<>(count);
+        for (int index = 0; index < count; index++) {
+            final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=" + content + index)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            ids.add(JsonPath.read(mvc.perform(asyncDispatch(created))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString(), "$.id"));
+        }
+        return ids;
+    }
+
+    // Reads the ids of a feed, one row per line, once the whole feed is written
+    private List<String> readFeed(final String path) throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get(path).accept(MediaType.APPLICATION_STREAM_JSON).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final MvcResult feed = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // Fails unless the feed ends
+        feed.getAsyncResult(10000);
+        final List<String> ids = new ArrayList<>();
+        for (String line : feed.getResponse().getContentAsString().split("\n")) {
+            if (!line.trim().isEmpty()) {
+                ids.add(JsonPath.read(line, "$.id"));
+            }
+        }
+        return ids;
+    }
+}
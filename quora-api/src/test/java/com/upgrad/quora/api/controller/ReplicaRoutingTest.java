@@ -0,0 +1,59 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.datasource.ReplicaRoutingDataSource;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The test database stands in for its own replica
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.replicas.enabled=true", "quora.replicas.urls=${spring.datasource.url}"})
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    //This test case passes when the questions posted by a user are read from the replica, once the replica passed its health check.
+    @Test
+    public void getAllQuestionsByUserFromReplica() throws Exception {
+        replicaRoutingDataSource.checkReplicas();
+        assertEquals(1, replicaRoutingDataSource.getHealthyReplicaCount());
+        final long replicaReads = replicaRoutingDataSource.getReplicaReads();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-7000-8000-000000001026").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertTrue(replicaRoutingDataSource.getReplicaReads() > replicaReads);
+    }
+
+    //This test case passes when the detail of all the questions, answered with an ETag bumped on the primary, is read from the primary even though the replica is healthy.
+    @Test
+    public void getAllQuestionsFromPrimary() throws Exception {
+        replicaRoutingDataSource.checkReplicas();
+        assertEquals(1, replicaRoutingDataSource.getHealthyReplicaCount());
+        final long replicaReads = replicaRoutingDataSource.getReplicaReads();
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertEquals(replicaReads, replicaRoutingDataSource.getReplicaReads());
+    }
+}
@@ -1,15 +1,28 @@
 package com.upgrad.quora.api.controller;
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -20,10 +33,15 @@ public class UserControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     //This test case passes when you signup with a username that already exists in the database.
     @Test
     public void signupWithRepeatedUserName() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=database_username&emailAddress=a&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=database_username&emailAddress=a&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isConflict())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
@@ -31,17 +49,166 @@ public class UserControllerTest {
     //This test case passes when you signup with an email that already exists in the database.
     @Test
     public void signupWithRepeatedEmail() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=non_existing_username&emailAddress=database_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=non_existing_username&emailAddress=database_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isConflict())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"));
     }
 
+    //This test case passes when you check the availability of a username and an email that already exist in the database.
+    @Test
+    public void availabilityWithExistingUserNameAndEmail() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/user/availability?username=database_username&email=database_email"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("user_name_available").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("email_address_available").value(false));
+    }
+
+    //This test case passes when a username and an email registered past the availability index, as by another instance, are reported as not available, and free ones as available.
+    @Test
+    public void availabilityWithUserNameAndEmailRegisteredElsewhere() throws Exception {
+        final String userId = signUpAndSignIn()[0];
+        final String userName = "moved_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        jdbcTemplate.update("update users set username = ?, email = ? where cast(uuid as varchar) = ?", userName, userName, userId);
+        mvc.perform(MockMvcRequestBuilders.get("/user/availability?username=" + userName + "&email=" + userName))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("user_name_available").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("email_address_available").value(false));
+        final String freeName = "free_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        mvc.perform(MockMvcRequestBuilders.get("/user/availability?username=" + freeName + "&email=" + freeName))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("user_name_available").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("email_address_available").value(true));
+    }
+    //This test case passes when you try to signin with a username that does not exist in the database.
+    @Test
+    public void signinWithNonExistingUserName() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("authorization", "Basic " + Base64.getEncoder().encodeToString("non_existing_username:password".getBytes())))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-001"));
+    }
+
+    //This test case passes when you try to signin without an authorization header.
+    @Test
+    public void signinWithoutAuthorization() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-003"));
+    }
+
+    //This test case passes when you try to signin with basic credentials which cannot be decoded.
+    @Test
+    public void signinWithMalformedCredentials() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("authorization", "Basic not_base64"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-003"));
+    }
+
+    //This test case passes when you try to signin as a user whose stored salt and password hash are malformed.
+    @Test
+    public void signinWithMalformedStoredHash() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("authorization", "Basic " + Base64.getEncoder().encodeToString("database_username:database_password".getBytes())))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-002"));
+    }
+
+    //This test case passes when you signin with a password hashed by the legacy parameters and the stored hash is upgraded to the versioned format.
+    @Test
+    public void signinWithLegacyPasswordHash() throws Exception {
+        final String userName = "legacy_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated());
+        final String legacySalt = Base64.getEncoder().encodeToString(userName.getBytes(StandardCharsets.UTF_8));
+        final String legacyHash = PasswordCryptographyProvider.encrypt("legacy_password", legacySalt);
+        jdbcTemplate.update("update users set salt = ?, password = ? where username = ?", legacySalt, legacyHash, userName);
+
+        final String authorization = "Basic " + Base64.getEncoder().encodeToString((userName + ":legacy_password").getBytes());
+        result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8).header("authorization", authorization))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        final String upgradedHash = jdbcTemplate.queryForObject("select password from users where username = ?", String.class, userName);
+        assertTrue(upgradedHash.startsWith("$pbkdf2-sha512$"));
+        assertNotEquals(legacySalt, jdbcTemplate.queryForObject("select salt from users where username = ?", String.class, userName));
+
+        result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8).header("authorization", authorization))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when the session served from the cache is no longer accepted once the user signs out.
+    @Test
+    public void signoutInvalidatesCachedSession() throws Exception {
+        final String accessToken = signUpAndSignIn()[1];
+        getAllQuestions(accessToken).andExpect(status().isOk());
+        getAllQuestions(accessToken).andExpect(status().isOk());
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", accessToken))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        getAllQuestions(accessToken)
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when the session served from the cache is no longer accepted once the user is deleted.
+    @Test
+    public void deleteUserInvalidatesCachedSession() throws Exception {
+        final String[] signedIn = signUpAndSignIn();
+        getAllQuestions(signedIn[1]).andExpect(status().isOk());
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + signedIn[0]).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        getAllQuestions(signedIn[1])
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
 
     //This test case passes when you try to signout but the JWT token entered does not exist in the database.
     @Test
     public void signoutWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", "non_existing_access_token"))
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", "non_existing_access_token"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isUnauthorized())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
+
+    private String[] signUpAndSignIn() throws Exception {
+        final String userName = "session_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=session_password&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted()).andReturn();
+        final String userId = JsonPath.read(mvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        result = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":session_password").getBytes())))
+                .andExpect(request().asyncStarted()).andReturn();
+        final String accessToken = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("access_token");
+        return new String[]{userId, accessToken};
+    }
+
+    private ResultActions getAllQuestions(final String accessToken) throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", accessToken))
+                .andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
 }
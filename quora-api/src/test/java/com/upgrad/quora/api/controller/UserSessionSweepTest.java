@@ -0,0 +1,81 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.service.business.UserSessionSweeper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.session-sweeper.batch-size=2", "quora.session-sweeper.max-batches-per-run=20"})
+@AutoConfigureMockMvc
+public class UserSessionSweepTest {
+
+    private static final int EXPIRED_SESSIONS = 5;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserSessionSweeper userSessionSweeper;
+
+    //This test case passes when an expired session is refused with ATHR-002, then purged by the sweeper in batches so that its token is no longer found.
+    @Test
+    public void sweepExpiredSessions() throws Exception {
+        // The safety sweep run at startup would purge the sessions before they are looked up
+        final long deadline = System.currentTimeMillis() + 10_000L;
+        while (userSessionSweeper.getBatchCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        final String tokenPrefix = "expired_accesstoken_" + UUID.randomUUID() + "_";
+        for (int i = 0; i < EXPIRED_SESSIONS; i++) {
+            // Ids below the ones handed out by the sequence, so they cannot collide with the sessions created meanwhile
+            jdbcTemplate.update("insert into user_auth (id, uuid, user_id, access_token, expires_at, login_at, logout_at)"
+                    + " select least(coalesce(min(id), 0), 0) - 1, cast(? as uuid), 1026, ?, now() - interval '1 hour', now() - interval '9 hour', null"
+                    + " from user_auth", UUID.randomUUID().toString(), tokenPrefix + i);
+        }
+        getAllQuestions(tokenPrefix + 0)
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+
+        final long batches = userSessionSweeper.getBatchCount();
+        final long rowsPurged = userSessionSweeper.getRowsPurged();
+        // A session which expired before it was tracked counts as backlog, so the next run sweeps the table
+        userSessionSweeper.track(Integer.MAX_VALUE, ZonedDateTime.now().minusHours(1));
+        userSessionSweeper.sweep();
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from user_auth where access_token like ?", Integer.class, tokenPrefix + "%").intValue());
+        assertTrue(userSessionSweeper.getBatchCount() - batches >= (EXPIRED_SESSIONS + 1) / 2);
+        assertTrue(userSessionSweeper.getRowsPurged() - rowsPurged >= EXPIRED_SESSIONS);
+        assertEquals(0, userSessionSweeper.getBacklog());
+
+        getAllQuestions(tokenPrefix + 0)
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    private ResultActions getAllQuestions(final String accessToken) throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", accessToken))
+                .andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,160 @@
+package com.upgrad.quora.api.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs EXPLAIN on the SQL of every named query declared by the entities, and fails if a plan reads a table with more
+ * rows than the threshold by a sequential scan. The plans are only meaningful on a database holding a realistic
+ * volume, so this check is not part of the default test run: mvn -Pplan-check test migrates and seeds the database
+ * from quora-db, then runs this check alone.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class QueryPlanCheck {
+
+    private static final long MAX_SEQ_SCAN_ROWS = Long.getLong("plan-check.max-seq-scan-rows", 1000L);
+
+    // The queries the DAOs read a page of results from, whose plans depend on the limit
+    private static final Set<String> READ_WITH_LIMIT = new HashSet<>(Arrays.asList("questionsPage", "questionsPageAfter",
+            "questionsByUserIdPage", "questionsByUserIdPageAfter", "answersByQuestionIdPage", "answersByQuestionIdPageAfter",
+            "questionsByContentLike"));
+
+    private static final int LIMIT = 10;
+
+    // The parameters are bound to the values of the test records, a query reading no row being planned like any other
+    private static final Map<String, Object> SAMPLE_PARAMETERS = new HashMap<>();
+
+    static {
+        SAMPLE_PARAMETERS.put("uuid", UUID.fromString("00000000-0000-7000-8001-000000001024"));
+        SAMPLE_PARAMETERS.put("userId", 1026);
+        SAMPLE_PARAMETERS.put("questionId", 1024);
+        SAMPLE_PARAMETERS.put("id", 1024);
+        SAMPLE_PARAMETERS.put("date", Timestamp.valueOf("2018-09-17 19:41:19.593"));
+        SAMPLE_PARAMETERS.put("userName", "database_username1");
+        SAMPLE_PARAMETERS.put("email", "database_email1");
+        SAMPLE_PARAMETERS.put("accessToken", "database_accesstoken1");
+        SAMPLE_PARAMETERS.put("pattern", "%database%");
+    }
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void namedQueriesAvoidSequentialScansOfLargeTables() throws Exception {
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        final List<String> violations = new ArrayList<>();
+        int checked = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            for (NamedQuery namedQuery : namedQueries()) {
+                final HQLQueryPlan queryPlan = sessionFactory.getQueryPlanCache()
+                        .getHQLQueryPlan(namedQuery.query(), false, Collections.emptyMap());
+                for (QueryTranslator translator : queryPlan.getTranslators()) {
+                    final String sql = READ_WITH_LIMIT.contains(namedQuery.name())
+                            ? translator.getSQLString() + " limit " + LIMIT : translator.getSQLString();
+                    final JsonNode plan = explain(connection, namedQuery.name(), sql, translator.getParameterTranslations());
+                    collectSequentialScans(connection, namedQuery.name(), plan, violations);
+                    checked++;
+                }
+            }
+        }
+        assertTrue("No named query was found", checked > 0);
+        if (!violations.isEmpty()) {
+            fail("Sequential scans of tables above " + MAX_SEQ_SCAN_ROWS + " rows:\n" + String.join("\n", violations));
+        }
+    }
+
+    private List<NamedQuery> namedQueries() {
+        final List<NamedQuery> namedQueries = new ArrayList<>();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            final NamedQueries declared = entity.getJavaType().getAnnotation(NamedQueries.class);
+            if (declared != null) {
+                namedQueries.addAll(Arrays.asList(declared.value()));
+            }
+            final NamedQuery single = entity.getJavaType().getAnnotation(NamedQuery.class);
+            if (single != null) {
+                namedQueries.add(single);
+            }
+        }
+        return namedQueries;
+    }
+
+    private JsonNode explain(final Connection connection, final String queryName, final String sql,
+                             final ParameterTranslations parameters) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + sql)) {
+            for (Object parameter : parameters.getNamedParameterNames()) {
+                final String name = (String) parameter;
+                if (!SAMPLE_PARAMETERS.containsKey(name)) {
+                    fail("No sample value for the parameter " + name + " of the query " + queryName);
+                }
+                for (int location : parameters.getNamedParameterSqlLocations(name)) {
+                    statement.setObject(location + 1, SAMPLE_PARAMETERS.get(name));
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return objectMapper.readTree(resultSet.getString(1)).get(0).get("Plan");
+            }
+        }
+    }
+
+    private void collectSequentialScans(final Connection connection, final String queryName, final JsonNode node,
+                                        final List<String> violations) throws SQLException {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            final String relation = node.path("Relation Name").asText();
+            final long rows = tableRows(connection, relation);
+            if (rows > MAX_SEQ_SCAN_ROWS) {
+                violations.add(queryName + ": " + relation + " (" + rows + " rows)");
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(connection, queryName, child, violations);
+        }
+    }
+
+    private long tableRows(final Connection connection, final String relation) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT reltuples FROM pg_class WHERE relname = ?")) {
+            statement.setString(1, relation);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? (long) resultSet.getFloat(1) : 0;
+            }
+        }
+    }
+}
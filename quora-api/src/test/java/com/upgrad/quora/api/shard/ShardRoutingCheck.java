@@ -0,0 +1,143 @@
+package com.upgrad.quora.api.shard;
+
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.ShardCopySweeper;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Spreads questions and answers over three shards, and checks that they are stored on the shard of their user, or of
+ * their question, and listed from all the shards. The shard databases are only set up on demand, so this check is not
+ * part of the default test run: mvn -Psetup,shards process-resources in quora-db creates and migrates them, then
+ * mvn -Pshards test runs this check alone.
+ * With three shards, the questions of the users 1026, 1027 and 1025 are stored on the shards 0, 1 and 2.
+ * A question or an answer is committed by the transaction of its shard alone, so a failed create leaves nothing behind.
+ * A deleted user is deleted on shard 0 first: a copy of the user a shard then fails to delete keeps the questions and
+ * answers of the user on that shard listed until the sweep, checked below, deletes them.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.shards.enabled=true",
+        "quora.shards.urls=jdbc:postgresql://localhost:5432/quora_shard1,jdbc:postgresql://localhost:5432/quora_shard2"})
+@AutoConfigureMockMvc
+public class ShardRoutingCheck {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardCopySweeper shardCopySweeper;
+
+    //This check passes when the questions of two users are stored on their own shards, and listed together newest first.
+    @Test
+    public void createQuestionsOnTheShardsOfTheirUsers() throws Exception {
+        final String firstQuestion = createQuestion("database_accesstoken2", "sharded_question1");
+        final String secondQuestion = createQuestion("database_accesstoken", "sharded_question2");
+        assertEquals(1, TimeOrderedUuid.shardOf(UUID.fromString(firstQuestion)));
+        assertEquals(2, TimeOrderedUuid.shardOf(UUID.fromString(secondQuestion)));
+        assertEquals(1, countOnShard(1, "question", firstQuestion));
+        assertEquals(1, countOnShard(2, "question", secondQuestion));
+
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String listing = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final List<String> ids = JsonPath.read(listing, "$[*].id");
+        assertTrue(ids.indexOf(secondQuestion) >= 0 && ids.indexOf(secondQuestion) < ids.indexOf(firstQuestion));
+    }
+
+    //This check passes when an answer is stored on the shard of its question rather than on the shard of its user.
+    @Test
+    public void createAnswerOnTheShardOfItsQuestion() throws Exception {
+        final String question = createQuestion("database_accesstoken2", "sharded_question3");
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/" + question + "/answer/create?answer=sharded_answer")
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String answer = JsonPath.read(mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+        assertEquals(1, TimeOrderedUuid.shardOf(UUID.fromString(answer)));
+        assertEquals(1, countOnShard(1, "answer", answer));
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + question).header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '" + answer + "')]").exists());
+    }
+
+    //This check passes when the question stored before sharding was enabled is still found on shard 0.
+    @Test
+    public void getQuestionStoredBeforeSharding() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-7000-8001-000000001024").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '00000000-0000-7000-8002-000000001024')]").exists());
+    }
+
+    //This check passes when the copy of a user left on a shard after the user was deleted on shard 0 is deleted by the sweep, along with the questions of the user on that shard.
+    @Test
+    public void sweepCopyOfDeletedUser() throws Exception {
+        final int deletedUserId = 199999999;
+        final UUID question = TimeOrderedUuid.generate(1);
+        shardRouter.inShard(1, () -> {
+            jdbcTemplate.update("INSERT INTO users (id, uuid, firstname, lastname, username, email, password, salt)"
+                    + " VALUES (?, ?, 'deleted', 'user', 'deleted_user', 'deleted_user@quora.io', '', '')", deletedUserId, UUID.randomUUID());
+            return jdbcTemplate.update("INSERT INTO question (uuid, content, date, user_id) VALUES (?, 'orphaned_question', now(), ?)",
+                    question, deletedUserId);
+        });
+        assertEquals(1, countOnShard(1, "question", question.toString()));
+
+        shardCopySweeper.sweep();
+
+        assertEquals(0, countOnShard(1, "question", question.toString()));
+        assertEquals(0, (int) shardRouter.inShard(1, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?",
+                Integer.class, deletedUserId)));
+    }
+
+    private String createQuestion(final String accessToken, final String content) throws Exception {
+        final MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=" + content)
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return JsonPath.read(mvc.perform(asyncDispatch(created))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.id");
+    }
+
+    private int countOnShard(final int shard, final String table, final String uuid) {
+        return shardRouter.inShard(shard, () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE uuid = ?",
+                Integer.class, UUID.fromString(uuid)));
+    }
+}
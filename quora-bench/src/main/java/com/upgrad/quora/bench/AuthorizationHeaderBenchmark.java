@@ -0,0 +1,68 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.util.AuthorizationCredentials;
+import com.upgrad.quora.service.util.QuoraUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link AuthorizationCredentials#parse(String)} with the split based header parsing it replaced.
+ * Run with -prof gc to compare the allocation per operation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AuthorizationHeaderBenchmark {
+
+    private final String bearerHeader = QuoraUtil.BEARER_TOKEN + "eyJraWQiOiJhY3RpdmUiLCJ0eXAiOiJKV1QiLCJhbGciOiJIUzUxMiJ9"
+            + ".eyJhdWQiOiJkYXRhYmFzZV91dWlkIiwiaXNzIjoiaHR0cHM6Ly9xdW9yYS5pbyIsImV4cCI6MTUzODU1MjQ1OCwiaWF0IjoxNTM4NTIzNjU4fQ"
+            + ".p1VhxP5m6WKq3Mh2hN9c0dN2m9oQ1VZ2m2zvNfYxJ9Q2b8Zq8oC3y6n3ZP5Gm3WQwJ2n3r1g5c8hQH0e0Lk2Aw";
+
+    private final String basicHeader = QuoraUtil.BASIC_TOKEN
+            + Base64.getEncoder().encodeToString("database_username:database_password".getBytes());
+
+    @Benchmark
+    public String bearerSplit() {
+        String authorization = bearerHeader;
+        String[] bearerToken = authorization.split(QuoraUtil.BEARER_TOKEN);
+        if (bearerToken != null && bearerToken.length > 1) {
+            authorization = bearerToken[1];
+        }
+        return authorization;
+    }
+
+    @Benchmark
+    public String bearerParse() {
+        return AuthorizationCredentials.parse(bearerHeader).getBearerToken();
+    }
+
+    @Benchmark
+    public void basicSplit(final Blackhole blackhole) {
+        byte[] decode = Base64.getDecoder().decode(basicHeader.split(QuoraUtil.BASIC_TOKEN)[1]);
+        String decodedText = new String(decode);
+        String[] decodedArray = decodedText.split(QuoraUtil.COLON);
+        blackhole.consume(decodedArray[0]);
+        blackhole.consume(decodedArray[1]);
+    }
+
+    @Benchmark
+    public void basicParse(final Blackhole blackhole) {
+        final AuthorizationCredentials credentials = AuthorizationCredentials.parse(basicHeader);
+        blackhole.consume(credentials.getUsername());
+        blackhole.consume(credentials.getPassword());
+    }
+}
@@ -0,0 +1,97 @@
+package com.upgrad.quora.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the JSON results of two benchmark runs, e.g. of two commits, benchmark by benchmark:
+ * java -cp quora-bench/target/benchmarks.jar com.upgrad.quora.bench.BenchmarkComparison baseline.json candidate.json
+ * A benchmark regressed when its score got worse by more than the errors of both runs, or when it allocates over 5%
+ * more bytes per operation. The comparison exits with status 1 when a benchmark regressed.
+ */
+public final class BenchmarkComparison {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private static final double ALLOCATION_TOLERANCE = 1.05;
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        final ObjectMapper objectMapper = new ObjectMapper();
+        final Map<String, JsonNode> baseline = byBenchmark(objectMapper.readTree(new File(args[0])));
+        final Map<String, JsonNode> candidate = byBenchmark(objectMapper.readTree(new File(args[1])));
+
+        boolean regressed = false;
+        System.out.printf("%-90s %14s %14s %8s %12s %12s%n", "Benchmark", "Baseline", "Candidate", "Change", "Base B/op", "Cand B/op");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            final JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f%n", entry.getKey(), "new", score(entry.getValue()));
+                continue;
+            }
+            final JsonNode after = entry.getValue();
+            final double change = (score(after) - score(before)) / score(before);
+            final boolean slower = worse(after, score(after) - score(before))
+                    && Math.abs(score(after) - score(before)) > error(before) + error(after);
+            final double allocatedBefore = allocated(before);
+            final double allocatedAfter = allocated(after);
+            final boolean allocatesMore = allocatedAfter > allocatedBefore * ALLOCATION_TOLERANCE;
+            regressed |= slower || allocatesMore;
+            System.out.printf("%-90s %14.3f %14.3f %+7.1f%% %12.1f %12.1f%s%n", entry.getKey(), score(before), score(after),
+                    change * 100, allocatedBefore, allocatedAfter, slower || allocatesMore ? "  REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    private static Map<String, JsonNode> byBenchmark(final JsonNode results) {
+        final Map<String, JsonNode> byBenchmark = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            final StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            final Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                final Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            byBenchmark.put(key.append(" (").append(result.path("mode").asText()).append(')').toString(), result);
+        }
+        return byBenchmark;
+    }
+
+    private static double score(final JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    private static double error(final JsonNode result) {
+        final double error = result.path("primaryMetric").path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    // Throughput is better higher, the times per operation lower
+    private static boolean worse(final JsonNode result, final double difference) {
+        return "thrpt".equals(result.path("mode").asText()) ? difference < 0 : difference > 0;
+    }
+
+    // The secondary metrics of the gc profiler are named with a leading separator, e.g. ·gc.alloc.rate.norm
+    private static double allocated(final JsonNode result) {
+        final Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            final Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return 0;
+    }
+}
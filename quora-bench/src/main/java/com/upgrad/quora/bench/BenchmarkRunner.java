@@ -0,0 +1,40 @@
+package com.upgrad.quora.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The main class of benchmarks.jar: runs the benchmarks as the JMH main class does, taking the same options, but
+ * profiles the allocations with the gc profiler and writes the results as JSON unless told otherwise, so every run
+ * can be compared with an earlier one by {@link BenchmarkComparison}.
+ * The results are written to jmh-result-&lt;label&gt;.json, the label being set with -Dbench.label, e.g. the commit:
+ * java -Dbench.label=$(git rev-parse --short HEAD) -jar quora-bench/target/benchmarks.jar
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue() && !commandLine.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-" + System.getProperty("bench.label", "latest") + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+package com.upgrad.quora.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares inserting questions one by one with ids generated by the table, as the IDENTITY generation did, with
+ * allocating the ids in blocks from a sequence and sending the inserts in JDBC batches, as the entities now do.
+ * Needs a local PostgreSQL, set with -Dbench.db.url, -Dbench.db.user and -Dbench.db.password. The rows go to a
+ * temporary table, so the database is left untouched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    private static final int ROWS = 500;
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Param({"50"})
+    private int batchSize;
+
+    private Connection connection;
+
+    private final Timestamp date = new Timestamp(System.currentTimeMillis());
+
+    @Setup(Level.Trial)
+    public void connect() throws SQLException {
+        final Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("bench.db.user", "postgres"));
+        properties.setProperty("password", System.getProperty("bench.db.password", "password"));
+        properties.setProperty("reWriteBatchedInserts", "true");
+        connection = DriverManager.getConnection(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/quora"), properties);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMPORARY SEQUENCE bench_question_id_seq INCREMENT BY " + ALLOCATION_SIZE);
+            statement.execute("CREATE TEMPORARY TABLE bench_question(id SERIAL PRIMARY KEY, uuid VARCHAR(200) NOT NULL,"
+                    + " content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL, user_id INTEGER NOT NULL)");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE bench_question");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * One round trip per row, each returning the id the table generated
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int identityRowByRow() throws SQLException {
+        int lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_question(uuid, content, date, user_id) VALUES (?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int row = 0; row < ROWS; row++) {
+                bind(insert, row);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getInt(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    /**
+     * One sequence call per block of ids, and one round trip per batch of rows
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int sequenceBatched() throws SQLException {
+        int nextId = 0;
+        int lastId = 0;
+        try (PreparedStatement nextBlock = connection.prepareStatement("SELECT nextval('bench_question_id_seq')");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO bench_question(id, uuid, content, date, user_id) VALUES (?, ?, ?, ?, ?)")) {
+            for (int row = 0; row < ROWS; row++) {
+                if (row % ALLOCATION_SIZE == 0) {
+                    try (ResultSet block = nextBlock.executeQuery()) {
+                        block.next();
+                        nextId = block.getInt(1);
+                    }
+                }
+                lastId = nextId++;
+                insert.setInt(1, lastId);
+                insert.setString(2, UUID.randomUUID().toString());
+                insert.setString(3, "question content " + row);
+                insert.setTimestamp(4, date);
+                insert.setInt(5, 1);
+                insert.addBatch();
+                if ((row + 1) % batchSize == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    private void bind(final PreparedStatement insert, final int row) throws SQLException {
+        insert.setString(1, UUID.randomUUID().toString());
+        insert.setString(2, "question content " + row);
+        insert.setTimestamp(3, date);
+        insert.setInt(4, 1);
+    }
+}
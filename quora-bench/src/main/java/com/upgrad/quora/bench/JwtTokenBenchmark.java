@@ -0,0 +1,45 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JwtTokenProvider#generateToken}, run on every sign in, and the verification of the token it signs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class JwtTokenBenchmark {
+
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider("active", "benchmark-signing-key");
+
+    private final ZonedDateTime issuedAt = ZonedDateTime.now();
+
+    private final ZonedDateTime expiresAt = issuedAt.plusHours(8);
+
+    private final String token = jwtTokenProvider.generateToken("database_uuid", issuedAt, expiresAt);
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken("database_uuid", issuedAt, expiresAt);
+    }
+
+    @Benchmark
+    public boolean verifyToken() {
+        return jwtTokenProvider.verifyToken(token);
+    }
+}
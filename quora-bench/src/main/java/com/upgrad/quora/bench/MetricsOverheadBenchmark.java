@@ -0,0 +1,94 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.metrics.OperationTimingAspect;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost {@link OperationTimingAspect} adds to a call of a business service or DAO method, on a method
+ * doing next to nothing, so the cost is not hidden by the work of the method:
+ * - direct: the method called on the service itself
+ * - proxied: called through a proxy without advice, like the transactional proxy the services and DAOs already have
+ * - timed: called through a proxy timing it, as in the application
+ * The budget checked is 1 microsecond per timed call over proxied: a request makes 2 to 6 timed calls, so within it
+ * the timers stay below 1% of the millisecond the cheapest endpoints take. {@link MetricsOverheadCheck} runs this
+ * benchmark and checks timed against proxied on the hardware it runs on.
+ * Run with -t 8 as well, as the timers of a method are shared by the threads calling it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MetricsOverheadBenchmark {
+
+    // The time a timed call may take over a proxied one
+    static final double BUDGET_NANOS = 1000;
+
+    private AnnotationConfigApplicationContext context;
+
+    private UserBusinessService direct;
+
+    private UserBusinessService proxied;
+
+    private UserBusinessService timed;
+
+    private final UserAuthEntity session = new UserAuthEntity();
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SimpleMeterRegistry.class);
+        context.registerBean(OperationTimingAspect.class);
+        context.refresh();
+
+        direct = new UserBusinessService();
+        final AspectJProxyFactory proxiedFactory = new AspectJProxyFactory(direct);
+        proxiedFactory.setProxyTargetClass(true);
+        proxied = proxiedFactory.getProxy();
+        final AspectJProxyFactory timedFactory = new AspectJProxyFactory(direct);
+        timedFactory.setProxyTargetClass(true);
+        timedFactory.addAspect(context.getBean(OperationTimingAspect.class));
+        timed = timedFactory.getProxy();
+
+        session.setExpiresAt(ZonedDateTime.now().plusDays(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Boolean direct() {
+        return direct.isUserSessionValid(session);
+    }
+
+    @Benchmark
+    public Boolean proxied() {
+        return proxied.isUserSessionValid(session);
+    }
+
+    @Benchmark
+    public Boolean timed() {
+        return timed.isUserSessionValid(session);
+    }
+}
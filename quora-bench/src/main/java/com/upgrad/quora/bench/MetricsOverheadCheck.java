@@ -0,0 +1,61 @@
+package com.upgrad.quora.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs {@link MetricsOverheadBenchmark} with 1 and 8 threads and checks the cost of the operation timers against
+ * their budget: the time a timed call takes over a proxied one, the error of both scores included, has to stay below
+ * 1 microsecond. The scores are written to jmh-result-metrics-overhead-&lt;label&gt;.json, so they are kept with the
+ * results of the other benchmarks, and the check exits with status 1 when the budget is exceeded:
+ * java -Dbench.label=$(git rev-parse --short HEAD) -cp quora-bench/target/benchmarks.jar com.upgrad.quora.bench.MetricsOverheadCheck
+ * The aspect can be measured in a running application as well, by running the load test harness with
+ * -Dload.operation-metrics=false and comparing its report with the one of a run with the timers on.
+ */
+public final class MetricsOverheadCheck {
+
+    private static final int[] THREADS = {1, 8};
+
+    private MetricsOverheadCheck() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        boolean exceeded = false;
+        System.out.printf("%8s %14s %14s %14s %14s%n", "Threads", "Proxied ns", "Timed ns", "Overhead ns", "Budget ns");
+        for (int threads : THREADS) {
+            final Collection<RunResult> results = new Runner(new OptionsBuilder()
+                    .include(MetricsOverheadBenchmark.class.getName() + "\\.(proxied|timed)$")
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-metrics-overhead-" + System.getProperty("bench.label", "latest") + "-t" + threads + ".json")
+                    .build()).run();
+            final Map<String, RunResult> byMethod = new HashMap<>();
+            for (RunResult result : results) {
+                final String benchmark = result.getParams().getBenchmark();
+                byMethod.put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result);
+            }
+            final RunResult proxied = byMethod.get("proxied");
+            final RunResult timed = byMethod.get("timed");
+            // The upper bound of the overhead, so a noisy run does not pass by chance
+            final double overhead = timed.getPrimaryResult().getScore() - proxied.getPrimaryResult().getScore()
+                    + error(timed) + error(proxied);
+            final boolean overBudget = overhead > MetricsOverheadBenchmark.BUDGET_NANOS;
+            exceeded |= overBudget;
+            System.out.printf("%8d %14.1f %14.1f %14.1f %14.0f%s%n", threads, proxied.getPrimaryResult().getScore(),
+                    timed.getPrimaryResult().getScore(), overhead, MetricsOverheadBenchmark.BUDGET_NANOS,
+                    overBudget ? "  OVER BUDGET" : "");
+        }
+        System.exit(exceeded ? 1 : 0);
+    }
+
+    private static double error(final RunResult result) {
+        final double error = result.getPrimaryResult().getScoreError();
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
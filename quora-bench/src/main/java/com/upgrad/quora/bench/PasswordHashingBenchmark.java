@@ -0,0 +1,70 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures both overloads of {@link PasswordCryptographyProvider#encrypt}: hashing a new password with the configured
+ * iterations, as the sign up does, and hashing with a stored salt and the legacy parameters, as the sign in of the
+ * users hashed before the versioned format does.
+ * The iterations are fixed by the iterations parameter rather than calibrated, so the results compare between hosts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"10000"})
+    private int iterations;
+
+    private AnnotationConfigApplicationContext context;
+
+    private PasswordCryptographyProvider passwordCryptographyProvider;
+
+    private String salt;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Collections.<String, Object>singletonMap("quora.password.iterations", iterations)));
+        context.registerBean(PasswordCryptographyProvider.class);
+        context.refresh();
+        passwordCryptographyProvider = context.getBean(PasswordCryptographyProvider.class);
+        salt = passwordCryptographyProvider.encrypt("database_password")[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String[] encryptNewPassword() {
+        return passwordCryptographyProvider.encrypt("database_password");
+    }
+
+    @Benchmark
+    public String encryptWithLegacySalt() {
+        return PasswordCryptographyProvider.encrypt("database_password", salt);
+    }
+}
@@ -0,0 +1,89 @@
+package com.upgrad.quora.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.controller.AnswerController;
+import com.upgrad.quora.api.controller.QuestionController;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of a page of questions and of answers to the generated response models, as the listing
+ * endpoints do, and the serialization of the response models with Jackson, configured as spring boot configures it.
+ * The pages are sized by the size parameter, 100 being the default page size and 500 the largest page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseMappingBenchmark {
+
+    @Param({"100", "500"})
+    private int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<QuestionSummary> questions;
+
+    private List<AnswerSummary> answers;
+
+    private List<QuestionDetailsResponse> questionDetailsResponses;
+
+    private List<AnswerDetailsResponse> answerDetailsResponses;
+
+    @Setup
+    public void setUp() {
+        final ZonedDateTime date = ZonedDateTime.now();
+        questions = new ArrayList<>(size);
+        answers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            questions.add(new QuestionSummary(i, UUID.randomUUID(), "How are the questions of page " + i + " listed?", date));
+            answers.add(new AnswerSummary(i, UUID.randomUUID(), "How are the answers of a question listed?",
+                    "Newest first, a page at a time, answer " + i, date));
+        }
+        questionDetailsResponses = QuestionController.toQuestionDetailsResponses(questions);
+        answerDetailsResponses = AnswerController.toAnswerDetailsResponses(answers);
+    }
+
+    @Benchmark
+    public List<QuestionDetailsResponse> mapQuestions() {
+        return QuestionController.toQuestionDetailsResponses(questions);
+    }
+
+    @Benchmark
+    public List<AnswerDetailsResponse> mapAnswers() {
+        return AnswerController.toAnswerDetailsResponses(answers);
+    }
+
+    @Benchmark
+    public byte[] serializeQuestions() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(questionDetailsResponses);
+    }
+
+    @Benchmark
+    public byte[] serializeAnswers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(answerDetailsResponses);
+    }
+}
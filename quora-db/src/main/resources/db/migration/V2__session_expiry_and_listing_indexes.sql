@@ -0,0 +1,7 @@
+--Expired sessions are purged in batches by their expiry time
+CREATE INDEX IF NOT EXISTS IDX_USER_AUTH_EXPIRES_AT ON USER_AUTH(EXPIRES_AT);
+
+--The question and answer listings are read newest first, a page at a time, from the position of the previous page
+CREATE INDEX IF NOT EXISTS IDX_QUESTION_DATE_ID ON QUESTION(date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS IDX_QUESTION_USER_ID_DATE_ID ON QUESTION(user_id, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS IDX_ANSWER_QUESTION_ID_DATE_ID ON ANSWER(question_id, date DESC, id DESC);
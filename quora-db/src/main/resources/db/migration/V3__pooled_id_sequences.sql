@@ -0,0 +1,14 @@
+--The ids are allocated by the application in blocks of 50 from the value the sequence returns (pooled-lo optimizer),
+--so each sequence is incremented by the block size. The sequences restart past the largest id in use, as rows may
+--have been inserted with explicit ids
+ALTER SEQUENCE USERS_ID_SEQ INCREMENT BY 50;
+SELECT setval('users_id_seq', COALESCE((SELECT MAX(id) FROM USERS), 0) + 1, false);
+
+ALTER SEQUENCE USER_AUTH_ID_SEQ INCREMENT BY 50;
+SELECT setval('user_auth_id_seq', COALESCE((SELECT MAX(id) FROM USER_AUTH), 0) + 1, false);
+
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
+SELECT setval('question_id_seq', COALESCE((SELECT MAX(id) FROM QUESTION), 0) + 1, false);
+
+ALTER SEQUENCE ANSWER_ID_SEQ INCREMENT BY 50;
+SELECT setval('answer_id_seq', COALESCE((SELECT MAX(id) FROM ANSWER), 0) + 1, false);
@@ -0,0 +1,15 @@
+--The uuid columns hold the public ids of the records and are their lookup keys, so they are stored in the 16 byte
+--native type and indexed uniquely. A value which is not a UUID, like the one of the first admin user, is replaced by
+--the UUID made of its MD5 hash, the same value on every database
+ALTER TABLE USERS ALTER COLUMN uuid TYPE UUID USING CASE
+	WHEN uuid::TEXT ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$' THEN uuid::TEXT::UUID ELSE md5(uuid::TEXT)::UUID END;
+ALTER TABLE USER_AUTH ALTER COLUMN uuid TYPE UUID USING CASE
+	WHEN uuid::TEXT ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$' THEN uuid::TEXT::UUID ELSE md5(uuid::TEXT)::UUID END;
+ALTER TABLE QUESTION ALTER COLUMN uuid TYPE UUID USING CASE
+	WHEN uuid::TEXT ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$' THEN uuid::TEXT::UUID ELSE md5(uuid::TEXT)::UUID END;
+ALTER TABLE ANSWER ALTER COLUMN uuid TYPE UUID USING CASE
+	WHEN uuid::TEXT ~* '^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$' THEN uuid::TEXT::UUID ELSE md5(uuid::TEXT)::UUID END;
+
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_KEY ON USERS(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_KEY ON QUESTION(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_KEY ON ANSWER(uuid);
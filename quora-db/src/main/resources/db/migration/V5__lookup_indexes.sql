@@ -0,0 +1,11 @@
+--Every authorized request looks its session up by the access token
+CREATE INDEX IF NOT EXISTS IDX_USER_AUTH_ACCESS_TOKEN ON USER_AUTH(ACCESS_TOKEN);
+
+--Deleting a user cascades to its sessions and answers, found by these indexes rather than by scanning the tables.
+--The questions of a user and the answers of a question are found by the listing indexes, which lead with their column
+CREATE INDEX IF NOT EXISTS IDX_USER_AUTH_USER_ID ON USER_AUTH(USER_ID);
+CREATE INDEX IF NOT EXISTS IDX_ANSWER_USER_ID ON ANSWER(user_id);
+
+--The question search falls back to matching the content with LIKE while its in-memory index is being built
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS IDX_QUESTION_CONTENT_TRGM ON QUESTION USING GIN (lower(content) gin_trgm_ops);
@@ -0,0 +1,4 @@
+--The questions and answers carry a version, incremented by every edit, so concurrent edits and deletes can be
+--made conditional on the version the client last read
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE ANSWER ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+--Every shard allocates the ids of its questions and answers from a range of its own, starting at the index of the
+--shard times 100000000, so the ids are unique across the shards and the second level cache. The index is set by
+--the flyway placeholder shard_index, 0 on shard 0 and on an unsharded database, whose sequences are left as they are
+SELECT setval('question_id_seq', GREATEST(COALESCE((SELECT MAX(id) FROM QUESTION), 0), ${shard_index} * 100000000) + 1, false)
+	WHERE ${shard_index} > 0;
+SELECT setval('answer_id_seq', GREATEST(COALESCE((SELECT MAX(id) FROM ANSWER), 0), ${shard_index} * 100000000) + 1, false)
+	WHERE ${shard_index} > 0;
@@ -0,0 +1,29 @@
+--These records give the tables a production like volume, so the query plans are checked against realistic statistics
+--10000 users, each with 5 sessions and 20 questions, each question with 3 answers
+
+INSERT INTO users(uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
+    SELECT md5('user' || i)::UUID, 'firstname' || i, 'lastname' || i, 'plan_user' || i, 'plan_user' || i || '@quora.io',
+        'password', 'salt', 'country', 'aboutme', 'dob', 'nonadmin', 'contactnumber'
+    FROM generate_series(1, 10000) AS i;
+
+INSERT INTO user_auth(uuid, user_id, access_token, expires_at, login_at, logout_at)
+    SELECT u.uuid, u.id, 'plan_accesstoken' || u.id || '_' || s, now() + (s - 3) * INTERVAL '1 day', now() - INTERVAL '8 hours', NULL
+    FROM users u CROSS JOIN generate_series(1, 5) AS s
+    WHERE u.username LIKE 'plan_user%';
+
+INSERT INTO question(uuid, content, date, user_id)
+    SELECT md5('question' || u.id || '_' || q)::UUID, 'plan question ' || md5(u.id || '_' || q) || ' posted by user ' || u.id,
+        now() - (u.id * 20 + q) * INTERVAL '1 minute', u.id
+    FROM users u CROSS JOIN generate_series(1, 20) AS q
+    WHERE u.username LIKE 'plan_user%';
+
+INSERT INTO answer(uuid, ans, date, user_id, question_id)
+    SELECT md5('answer' || qu.id || '_' || a)::UUID, 'plan answer ' || a || ' to question ' || qu.id,
+        qu.date + a * INTERVAL '1 minute', qu.user_id, qu.id
+    FROM question qu CROSS JOIN generate_series(1, 3) AS a
+    WHERE qu.content LIKE 'plan question%';
+
+ANALYZE users;
+ANALYZE user_auth;
+ANALYZE question;
+ANALYZE answer;
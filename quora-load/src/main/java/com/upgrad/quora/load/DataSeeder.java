@@ -0,0 +1,174 @@
+package com.upgrad.quora.load;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+/**
+ * Seeds the load test database with users, sessions, questions and answers, streamed to each table by a single
+ * COPY FROM STDIN rather than inserted row by row, the id sequences being moved past the seeded ids afterwards.
+ * The seeded records are derived from their index, so the workloads address them without reading them back:
+ * - the user i is load_user&lt;i&gt;, signing in with {@link #PASSWORD}
+ * - the session s of the user i has the access token load_accesstoken_&lt;i&gt;_&lt;s&gt; and expires in 30 days
+ * - the UUIDs of the users and questions are given by {@link #userUuid(long)} and {@link #questionUuid(long)}
+ * All the users share the same password hash, hashed once with the iterations the application is started with, so a
+ * sign in verifies the hash as it would the one of a real user, without rehashing it.
+ */
+public class DataSeeder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataSeeder.class);
+
+    public static final String PASSWORD = "load_password";
+
+    public static final String USERNAME_PREFIX = "load_user";
+
+    public static final String ACCESS_TOKEN_PREFIX = "load_accesstoken_";
+
+    // The UUIDs of every kind of record have a first field of their own, far below the creation times the time
+    // ordered UUIDs of the application start with, and name shard 0
+    private static final long USER_UUID_KIND = 1;
+
+    private static final long SESSION_UUID_KIND = 2;
+
+    private static final long QUESTION_UUID_KIND = 3;
+
+    private static final long ANSWER_UUID_KIND = 4;
+
+    private final Connection connection;
+
+    private final int users;
+
+    private final int sessionsPerUser;
+
+    private final int questionsPerUser;
+
+    private final int answersPerQuestion;
+
+    private final long seededAt = System.currentTimeMillis();
+
+    /**
+     * @param connection         The connection to the load test database
+     * @param users              The number of users seeded
+     * @param sessionsPerUser    The number of active sessions of every user
+     * @param questionsPerUser   The number of questions of every user
+     * @param answersPerQuestion The number of answers to every question
+     */
+    public DataSeeder(final Connection connection, final int users, final int sessionsPerUser, final int questionsPerUser,
+                      final int answersPerQuestion) {
+        this.connection = connection;
+        this.users = users;
+        this.sessionsPerUser = sessionsPerUser;
+        this.questionsPerUser = questionsPerUser;
+        this.answersPerQuestion = answersPerQuestion;
+    }
+
+    public static UUID userUuid(final long user) {
+        return uuidOf(USER_UUID_KIND, user);
+    }
+
+    public static UUID questionUuid(final long question) {
+        return uuidOf(QUESTION_UUID_KIND, question);
+    }
+
+    public static String accessToken(final long user, final int session) {
+        return ACCESS_TOKEN_PREFIX + user + "_" + session;
+    }
+
+    /**
+     * This method seeds the database, unless it was seeded already
+     *
+     * @param salt         The encoded salt of the password of every user
+     * @param passwordHash The hash of {@link #PASSWORD} with the salt, in the versioned format
+     * @return Whether the database was seeded, false if it was seeded by an earlier run
+     */
+    public boolean seed(final String salt, final String passwordHash) throws SQLException, IOException {
+        if (count("SELECT COUNT(*) FROM users WHERE username = '" + USERNAME_PREFIX + "0'") > 0) {
+            LOG.info("The load test database is seeded already, recreate it with mvn -Pload process-resources of quora-db to seed it again");
+            return false;
+        }
+        final boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            // Every table is loaded in one transaction, whose commit need not wait for the WAL flush
+            statement.execute("SET synchronous_commit = off");
+            final long firstUserId = count("SELECT COALESCE(MAX(id), 0) + 1 FROM users");
+            final long firstSessionId = count("SELECT COALESCE(MAX(id), 0) + 1 FROM user_auth");
+            final long firstQuestionId = count("SELECT COALESCE(MAX(id), 0) + 1 FROM question");
+            final long firstAnswerId = count("SELECT COALESCE(MAX(id), 0) + 1 FROM answer");
+            final long questions = (long) users * questionsPerUser;
+            final long answers = questions * answersPerQuestion;
+
+            copy("users(id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)",
+                    users, user -> (firstUserId + user) + "," + userUuid(user) + ",load_first" + user + ",load_last" + user
+                            + "," + USERNAME_PREFIX + user + "," + USERNAME_PREFIX + user + "@quora.io," + passwordHash + "," + salt
+                            + ",India,load user,01-01-1990,nonadmin,9999999999\n");
+            copy("user_auth(id, uuid, user_id, access_token, expires_at, login_at, logout_at)",
+                    (long) users * sessionsPerUser, session -> {
+                        final long user = session / sessionsPerUser;
+                        return (firstSessionId + session) + "," + uuidOf(SESSION_UUID_KIND, session) + "," + (firstUserId + user)
+                                + "," + accessToken(user, (int) (session % sessionsPerUser)) + "," + timestamp(30L * 24 * 3600)
+                                + "," + timestamp(-3600) + ",\n";
+                    });
+            copy("question(id, uuid, content, date, user_id)", questions,
+                    question -> (firstQuestionId + question) + "," + questionUuid(question) + ",load question " + question
+                            + " on the throughput of the listings," + timestamp(-question) + "," + (firstUserId + question % users) + "\n");
+            copy("answer(id, uuid, ans, date, user_id, question_id)", answers, answer -> {
+                final long question = answer / answersPerQuestion;
+                return (firstAnswerId + answer) + "," + uuidOf(ANSWER_UUID_KIND, answer) + ",load answer " + answer
+                        + " to question " + question + "," + timestamp(1 + answer % answersPerQuestion - question)
+                        + "," + (firstUserId + answer * 31 % users) + "," + (firstQuestionId + question) + "\n";
+            });
+
+            // The sequences restart past the seeded ids, as in V3__pooled_id_sequences
+            for (String table : new String[]{"users", "user_auth", "question", "answer"}) {
+                statement.execute("SELECT setval('" + table + "_id_seq', (SELECT MAX(id) FROM " + table + ") + 1, false)");
+            }
+            connection.commit();
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE users");
+            statement.execute("ANALYZE user_auth");
+            statement.execute("ANALYZE question");
+            statement.execute("ANALYZE answer");
+        }
+        return true;
+    }
+
+    private void copy(final String table, final long rows, final LongFunction<String> rowOf) throws SQLException, IOException {
+        final long start = System.nanoTime();
+        final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        final long copied = copyManager.copyIn("COPY " + table + " FROM STDIN WITH (FORMAT csv)", new GeneratedRows(rows, rowOf), 1 << 16);
+        LOG.info("Seeded {} rows into {} in {} ms", copied, table.substring(0, table.indexOf('(')),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long count(final String query) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(query)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private String timestamp(final long secondsFromSeeding) {
+        return new Timestamp(seededAt + secondsFromSeeding * 1000).toString();
+    }
+
+    private static UUID uuidOf(final long kind, final long index) {
+        return new UUID((kind << 16) | 0x7000L, 0x8000000000000000L | index);
+    }
+}
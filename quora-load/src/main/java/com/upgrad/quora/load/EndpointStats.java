@@ -0,0 +1,44 @@
+package com.upgrad.quora.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies and outcomes of the requests of an endpoint in a scenario. The latencies are recorded in
+ * microseconds with three significant digits, from the time the request was scheduled to arrive.
+ */
+final class EndpointStats {
+
+    private final Histogram latencies = new ConcurrentHistogram(3);
+
+    private final LongAdder errors = new LongAdder();
+
+    void record(final long latencyNanos, final boolean error) {
+        latencies.recordValue(Math.max(1, latencyNanos / 1000));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    long getRequests() {
+        return latencies.getTotalCount();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * @param percentile The percentile, e.g. 99.9
+     * @return The latency at the percentile, in milliseconds
+     */
+    double getLatencyMillis(final double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    double getMaxLatencyMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+}
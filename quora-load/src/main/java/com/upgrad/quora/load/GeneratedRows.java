@@ -0,0 +1,53 @@
+package com.upgrad.quora.load;
+
+import java.io.Reader;
+import java.util.function.LongFunction;
+
+/**
+ * The rows of a COPY FROM STDIN, generated one by one as the driver reads them, so millions of rows are streamed to
+ * the database without being held in memory.
+ */
+final class GeneratedRows extends Reader {
+
+    private final long count;
+
+    private final LongFunction<String> rowOf;
+
+    private long next;
+
+    private String row = "";
+
+    private int position;
+
+    /**
+     * @param count The number of rows
+     * @param rowOf Generates the row of the index passed, from 0 to count - 1, ended by a line feed
+     */
+    GeneratedRows(final long count, final LongFunction<String> rowOf) {
+        this.count = count;
+        this.rowOf = rowOf;
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length) {
+        int read = 0;
+        while (read < length) {
+            if (position == row.length()) {
+                if (next == count) {
+                    break;
+                }
+                row = rowOf.apply(next++);
+                position = 0;
+            }
+            final int copied = Math.min(length - read, row.length() - position);
+            row.getChars(position, position + copied, buffer, offset + read);
+            position += copied;
+            read += copied;
+        }
+        return read == 0 && length > 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,78 @@
+package com.upgrad.quora.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reports the results of the scenarios as JSON, one entry per scenario and endpoint with its requests, errors,
+ * throughput and latency percentiles in milliseconds, and as a table on the standard output.
+ */
+final class LoadReport {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final ObjectNode report = objectMapper.createObjectNode();
+
+    private final ArrayNode scenarios;
+
+    /**
+     * @param label  The label of the run, e.g. the commit
+     * @param target The URL of the application loaded
+     * @param seeded The number of records seeded by table
+     */
+    LoadReport(final String label, final String target, final Map<String, Long> seeded) {
+        report.put("label", label);
+        report.put("target", target);
+        final ObjectNode seededNode = report.putObject("seeded");
+        seeded.forEach(seededNode::put);
+        scenarios = report.putArray("scenarios");
+    }
+
+    /**
+     * @param name  The name of a setting of the application loaded, e.g. whether a feature was on
+     * @param value The value of the setting
+     */
+    void setting(final String name, final String value) {
+        report.with("settings").put(name, value);
+    }
+
+    void add(final OpenModelRunner.Result result) {
+        final ObjectNode scenario = scenarios.addObject();
+        scenario.put("name", result.getScenario().getName());
+        scenario.put("ratePerSecond", result.getScenario().getRatePerSecond());
+        scenario.put("seconds", result.getScenario().getSeconds());
+        scenario.put("dropped", result.getDropped());
+        final ArrayNode endpoints = scenario.putArray("endpoints");
+        System.out.printf("%n%s at %.0f/s for %d s%n%-40s %9s %7s %10s %9s %9s %9s %9s%n", result.getScenario().getName(),
+                result.getScenario().getRatePerSecond(), result.getScenario().getSeconds(),
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<String, EndpointStats> entry : result.getEndpoints().entrySet()) {
+            final EndpointStats stats = entry.getValue();
+            final double throughput = stats.getRequests() / result.getElapsedSeconds();
+            final ObjectNode endpoint = endpoints.addObject();
+            endpoint.put("endpoint", entry.getKey());
+            endpoint.put("requests", stats.getRequests());
+            endpoint.put("errors", stats.getErrors());
+            endpoint.put("throughputPerSecond", throughput);
+            final ObjectNode latency = endpoint.putObject("latencyMillis");
+            latency.put("p50", stats.getLatencyMillis(50));
+            latency.put("p99", stats.getLatencyMillis(99));
+            latency.put("p999", stats.getLatencyMillis(99.9));
+            latency.put("max", stats.getMaxLatencyMillis());
+            System.out.printf("%-40s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), stats.getRequests(),
+                    stats.getErrors(), throughput, stats.getLatencyMillis(50), stats.getLatencyMillis(99),
+                    stats.getLatencyMillis(99.9), stats.getMaxLatencyMillis());
+        }
+    }
+
+    void write(final File file) throws IOException {
+        objectMapper.writeValue(file, report);
+        System.out.printf("%nReport written to %s%n", file.getAbsolutePath());
+    }
+}
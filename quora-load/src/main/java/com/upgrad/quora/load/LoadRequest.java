@@ -0,0 +1,58 @@
+package com.upgrad.quora.load;
+
+/**
+ * A request of a workload: the endpoint it is reported under, e.g. GET /answer/all/{questionId}, and the request
+ * sent, its parameters passed in the query string as the endpoints take them, with the media type it accepts.
+ */
+final class LoadRequest {
+
+    private final String method;
+
+    private final String endpoint;
+
+    private final String pathAndQuery;
+
+    private final String authorization;
+
+    private final String accept;
+
+    LoadRequest(final String method, final String endpoint, final String pathAndQuery, final String authorization) {
+        this(method, endpoint, pathAndQuery, authorization, "application/json");
+    }
+
+    /**
+     * @param method        The HTTP method
+     * @param endpoint      The endpoint, the path being templated
+     * @param pathAndQuery  The path and query string sent, below the context path
+     * @param authorization The authorization header sent
+     * @param accept        The accept header sent, application/stream+json for the reactive feeds
+     */
+    LoadRequest(final String method, final String endpoint, final String pathAndQuery, final String authorization,
+                final String accept) {
+        this.method = method;
+        this.endpoint = endpoint;
+        this.pathAndQuery = pathAndQuery;
+        this.authorization = authorization;
+        this.accept = accept;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getEndpoint() {
+        return method + " " + endpoint;
+    }
+
+    String getPathAndQuery() {
+        return pathAndQuery;
+    }
+
+    String getAuthorization() {
+        return authorization;
+    }
+
+    String getAccept() {
+        return accept;
+    }
+}
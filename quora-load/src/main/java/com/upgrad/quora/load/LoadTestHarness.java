@@ -0,0 +1,220 @@
+package com.upgrad.quora.load;
+
+import com.upgrad.quora.api.QuoraApiApplication;
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import com.upgrad.quora.service.util.QuoraUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seeds the load test database, starts the application against it and runs the scenarios one after the other, each
+ * after a warm up which is not reported, then writes the report to load-report-&lt;label&gt;.json.
+ * The scenarios are:
+ * - sign-in-storm: sign ins of random users, each verifying the password hash
+ * - read-heavy-feed: the question listing for 70% of the requests, the answers to a random question for 20% and the
+ * questions of a random user for 10%
+ * - reactive-feed: the mix of read-heavy-feed read from the reactive feeds, 100 rows each as a page of the paginated
+ * listings holds by default. Run at the rate of read-heavy-feed, the two reports compare the streamed feeds with the
+ * MVC controllers endpoint by endpoint
+ * - write-burst: questions created for 60% of the requests and answers to a random question for 40%
+ * The settings are system properties, with their defaults:
+ * - load.db.url, load.db.user, load.db.password: the database created by mvn -Pload process-resources of quora-db
+ * - load.users (1000000), load.sessions-per-user (1), load.questions-per-user (2), load.answers-per-question (2)
+ * - load.password-iterations (10000): the iterations of the seeded password hashes and of the application
+ * - load.target: the URL of an application started separately against the seeded database, including its context
+ * path, e.g. http://localhost:8080/api. The application is started in this JVM when not set
+ * - load.scenarios (sign-in-storm,read-heavy-feed,reactive-feed,write-burst), and for each scenario
+ * load.&lt;scenario&gt;.rate and load.&lt;scenario&gt;.seconds, the mean requests per second and the duration
+ * (100/60, 1000/120, 1000/120 and 300/30)
+ * - load.warmup-seconds (15), load.clients (200), load.drain-seconds (60), load.label (latest)
+ * - load.operation-metrics (true): whether the application started in this JVM times the service and DAO methods.
+ * Two runs, with the timers on and off, measure what the timers cost an endpoint
+ */
+public final class LoadTestHarness {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTestHarness.class);
+
+    private static final String STREAM_JSON = "application/stream+json";
+
+    // The rows of a feed read per request, the default page size of the paginated listings
+    private static final int FEED_ROWS = 100;
+
+    private LoadTestHarness() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final String dbUrl = System.getProperty("load.db.url", "jdbc:postgresql://localhost:5432/quora_load?reWriteBatchedInserts=true");
+        final String dbUser = System.getProperty("load.db.user", "postgres");
+        final String dbPassword = System.getProperty("load.db.password", "password");
+        final int users = Integer.getInteger("load.users", 1_000_000);
+        final int sessionsPerUser = Integer.getInteger("load.sessions-per-user", 1);
+        final int questionsPerUser = Integer.getInteger("load.questions-per-user", 2);
+        final int answersPerQuestion = Integer.getInteger("load.answers-per-question", 2);
+        final int passwordIterations = Integer.getInteger("load.password-iterations", 10000);
+        final long questions = (long) users * questionsPerUser;
+        final boolean operationMetrics = Boolean.parseBoolean(System.getProperty("load.operation-metrics", "true"));
+
+        try (Connection connection = DriverManager.getConnection(dbUrl, dbUser, dbPassword)) {
+            final String[] password = hashPassword(passwordIterations);
+            new DataSeeder(connection, users, sessionsPerUser, questionsPerUser, answersPerQuestion).seed(password[0], password[1]);
+        }
+        final Map<String, Long> seeded = new LinkedHashMap<>();
+        seeded.put("users", (long) users);
+        seeded.put("sessions", (long) users * sessionsPerUser);
+        seeded.put("questions", questions);
+        seeded.put("answers", questions * answersPerQuestion);
+
+        ConfigurableApplicationContext application = null;
+        String target = System.getProperty("load.target");
+        try {
+            if (target == null) {
+                application = SpringApplication.run(QuoraApiApplication.class,
+                        "--spring.datasource.url=" + dbUrl,
+                        "--spring.datasource.username=" + dbUser,
+                        "--spring.datasource.password=" + dbPassword,
+                        "--server.port=0",
+                        "--management.server.port=0",
+                        "--quora.password.iterations=" + passwordIterations,
+                        "--quora.metrics.operations-enabled=" + operationMetrics,
+                        // The signup filters are sized for the seeded users rather than for the default volume
+                        "--quora.signup-filter.expected-users=" + Math.max(1_000_000L, 2L * users));
+                target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port")
+                        + application.getEnvironment().getProperty("server.servlet.contextPath", "");
+            }
+            LOG.info("Loading {}", target);
+
+            final OpenModelRunner runner = new OpenModelRunner(target, Integer.getInteger("load.clients", 200),
+                    Integer.getInteger("load.drain-seconds", 60));
+            final int warmupSeconds = Integer.getInteger("load.warmup-seconds", 15);
+            final String label = System.getProperty("load.label", "latest");
+            final LoadReport report = new LoadReport(label, target, seeded);
+            if (application != null) {
+                report.setting("operationMetrics", String.valueOf(operationMetrics));
+            }
+            for (Scenario scenario : scenarios(System.getProperty("load.scenarios", "sign-in-storm,read-heavy-feed,reactive-feed,write-burst").split(","),
+                    users, sessionsPerUser, questions)) {
+                if (warmupSeconds > 0) {
+                    LOG.info("Warming up {} for {} s", scenario.getName(), warmupSeconds);
+                    runner.run(scenario, warmupSeconds);
+                }
+                LOG.info("Running {} at {}/s for {} s", scenario.getName(), scenario.getRatePerSecond(), scenario.getSeconds());
+                report.add(runner.run(scenario, scenario.getSeconds()));
+            }
+            report.write(new File("load-report-" + label + ".json"));
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    /**
+     * This method hashes the password of the seeded users as the application hashes it with the iterations passed
+     *
+     * @param iterations The iterations of the hash
+     * @return String array with [0] encoded salt [1] hashed password in the versioned format
+     */
+    private static String[] hashPassword(final int iterations) {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("load",
+                    Collections.<String, Object>singletonMap("quora.password.iterations", iterations)));
+            context.registerBean(PasswordCryptographyProvider.class);
+            context.refresh();
+            return context.getBean(PasswordCryptographyProvider.class).encrypt(DataSeeder.PASSWORD);
+        }
+    }
+
+    private static List<Scenario> scenarios(final String[] names, final int users, final int sessionsPerUser, final long questions) {
+        final AtomicLong written = new AtomicLong();
+        final List<Scenario> scenarios = new ArrayList<>(names.length);
+        for (String name : names) {
+            final String scenarioName = name.trim();
+            final double rate = Double.parseDouble(System.getProperty("load." + scenarioName + ".rate", defaultRate(scenarioName)));
+            final int seconds = Integer.getInteger("load." + scenarioName + ".seconds", defaultSeconds(scenarioName));
+            switch (scenarioName) {
+                case "sign-in-storm":
+                    scenarios.add(new Scenario(scenarioName, rate, seconds, random -> {
+                        final String credentials = DataSeeder.USERNAME_PREFIX + random.nextInt(users) + ":" + DataSeeder.PASSWORD;
+                        return new LoadRequest("POST", "/user/signin", "/user/signin", QuoraUtil.BASIC_TOKEN
+                                + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+                    }));
+                    break;
+                case "read-heavy-feed":
+                    scenarios.add(new Scenario(scenarioName, rate, seconds, random -> {
+                        final String accessToken = DataSeeder.accessToken(random.nextInt(users), random.nextInt(sessionsPerUser));
+                        final int draw = random.nextInt(100);
+                        if (draw < 70) {
+                            return new LoadRequest("GET", "/question/all", "/question/all", accessToken);
+                        }
+                        if (draw < 90) {
+                            return new LoadRequest("GET", "/answer/all/{questionId}",
+                                    "/answer/all/" + DataSeeder.questionUuid(nextLong(random, questions)), accessToken);
+                        }
+                        return new LoadRequest("GET", "/question/all/{userId}",
+                                "/question/all/" + DataSeeder.userUuid(random.nextInt(users)), accessToken);
+                    }));
+                    break;
+                case "reactive-feed":
+                    scenarios.add(new Scenario(scenarioName, rate, seconds, random -> {
+                        final String accessToken = DataSeeder.accessToken(random.nextInt(users), random.nextInt(sessionsPerUser));
+                        final int draw = random.nextInt(100);
+                        if (draw < 70) {
+                            return new LoadRequest("GET", "/reactive/question/all", "/reactive/question/all?limit=" + FEED_ROWS,
+                                    accessToken, STREAM_JSON);
+                        }
+                        if (draw < 90) {
+                            return new LoadRequest("GET", "/reactive/answer/all/{questionId}", "/reactive/answer/all/"
+                                    + DataSeeder.questionUuid(nextLong(random, questions)) + "?limit=" + FEED_ROWS, accessToken, STREAM_JSON);
+                        }
+                        return new LoadRequest("GET", "/reactive/question/all/{userId}", "/reactive/question/all/"
+                                + DataSeeder.userUuid(random.nextInt(users)) + "?limit=" + FEED_ROWS, accessToken, STREAM_JSON);
+                    }));
+                    break;
+                case "write-burst":
+                    scenarios.add(new Scenario(scenarioName, rate, seconds, random -> {
+                        final String accessToken = DataSeeder.accessToken(random.nextInt(users), random.nextInt(sessionsPerUser));
+                        if (random.nextInt(100) < 60) {
+                            return new LoadRequest("POST", "/question/create",
+                                    "/question/create?content=load_burst_question_" + written.incrementAndGet(), accessToken);
+                        }
+                        return new LoadRequest("POST", "/question/{questionId}/answer/create",
+                                "/question/" + DataSeeder.questionUuid(nextLong(random, questions))
+                                        + "/answer/create?answer=load_burst_answer_" + written.incrementAndGet(), accessToken);
+                    }));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scenario " + scenarioName);
+            }
+        }
+        return scenarios;
+    }
+
+    private static String defaultRate(final String scenario) {
+        return "sign-in-storm".equals(scenario) ? "100" : scenario.endsWith("-feed") ? "1000" : "300";
+    }
+
+    private static int defaultSeconds(final String scenario) {
+        return "sign-in-storm".equals(scenario) ? 60 : scenario.endsWith("-feed") ? 120 : 30;
+    }
+
+    private static long nextLong(final Random random, final long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+}
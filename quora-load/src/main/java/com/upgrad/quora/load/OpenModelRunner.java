@@ -0,0 +1,163 @@
+package com.upgrad.quora.load;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the scenarios as open workloads: the requests arrive at the times drawn for them, following a Poisson process
+ * of the rate of the scenario, whether or not the earlier requests were answered, as the requests of independent
+ * users do. A request is sent by the first free client thread, and its latency is measured from its arrival time, so
+ * the time it waited for a client thread while the application fell behind is counted rather than hidden.
+ */
+final class OpenModelRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OpenModelRunner.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String target;
+
+    private final int clients;
+
+    private final int drainSeconds;
+
+    private final Random random = new Random();
+
+    /**
+     * @param target       The URL of the application, including its context path
+     * @param clients      The number of client threads, and of connections kept alive to the application
+     * @param drainSeconds The time the requests still pending at the end of a scenario are waited for
+     */
+    OpenModelRunner(final String target, final int clients, final int drainSeconds) {
+        this.target = target;
+        this.clients = clients;
+        this.drainSeconds = drainSeconds;
+        // The connections kept alive per host, 5 by default
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+    }
+
+    /**
+     * This method runs a scenario for its duration and waits for its pending requests
+     *
+     * @param scenario The scenario
+     * @param seconds  The duration, the one of the scenario or the one of its warm up
+     * @return The results of the scenario, by endpoint
+     */
+    Result run(final Scenario scenario, final int seconds) throws InterruptedException {
+        final Result result = new Result(scenario);
+        final ThreadPoolExecutor clientThreads = new ThreadPoolExecutor(clients, clients, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        final double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / scenario.getRatePerSecond();
+        long arrival = start;
+        while (true) {
+            arrival += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+            if (arrival >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = arrival - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final LoadRequest request = scenario.nextRequest(random);
+            final long arrivedAt = arrival;
+            clientThreads.execute(() -> {
+                final boolean error = !send(request);
+                result.statsOf(request.getEndpoint()).record(System.nanoTime() - arrivedAt, error);
+            });
+        }
+        clientThreads.shutdown();
+        if (!clientThreads.awaitTermination(drainSeconds, TimeUnit.SECONDS)) {
+            final List<Runnable> pending = clientThreads.shutdownNow();
+            result.dropped = pending.size();
+            LOG.warn("{} requests of {} were still pending after {} s, the application could not keep up with the rate",
+                    pending.size(), scenario.getName(), drainSeconds);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * This method sends a request and reads its response whole, so the connection is kept alive for the next request
+     *
+     * @param request The request
+     * @return Whether the request succeeded, false for an error status or if it failed to be sent
+     */
+    private boolean send(final LoadRequest request) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(target + request.getPathAndQuery()).openConnection();
+            connection.setRequestMethod(request.getMethod());
+            connection.setRequestProperty("authorization", request.getAuthorization());
+            connection.setRequestProperty("Accept", request.getAccept());
+            if ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+                connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(0);
+            }
+            final int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    while (body.read(buffer) >= 0) {
+                        // The body is discarded, only its transfer is timed
+                    }
+                }
+            }
+            return status < 400;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The results of a scenario, by endpoint
+     */
+    static final class Result {
+
+        private final Scenario scenario;
+
+        private final Map<String, EndpointStats> endpoints = new ConcurrentSkipListMap<>();
+
+        private long elapsedNanos;
+
+        private int dropped;
+
+        private Result(final Scenario scenario) {
+            this.scenario = scenario;
+        }
+
+        private EndpointStats statsOf(final String endpoint) {
+            return endpoints.computeIfAbsent(endpoint, key -> new EndpointStats());
+        }
+
+        Scenario getScenario() {
+            return scenario;
+        }
+
+        Map<String, EndpointStats> getEndpoints() {
+            return endpoints;
+        }
+
+        double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        int getDropped() {
+            return dropped;
+        }
+    }
+}
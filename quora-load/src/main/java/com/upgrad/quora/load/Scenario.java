@@ -0,0 +1,48 @@
+package com.upgrad.quora.load;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * A scripted workload: requests arriving at a mean rate for a duration, each drawn by the scenario from the mix of
+ * requests it scripts.
+ */
+final class Scenario {
+
+    private final String name;
+
+    private final double ratePerSecond;
+
+    private final int seconds;
+
+    private final Function<Random, LoadRequest> nextRequest;
+
+    /**
+     * @param name          The name the scenario is reported under
+     * @param ratePerSecond The mean number of requests arriving per second
+     * @param seconds       The duration of the scenario
+     * @param nextRequest   Draws the next request of the scenario
+     */
+    Scenario(final String name, final double ratePerSecond, final int seconds, final Function<Random, LoadRequest> nextRequest) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.seconds = seconds;
+        this.nextRequest = nextRequest;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    int getSeconds() {
+        return seconds;
+    }
+
+    LoadRequest nextRequest(final Random random) {
+        return nextRequest.apply(random);
+    }
+}
@@ -1,5 +1,6 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.User;
 import com.upgrad.quora.service.entity.UserAuthEntity;
@@ -11,6 +12,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 public class AdminBusinessService {
 
@@ -20,22 +23,35 @@ public class AdminBusinessService {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private UserSessionCache userSessionCache;
+
+    @Autowired
+    private SignupAvailabilityIndex signupAvailabilityIndex;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
 
     /**
      * This method is used to a delete user
      * checks for all the conditions and provides necessary response messages
      *
      * @param userId        Is the uuid of the user to be deleted from db
-     * @param authorization holds the Bearer access token for authenticating the user
      * @return the uuid of the user that is deleted from db
      * @throws AuthorizationFailedException If access token does not exit, if user has signed out, if non-admin tries to delete
      * @throws UserNotFoundException        If answer with uuid which is to be edited does not exist in the database
      */
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public String deleteUser(String userId, String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out");
+    public String deleteUser(String userId) throws AuthorizationFailedException, UserNotFoundException {
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out");
 
         //check if logged user is admin or not
         if (!QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole())) {
@@ -45,7 +61,14 @@ public class AdminBusinessService {
         if (user == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
         }
+        // The questions of the user are deleted along by the database, so they are looked up beforehand
+        final List<Integer> questionIds = questionDao.getQuestionIdsByUserId(user.getId());
         userDao.deleteUser(user);
+        questionSearchIndex.questionsRemoved(questionIds);
+        // The questions and answers of the user are spread over the listings, so all of them change
+        listingVersions.allChanged();
+        userSessionCache.invalidateUser(user.getId());
+        signupAvailabilityIndex.userRemoved();
         return user.getUuid();
 
     }
@@ -1,20 +1,36 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.CursorPage;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.RowStream;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.dto.AnswerRevision;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.BulkItemResult;
 import com.upgrad.quora.service.entity.Answer;
 import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.VersionConflictException;
 import com.upgrad.quora.service.util.QuoraUtil;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
 
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class AnswerBusinessService {
@@ -27,23 +43,47 @@ public class AnswerBusinessService {
 
     @Autowired
     private UserBusinessService userBusinessService;
+
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void initialize() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * This method is used to create answer for questions asked by users
      *
      * @param answer        for the particular question
      * @param questionId    for the question which needs to be answered
-     * @param authorization holds the Bearer access token for authenticating
      * @return creates the answer for particular question by Id
      * @throws AuthorizationFailedException If the access token provided by the user does not exist
      *                                      in the database, If the user has signed out
      * @throws InvalidQuestionException     If the question uuid entered by the user whose answer
      *                                      is to be posted does not exist in the database
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Answer createAnswer(final Answer answer, final String questionId, final String authorization) throws
+    public Answer createAnswer(final Answer answer, final String questionId) throws
             AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to post an answer");
+        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to post an answer");
 
         Question questionEntity = questionDao.getQuestionByUUID(questionId);
         if (questionEntity == null) {
@@ -53,91 +93,203 @@ public class AnswerBusinessService {
             */
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
         }
+        // The UUID names the shard the answer is stored on, the shard of its question
+        answer.setUuid(TimeOrderedUuid.generate(questionEntity.getShard()).toString());
         answer.setQuestion(questionEntity);
         answer.setUser(userAuthEntity.getUser());
-        return answerDao.createAnswer(answer);
+        // Committed by the transaction of the shard alone, along with the listing version
+        return shardRouter.writeInShard(questionEntity.getShard(), () -> {
+            listingVersions.answersChanged(questionEntity.getUuid());
+            return answerDao.createAnswer(answer);
+        });
+    }
+
+    /**
+     * This method validates the user once, looks the question up once, and stores many answers to the question
+     * The answers are inserted in chunks, each in a transaction of its own, so the outcome is reported per answer
+     *
+     * @param answers    The answers, with their content and date set
+     * @param questionId The UUID of the question which is answered
+     * @return The outcome of every answer, in the order of the answers
+     * @throws AuthorizationFailedException If the access token provided by the user does not exist
+     *                                      in the database, If the user has signed out
+     * @throws InvalidQuestionException     If the question uuid entered by the user does not exist in the database
+     * @throws InvalidBulkRequestException  If more answers are posted at once than allowed
+     */
+    public List<BulkItemResult> createAnswers(final List<Answer> answers, final String questionId)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidBulkRequestException {
+        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to post an answer");
+        bulkWriter.checkItemCount(answers.size());
+        final Question questionEntity = questionDao.getQuestionByUUID(questionId);
+        if (questionEntity == null) {
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+        for (Answer answer : answers) {
+            answer.setUuid(TimeOrderedUuid.generate(questionEntity.getShard()).toString());
+            answer.setQuestion(questionEntity);
+            answer.setUser(userAuthEntity.getUser());
+        }
+        final List<BulkItemResult> results = bulkWriter.write(answers, Answer::getUuid, questionEntity.getShard(), answerDao::createAnswers);
+        if (results.stream().anyMatch(BulkItemResult::isCreated)) {
+            listingVersions.answersChanged(questionEntity.getUuid());
+        }
+        return results;
+    }
+    /**
+     * This method validates the authorization token and returns the ETag of the answer listing of a question
+     * It reads no answer, so it is checked against the ETag held by the client before the listing is read
+     *
+     * @param questionId The UUID of the question whose answers are listed
+     * @return The current ETag of the answer listing, null if the ETags are disabled
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    public String getAllAnswersToQuestionETag(final String questionId) throws AuthorizationFailedException {
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get the answers");
+        return listingVersions.answersETag(questionId);
     }
+
     /**
-     * This method fetches all the answers posted to a Specific question referred by questionId
+     * This method fetches a page of the answers posted to a Specific question referred by questionId
      * after validating the authorization token
      *
-     * @param questionId    The UUID of the question for which answers are to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return The list of all answers posted for a specific question
+     * @param questionId The UUID of the question for which answers are to be retrieved
+     * @param cursor     The cursor of the page to be retrieved, null for the first page
+     * @param limit      The page size requested, null for the default one
+     * @return A page of the answers posted for a specific question, newest first
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
      */
-    public List<Answer> getAllAnswersToQuestion(String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to get the answers");
-        final Question question = questionDao.getQuestionByUUID(questionId);
-        if (question == null) {
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public CursorPage<AnswerSummary> getAllAnswersToQuestion(String questionId, final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidCursorException {
+        // Answered with an ETag bumped by the commits on the primary, so a lagging replica's rows must not be read
+        readYourWrites.readFromPrimary();
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get the answers");
+        final Integer id = questionDao.getQuestionIdByUUID(questionId);
+        if (id == null) {
             throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
         }
-        return answerDao.getAllAnswersByQuestionId(question.getId());
+        final PageCursor after = PageCursor.decode(cursor);
+        final int pageSize = paginationSettings.resolveLimit(limit);
+        return CursorPage.of(answerDao.getAnswersByQuestionIdPage(questionId, id, after, pageSize + 1), pageSize,
+                answer -> PageCursor.of(answer.getDate(), answer.getId()));
+    }
+
+    /**
+     * This method validates the authorization token and returns all the answers posted to a Specific question
+     * referred by questionId as a stream, read row by row while it is consumed rather than loaded at once
+     *
+     * @param questionId The UUID of the question for which answers are to be retrieved
+     * @return The answers posted for the question, newest first, read when the stream is consumed
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
+     */
+    public RowStream<AnswerSummary> streamAllAnswersToQuestion(String questionId)
+            throws AuthorizationFailedException, InvalidQuestionException {
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get the answers");
+        final Integer id = questionDao.getQuestionIdByUUID(questionId);
+        if (id == null) {
+            throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
+        }
+        final int fetchSize = paginationSettings.getStreamFetchSize();
+        return consumer -> readOnlyTransaction.execute(status -> {
+            readYourWrites.readFromPrimary();
+            answerDao.streamAnswersByQuestionId(questionId, id, fetchSize, consumer);
+            return null;
+        });
     }
 
     /**
      * This method validates Authorization for the user and returns the Id of the deleted answer
+     * The answer is deleted by a single conditional statement, the reason of a failure being looked up afterwards
      *
-     * @param answerId      UUid for particular answer
-     * @param authorization holds the Bearer access token for authenticating
+     * @param answerId        UUid for particular answer
+     * @param expectedVersion The version the answer has to be at, as sent in If-Match, null for any version
      * @return returns id of the answer
      * @throws AuthorizationFailedException If the access token provided by the user does not exist in the database,
      *                                      If the user has signed out, if the user who is not the owner of the answer
      *                                      or the role of the user is not‘admin’ and tries to delete the answer
      * @throws AnswerNotFoundException      If the answer with uuid which is to be deleted does not exist in the database
+     * @throws VersionConflictException     If the answer is not at the expected version
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public String deleteAnswer(String answerId, String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException, AnswerNotFoundException {
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to delete an answer");
-
-        Answer answer = answerDao.getAnswerByUUID(answerId);
-        // If the answer with uuid which is to be deleted does not exist in the database
-        if (answer == null) {
-            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-        }
-        if (QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole())
-                || answer.getUser().getId() == userAuthEntity.getUser().getId()) {
-            answerDao.deleteAnswer(answer);
-            return answer.getUuid();
+    public String deleteAnswer(String answerId, final Integer expectedVersion)
+            throws AuthorizationFailedException, InvalidQuestionException, AnswerNotFoundException, VersionConflictException {
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to delete an answer");
+        final boolean admin = QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole());
+        final UUID uuid = TimeOrderedUuid.parse(answerId);
+        // Committed by the transaction of the shard holding the answer alone, along with the listing version
+        final AnswerRevision deletedAnswer = uuid == null ? null : shardRouter.writeOnShardOf(uuid, (shard, fallback) -> {
+            final AnswerRevision deleted = answerDao.deleteAnswer(uuid, userAuthEntity.getUser().getId(), admin, expectedVersion);
+            if (deleted != null) {
+                listingVersions.answersChanged(deleted.getQuestionUuid());
+            }
+            return deleted;
+        });
+        if (deletedAnswer == null) {
+            /*
+             * Only the answer owner or admin can delete the answer. Therefore, if the user who is not the owner of the answer or the role of the user is ‘nonadmin’
+             * and tries to delete the answer throw "AuthorizationFailedException"
+             */
+            throw rejectedWrite(answerId, userAuthEntity, admin, "Only the answer owner or admin can delete the answer");
         }
-        /*
-         * Only the answer owner or admin can delete the answer. Therefore, if the user who is not the owner of the answer or the role of the user is ‘nonadmin’
-         * and tries to delete the answer throw "AuthorizationFailedException"
-         */
-        throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
+        return deletedAnswer.getUuid();
     }
 
     /**
      * This method is used to edit answer content
      * checks for all the conditions and provides necessary response messages
+     * The answer is edited by a single conditional statement, the reason of a failure being looked up afterwards
      *
-     * @param answer        entity that needed to be updated
-     * @param answerId      Is the uuid of the answer that needed to be edited
-     * @param authorization holds the Bearer access token for authenticating
-     * @return the answer after updating the content
+     * @param answer          entity that needed to be updated
+     * @param answerId        Is the uuid of the answer that needed to be edited
+     * @param expectedVersion The version the answer has to be at, as sent in If-Match, null for any version
+     * @return the answer after updating the content, with its new version
      * @throws AuthorizationFailedException if access token does not exit, if user has signed out, if non-owner tries to edit
      * @throws AnswerNotFoundException      if answer with uuid which is to be edited does not exist in the database
+     * @throws VersionConflictException     if the answer is not at the expected version
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Answer editAnswerContent(final Answer answer, final String answerId, final String authorization)
-            throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to edit an answer");
-        Answer answerEntity = answerDao.getAnswerByUUID(answerId);
-        // If the answer with uuid which is to be edited does not exist in the database, throw 'AnswerNotFoundException'
-        if (answerEntity == null) {
-            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-        } else {
-            // if the user who is not the owner of the answer tries to edit the answer throw "AuthorizationFailedException"
-            if (answerEntity.getUser().getId() != userAuthEntity.getUser().getId()) {
-                throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
+    public AnswerRevision editAnswerContent(final Answer answer, final String answerId, final Integer expectedVersion)
+            throws AuthorizationFailedException, AnswerNotFoundException, VersionConflictException {
+        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to edit an answer");
+        final UUID uuid = TimeOrderedUuid.parse(answerId);
+        // Committed by the transaction of the shard holding the answer alone, along with the listing version
+        final AnswerRevision editedAnswer = uuid == null ? null : shardRouter.writeOnShardOf(uuid, (shard, fallback) -> {
+            final AnswerRevision edited = answerDao.editAnswerContent(uuid, answer.getAns(), userAuthEntity.getUser().getId(), expectedVersion);
+            if (edited != null) {
+                listingVersions.answersChanged(edited.getQuestionUuid());
             }
+            return edited;
+        });
+        if (editedAnswer == null) {
+            // if the user who is not the owner of the answer tries to edit the answer throw "AuthorizationFailedException"
+            throw rejectedWrite(answerId, userAuthEntity, false, "Only the answer owner can edit the answer");
+        }
+        return editedAnswer;
+    }
+
+    /**
+     * Finds out why a conditional edit or delete of an answer changed nothing, checking the conditions in the order
+     * the errors are reported in
+     *
+     * @param answerId       The UUID of the answer
+     * @param userAuthEntity The session of the user
+     * @param admin          Whether an admin may change any answer
+     * @param ownerMessage   The message of the error reported to a user who may not change the answer
+     * @return The error to be thrown when the answer was only at another version
+     * @throws AuthorizationFailedException If the user may not change the answer
+     * @throws AnswerNotFoundException      If no answer matched the UUID
+     */
+    private VersionConflictException rejectedWrite(final String answerId, final UserAuthEntity userAuthEntity, final boolean admin,
+                                                   final String ownerMessage) throws AuthorizationFailedException, AnswerNotFoundException {
+        final Answer answer = answerDao.getAnswerByUUID(answerId);
+        // If the answer with uuid which is to be changed does not exist in the database, throw 'AnswerNotFoundException'
+        if (answer == null) {
+            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+        }
+        if (!admin && !answer.getUser().getId().equals(userAuthEntity.getUser().getId())) {
+            throw new AuthorizationFailedException("ATHR-003", ownerMessage);
         }
-        answerEntity.setAns(answer.getAns());
-        return answerDao.updateAnswerContent(answerEntity);
+        return new VersionConflictException("VER-001", "The answer has been changed since the version entered in If-Match");
     }
 }
@@ -0,0 +1,109 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.dto.BulkItemResult;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Persists the items of a bulk request in chunks, each chunk being written by batched inserts in a transaction of its
+ * own on the shard holding the items, so neither a transaction nor the persistence context grows with the size of the request. Every item is
+ * validated beforehand, and the outcome of every item is reported at its position in the request
+ */
+@Component
+public class BulkWriter {
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int maxItems;
+
+    @Value("${quora.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * This method refuses a bulk request holding more items than allowed, before any item is looked at
+     *
+     * @param itemCount The number of items in the request
+     * @throws InvalidBulkRequestException If the request holds more items than allowed
+     */
+    public void checkItemCount(final int itemCount) throws InvalidBulkRequestException {
+        if (itemCount > maxItems) {
+            throw new InvalidBulkRequestException("BLK-001", "A bulk request can hold at most " + maxItems + " items");
+        }
+    }
+
+    /**
+     * This method validates the items and persists the valid ones chunk by chunk. A chunk failing to be written is
+     * rolled back on its own, its items being reported as rejected while the other chunks are kept
+     *
+     * @param items       The items, with all their fields set
+     * @param uuidOf      Reads the UUID of an item
+     * @param shard       The shard the items are stored on
+     * @param chunkWriter Persists a chunk of valid items, within the transaction of the chunk
+     * @param <T>         The type of the items
+     * @return The outcome of every item, in the order of the items
+     */
+    public <T> List<BulkItemResult> write(final List<T> items, final Function<T, String> uuidOf, final int shard,
+                                         final Consumer<List<T>> chunkWriter) {
+        final BulkItemResult[] results = new BulkItemResult[items.size()];
+        final List<Integer> validIndexes = new ArrayList<>(items.size());
+        for (int index = 0; index < items.size(); index++) {
+            final Set<ConstraintViolation<T>> violations = validator.validate(items.get(index));
+            if (violations.isEmpty()) {
+                validIndexes.add(index);
+            } else {
+                results[index] = BulkItemResult.rejected(index, "BLK-002", describe(violations));
+            }
+        }
+        for (int from = 0; from < validIndexes.size(); from += chunkSize) {
+            final List<Integer> chunkIndexes = validIndexes.subList(from, Math.min(from + chunkSize, validIndexes.size()));
+            final List<T> chunk = new ArrayList<>(chunkIndexes.size());
+            for (Integer index : chunkIndexes) {
+                chunk.add(items.get(index));
+            }
+            try {
+                shardRouter.writeInShard(shard, () -> {
+                    chunkWriter.accept(chunk);
+                    return null;
+                });
+                for (Integer index : chunkIndexes) {
+                    results[index] = BulkItemResult.created(index, uuidOf.apply(items.get(index)));
+                }
+            } catch (DataAccessException | TransactionException e) {
+                for (Integer index : chunkIndexes) {
+                    results[index] = BulkItemResult.rejected(index, "BLK-003", "The item could not be saved, along with the items written in the same batch");
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static <T> String describe(final Set<ConstraintViolation<T>> violations) {
+        final StringBuilder sb = new StringBuilder();
+        for (ConstraintViolation<T> violation : violations) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(violation.getPropertyPath()).append(" ").append(violation.getMessage());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server side signing keys for the JWT access tokens, identified by key id.
+ * Keys are configured as a comma separated list of {@code keyId:secret} pairs in {@code quora.jwt.signing-keys},
+ * shared by every instance. The first one is the active key signing new tokens, the others are retired keys only
+ * verified, kept in the list until every token signed with them has expired. A key is rotated by putting the new
+ * key first and restarting the instances.
+ * Without configuration a random key is generated at startup, which only the instance generating it can verify.
+ * That is refused with {@code quora.jwt.verification} set to {@code local} unless the dev profile is active.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final String KEY_SEPARATOR = ",";
+
+    private static final String LOCAL_VERIFICATION = "local";
+
+    private static final String DEV_PROFILE = "dev";
+
+    @Value("${quora.jwt.signing-keys:}")
+    private String configuredKeys;
+
+    @Value("${quora.jwt.verification:database}")
+    private String verificationMode;
+
+    @Autowired
+    private Environment environment;
+
+    private final Map<String, JwtTokenProvider> providers = new ConcurrentHashMap<>();
+
+    private volatile JwtTokenProvider activeProvider;
+
+    @PostConstruct
+    public void initialize() {
+        if (configuredKeys == null || configuredKeys.trim().isEmpty()) {
+            if (LOCAL_VERIFICATION.equalsIgnoreCase(verificationMode) && !environment.acceptsProfiles(DEV_PROFILE)) {
+                throw new IllegalStateException("quora.jwt.signing-keys must be configured for local verification, "
+                        + "a generated key is only known to the instance generating it");
+            }
+            generateKey();
+            return;
+        }
+        for (String configuredKey : configuredKeys.split(KEY_SEPARATOR)) {
+            final int separator = configuredKey.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("quora.jwt.signing-keys entries must be in keyId:secret format");
+            }
+            final JwtTokenProvider provider = new JwtTokenProvider(configuredKey.substring(0, separator).trim(),
+                    configuredKey.substring(separator + 1).trim());
+            providers.put(provider.getKeyId(), provider);
+            if (activeProvider == null) {
+                activeProvider = provider;
+            }
+        }
+    }
+
+    /**
+     * @return the token provider signing new access tokens with the active key
+     */
+    public JwtTokenProvider getActiveProvider() {
+        return activeProvider;
+    }
+
+    /**
+     * @param keyId The key id found in the JWT header
+     * @return the token provider for the key, null if the key is unknown or has been dropped
+     */
+    public JwtTokenProvider getProvider(final String keyId) {
+        return keyId == null ? null : providers.get(keyId);
+    }
+
+    private void generateKey() {
+        final byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        final JwtTokenProvider provider = new JwtTokenProvider(UUID.randomUUID().toString(),
+                Base64.getEncoder().encodeToString(secret));
+        providers.put(provider.getKeyId(), provider);
+        activeProvider = provider;
+    }
+}
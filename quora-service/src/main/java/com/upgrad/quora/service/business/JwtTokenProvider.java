@@ -1,12 +1,13 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
 
@@ -16,17 +17,31 @@ import java.util.UUID;
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
+    private final String keyId;
+
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
     /**
      * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
      */
     public JwtTokenProvider(final String secret) {
+        this(UUID.randomUUID().toString(), secret);
+    }
+
+    /**
+     * A constructor for JwtTokenProvider class which receives a server side signing key and its key id.
+     * The key id is written to the JWT header so the token can be verified later against the same key.
+     */
+    public JwtTokenProvider(final String keyId, final String secret) {
+        this.keyId = keyId;
         try {
             algorithm = Algorithm.HMAC512(secret);
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
+        verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
     }
 
 
@@ -42,13 +57,32 @@ public class JwtTokenProvider {
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
+                .withKeyId(keyId)
                 .withAudience(userUuid) //
                 .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
     }
 
+    /**
+     * This method verifies the signature, issuer and expiry of a JWT token signed by this provider.
+     *
+     * @param token - the JWT token to be verified
+     * @return - true if the token was signed with this provider's key, is issued by quora and has not expired
+     */
+    public boolean verifyToken(final String token) {
+        try {
+            verifier.verify(token);
+            return true;
+        } catch (JWTVerificationException e) {
+            return false;
+        }
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
 }
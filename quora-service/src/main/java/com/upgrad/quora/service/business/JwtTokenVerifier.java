@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Verifies the bearer access tokens in memory before any session lookup is made.
+ * With {@code quora.jwt.verification} set to {@code local} forged, malformed and expired tokens are rejected
+ * by checking the signature, issuer and expiry against the {@link JwtKeyRing}; only the revocation check
+ * (the session lookup) is left on the hot path.
+ * The default {@code database} mode trusts the session lookup alone, which also accepts tokens that were
+ * not issued as JWT.
+ */
+@Component
+public class JwtTokenVerifier {
+
+    private static final String LOCAL_VERIFICATION = "local";
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Value("${quora.jwt.verification:database}")
+    private String verificationMode;
+
+    /**
+     * This method checks if the access token has to be rejected without looking up the session
+     *
+     * @param accessToken The access token sent by the client
+     * @return true if local verification is enabled and the token is not a valid JWT signed by a known key
+     */
+    public boolean isRejected(final String accessToken) {
+        if (!LOCAL_VERIFICATION.equalsIgnoreCase(verificationMode)) {
+            return false;
+        }
+        final JwtTokenProvider provider;
+        try {
+            provider = jwtKeyRing.getProvider(JWT.decode(accessToken).getKeyId());
+        } catch (JWTDecodeException e) {
+            return true;
+        }
+        return provider == null || !provider.verifyToken(accessToken);
+    }
+}
@@ -0,0 +1,105 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Version counters of the question and answer listings, turned into the strong ETags of their responses.
+ * A counter is bumped once a change to its listing commits, and is read before the listing is, so an ETag never
+ * describes more recent content than the response it is sent with.
+ * The answer listings share striped counters picked by the question UUID, so a change to the answers of one
+ * question may also change the ETag of a few others, which only costs those a full response.
+ * The ETags carry the startup time of the application, so the ones issued before a restart never match.
+ * The counters live in this JVM and only see the changes made through it, so the ETags are only sound with a single
+ * instance of the application. Behind a load balancer spreading the requests over several instances, an instance would
+ * answer 304 Not Modified for a listing changed through another one: quora.etag.enabled has to be turned off there,
+ * and the listings are then sent without an ETag.
+ */
+@Component
+public class ListingVersions {
+
+    @Value("${quora.etag.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.etag.answer-stripes:1024}")
+    private int answerStripes;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final LongAdder questions = new LongAdder();
+
+    // Bumped by the changes cascading over listings that are not tracked one by one, e.g. deleting a user
+    private final AtomicLong generation = new AtomicLong();
+
+    private AtomicLongArray answers;
+
+    private int stripeMask;
+
+    @PostConstruct
+    public void initialize() {
+        final int stripes = Integer.highestOneBit(Math.max(1, answerStripes - 1) << 1);
+        answers = new AtomicLongArray(stripes);
+        stripeMask = stripes - 1;
+    }
+
+    /**
+     * @return The ETag of the question listings, null if the ETags are disabled
+     */
+    public String questionsETag() {
+        if (!enabled) {
+            return null;
+        }
+        return "\"q-" + epoch + "-" + generation.get() + "-" + questions.sum() + "\"";
+    }
+
+    /**
+     * @param questionUuid The UUID of the question whose answers are listed
+     * @return The ETag of the answer listing of the question, null if the ETags are disabled
+     */
+    public String answersETag(final String questionUuid) {
+        if (!enabled) {
+            return null;
+        }
+        final int stripe = stripeOf(questionUuid);
+        return "\"a-" + epoch + "-" + generation.get() + "-" + stripe + "-" + answers.get(stripe) + "\"";
+    }
+
+    /**
+     * Changes the ETag of the question listings once the current transaction commits
+     */
+    public void questionsChanged() {
+        AfterCommit.run(questions::increment);
+    }
+
+    /**
+     * Changes the ETag of the answer listing of a question once the current transaction commits
+     *
+     * @param questionUuid The UUID of the question whose answers or content changed
+     */
+    public void answersChanged(final String questionUuid) {
+        final int stripe = stripeOf(questionUuid);
+        AfterCommit.run(() -> answers.incrementAndGet(stripe));
+    }
+
+    /**
+     * Changes the ETags of all the listings once the current transaction commits
+     */
+    public void allChanged() {
+        AfterCommit.run(generation::incrementAndGet);
+    }
+
+    private int stripeOf(final String questionUuid) {
+        // Keyed by the parsed UUID, so a listing polled with an upper case UUID shares the stripe of the changes
+        final UUID uuid = TimeOrderedUuid.parse(questionUuid);
+        final int hash = uuid != null ? uuid.hashCode() : questionUuid.hashCode();
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+}
@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The page sizes of the keyset paginated listings and of the reactive feeds, and the fetch size of the streamed ones
+ */
+@Component
+public class PaginationSettings {
+
+    @Value("${quora.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${quora.pagination.max-limit:500}")
+    private int maxLimit;
+
+    @Value("${quora.pagination.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${quora.pagination.feed-page-size:100}")
+    private int feedPageSize;
+
+    /**
+     * This method caps the page size requested by a client
+     *
+     * @param requestedLimit The page size requested, null if none was
+     * @return The default page size if none or a non positive one was requested, otherwise the requested
+     * one capped to the maximum page size
+     */
+    public int resolveLimit(final Integer requestedLimit) {
+        if (requestedLimit == null || requestedLimit <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(requestedLimit, maxLimit);
+    }
+
+    /**
+     * This method picks the size of the pages a reactive feed is fetched by
+     *
+     * @param requestedLimit The number of rows requested from the feed, null for all of them
+     * @return The feed page size, or the number of rows requested if fewer
+     */
+    public int resolveFeedPageSize(final Integer requestedLimit) {
+        if (requestedLimit == null || requestedLimit <= 0) {
+            return feedPageSize;
+        }
+        return Math.min(requestedLimit, feedPageSize);
+    }
+
+    /**
+     * @return The number of rows fetched per database round trip when streaming a whole listing
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+}
@@ -1,48 +1,199 @@
 package com.upgrad.quora.service.business;
 
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Random;
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Hashes the user passwords with PBKDF2.
+ * Hashes are stored in a versioned format recording the parameters that produced them:
+ * {@code $pbkdf2-sha512$<iterations>$<key length in bits>$<hex hash>}. Hashes without the prefix were
+ * produced by the original fixed parameters (1000 iterations, 64 bit key) and are still verified.
+ * The iteration count for new hashes is calibrated at startup to meet a target latency per hash on the host,
+ * unless it is configured explicitly.
+ * The hashing is CPU work only, and runs on the password hashing pool outside of any transaction.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
-    private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordCryptographyProvider.class);
+
+    private static final String HMAC_ALGORITHM = "HmacSHA512";
+    private static final String HASH_FORMAT_ID = "pbkdf2-sha512";
+    private static final String HASH_FORMAT_SEPARATOR = "$";
+    private static final int LEGACY_HASHING_ITERATIONS = 1000;
+    private static final int LEGACY_HASHING_KEY_LENGTH = 64;
+    private static final int CALIBRATION_ITERATIONS = 10000;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    /**
+     * Mac lookups go through the provider registry, and PBKDF2WithHmacSHA512 looks one up for every hash,
+     * so each hashing thread keeps its own instance and derives the keys with it
+     */
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    @Value("${quora.password.iterations:0}")
+    private int configuredIterations;
+
+    @Value("${quora.password.target-hash-millis:50}")
+    private long targetHashMillis;
+
+    @Value("${quora.password.min-iterations:10000}")
+    private int minIterations;
+
+    @Value("${quora.password.key-length:512}")
+    private int keyLength;
+
+    private volatile int iterations = CALIBRATION_ITERATIONS;
+
+    /**
+     * This method picks the iteration count for new hashes, either the configured one or the one meeting
+     * the target latency per hash on this host
+     */
+    @PostConstruct
+    public void calibrate() {
+        if (configuredIterations > 0) {
+            iterations = configuredIterations;
+            return;
+        }
+        final char[] password = "calibration-password".toCharArray();
+        final byte[] salt = generateSaltBytes();
+        // Warm up the JIT before measuring
+        for (int i = 0; i < 3; i++) {
+            hashPassword(password, salt, CALIBRATION_ITERATIONS, keyLength);
+        }
+        final long start = System.nanoTime();
+        hashPassword(password, salt, CALIBRATION_ITERATIONS, keyLength);
+        final double nanosPerIteration = (double) (System.nanoTime() - start) / CALIBRATION_ITERATIONS;
+        final long targetIterations = (long) (targetHashMillis * 1_000_000L / nanosPerIteration);
+        iterations = (int) Math.max(minIterations, Math.min(Integer.MAX_VALUE, targetIterations / 1000 * 1000));
+        LOG.info("Password hashing calibrated to {} iterations for a {} ms target", iterations, targetHashMillis);
+    }
+
     /**
      * This method generates Salt and hashed Password
      *
      * @param password char array.
-     * @return String array with [0] encoded salt [1] hashed password.
+     * @return String array with [0] encoded salt [1] hashed password in the versioned format.
      */
     public String[] encrypt(final String password) {
+        final int hashIterations = iterations;
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        byte[] hashedPassword = hashPassword(password.toCharArray(), salt, hashIterations, keyLength);
+        return new String[]{getBase64EncodedBytesAsString(salt), HASH_FORMAT_SEPARATOR + HASH_FORMAT_ID
+                + HASH_FORMAT_SEPARATOR + hashIterations + HASH_FORMAT_SEPARATOR + keyLength
+                + HASH_FORMAT_SEPARATOR + bytesToHex(hashedPassword)};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
-     * This will be used during authentication.
+     * This method re-generates hashed Password from raw-password and salt with the legacy parameters.
      *
      * @param password char array.
      * @param salt     byte array.
      * @return byte array of hashed password.
      */
     public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt),
+                LEGACY_HASHING_ITERATIONS, LEGACY_HASHING_KEY_LENGTH));
+    }
+
+    /**
+     * This method checks the raw-password against the stored hash, using the parameters recorded in it.
+     * This will be used during authentication.
+     *
+     * @param password   raw password.
+     * @param salt       encoded salt stored with the hash.
+     * @param storedHash the stored hash, versioned or legacy.
+     * @return true if the password matches, false as well if the stored hash is corrupted.
+     */
+    public boolean matches(final String password, final String salt, final String storedHash) {
+        final byte[] saltBytes;
+        try {
+            saltBytes = getBase64DecodedStringAsBytes(salt);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        final String expectedHex;
+        final String computedHex;
+        if (isVersioned(storedHash)) {
+            final String[] parts = storedHash.split("\\" + HASH_FORMAT_SEPARATOR);
+            if (parts.length != 5 || !HASH_FORMAT_ID.equals(parts[1])) {
+                return false;
+            }
+            final int hashIterations;
+            final int hashKeyLength;
+            try {
+                hashIterations = Integer.parseInt(parts[2]);
+                hashKeyLength = Integer.parseInt(parts[3]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (hashIterations <= 0 || hashKeyLength <= 0) {
+                return false;
+            }
+            expectedHex = parts[4];
+            computedHex = bytesToHex(hashPassword(password.toCharArray(), saltBytes, hashIterations, hashKeyLength));
+        } else {
+            expectedHex = storedHash;
+            computedHex = bytesToHex(hashPassword(password.toCharArray(), saltBytes,
+                    LEGACY_HASHING_ITERATIONS, LEGACY_HASHING_KEY_LENGTH));
+        }
+        return MessageDigest.isEqual(computedHex.getBytes(StandardCharsets.US_ASCII), expectedHex.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * This method checks if the stored hash was produced by outdated parameters and has to be re-hashed
+     * with the current ones on the next successful sign in.
+     *
+     * @param storedHash the stored hash, versioned or legacy.
+     * @return true if the hash is legacy, corrupted or weaker than the current parameters.
+     */
+    public boolean needsRehash(final String storedHash) {
+        if (!isVersioned(storedHash)) {
+            return true;
+        }
+        final String[] parts = storedHash.split("\\" + HASH_FORMAT_SEPARATOR);
+        if (parts.length != 5 || !HASH_FORMAT_ID.equals(parts[1])) {
+            return true;
+        }
+        try {
+            // Calibration varies slightly between restarts, so only hashes clearly weaker than the current
+            // parameters are upgraded; stronger ones (e.g. from a faster host) are left alone
+            return Integer.parseInt(parts[2]) < iterations / 5 * 4 || Integer.parseInt(parts[3]) != keyLength;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static boolean isVersioned(final String storedHash) {
+        return storedHash.startsWith(HASH_FORMAT_SEPARATOR);
     }
 
     /**
@@ -58,21 +209,43 @@ public class PasswordCryptographyProvider {
     }
 
     /**
-     * This method generates hashed Password
+     * This method generates hashed Password with PBKDF2 (RFC 8018) over the HMAC of the hashing thread,
+     * producing the same bytes as PBKDF2WithHmacSHA512
      *
-     * @param password char array.
-     * @param salt     byte array.
+     * @param password   char array.
+     * @param salt       byte array.
+     * @param iterations PBKDF2 iteration count.
+     * @param keyLength  derived key length in bits.
      * @return byte array of hashed password.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    private static byte[] hashPassword(final char[] password, final byte[] salt, final int iterations, final int keyLength) {
+        final Mac mac = HMAC.get();
+        final PasswordKey key = new PasswordKey(password);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
-            byte[] res = key.getEncoded();
-            return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            mac.init(key);
+            final int blockLength = mac.getMacLength();
+            final byte[] derivedKey = new byte[keyLength / 8];
+            final byte[] block = new byte[blockLength];
+            final byte[] round = new byte[blockLength];
+            for (int offset = 0, blockIndex = 1; offset < derivedKey.length; offset += blockLength, blockIndex++) {
+                mac.update(salt);
+                mac.update(ByteBuffer.allocate(4).putInt(blockIndex).array());
+                mac.doFinal(round, 0);
+                System.arraycopy(round, 0, block, 0, blockLength);
+                for (int i = 1; i < iterations; i++) {
+                    mac.update(round);
+                    mac.doFinal(round, 0);
+                    for (int j = 0; j < blockLength; j++) {
+                        block[j] ^= round[j];
+                    }
+                }
+                System.arraycopy(block, 0, derivedKey, offset, Math.min(blockLength, derivedKey.length - offset));
+            }
+            return derivedKey;
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException(e);
+        } finally {
+            key.destroy();
         }
     }
 
@@ -93,6 +266,38 @@ public class PasswordCryptographyProvider {
     private static byte[] getBase64DecodedStringAsBytes(String decode) {
         return Base64.getDecoder().decode(decode);
     }
-}
 
+    /**
+     * The password as the HMAC key, encoded as UTF-8 like PBKDF2WithHmacSHA512 does. Unlike a SecretKeySpec it
+     * accepts an empty password
+     */
+    private static final class PasswordKey implements SecretKey {
+        private final byte[] encoded;
+
+        private PasswordKey(final char[] password) {
+            final ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+            encoded = Arrays.copyOf(bytes.array(), bytes.limit());
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return HMAC_ALGORITHM;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return encoded.clone();
+        }
 
+        @Override
+        public void destroy() {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+}
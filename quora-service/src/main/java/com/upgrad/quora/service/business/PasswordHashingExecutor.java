@@ -0,0 +1,92 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated worker pool for the CPU heavy password hashing in sign-up and sign-in.
+ * The pool is sized to the number of cores so a burst of logins cannot starve the request threads serving
+ * the rest of the API. Only the hashing runs on it: the database work of sign-up and sign-in runs on the database
+ * work pool before or after, so a hashing thread never waits for a connection. Work beyond the queue limit is
+ * rejected right away with a {@link ServiceUnavailableException} instead of piling up latency.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    @Value("${quora.password-hashing.pool-size:0}")
+    private int poolSize;
+
+    @Value("${quora.password-hashing.queue-capacity:256}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        final int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a task involving password hashing on the hashing pool
+     *
+     * @param task The task to be run, the hashing of a sign-up or the password check of a sign-in
+     * @param <T>  The result type of the task
+     * @return A future completed with the result of the task or the exception it threw, or with a
+     * {@link ServiceUnavailableException} if the pool is at capacity
+     */
+    public <T> CompletableFuture<T> submit(final HashingTask<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new ServiceUnavailableException("SRV-001", "Too many sign-in or sign-up requests, try again later"));
+        }
+        return result;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * A task involving password hashing that may throw the business exceptions of sign-in
+     *
+     * @param <T> The result type of the task
+     */
+    @FunctionalInterface
+    public interface HashingTask<T> {
+        T call() throws Exception;
+    }
+}
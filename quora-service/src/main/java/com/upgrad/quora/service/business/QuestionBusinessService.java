@@ -1,25 +1,43 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.CursorPage;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.RowStream;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.dto.BulkItemResult;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.Question;
-import com.upgrad.quora.service.entity.User;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.exception.VersionConflictException;
 import com.upgrad.quora.service.util.QuoraUtil;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 public class QuestionBusinessService {
 
+    private static final Function<QuestionSummary, PageCursor> QUESTION_KEY = question -> PageCursor.of(question.getDate(), question.getId());
+
     @Autowired
     private UserDao userDao;
 
@@ -29,19 +47,105 @@ public class QuestionBusinessService {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void initialize() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+
+    /**
+     * This method validates the user authorization token and returns the ETag of the question listings
+     * It reads no question, so it is checked against the ETag held by the client before the listing is read
+     *
+     * @return The current ETag of the question listings, null if the ETags are disabled
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    public String getAllQuestionsETag() throws AuthorizationFailedException {
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get all questions");
+        return listingVersions.questionsETag();
+    }
+
+    /**
+     * This method pulls a page of the question details from the database after validating the user authorization token
+     * If the token is not valid, throws an Authorization failure
+     *
+     * @param cursor The cursor of the page to be retrieved, null for the first page
+     * @param limit  The page size requested, null for the default one
+     * @return A page of the Questions added in the application present in the Database, newest first
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidCursorException       If the cursor cannot be decoded
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public CursorPage<QuestionSummary> getAllQuestions(final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidCursorException {
+        // Answered with an ETag bumped by the commits on the primary, so a lagging replica's rows must not be read
+        readYourWrites.readFromPrimary();
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get all questions");
+        final PageCursor after = PageCursor.decode(cursor);
+        final int pageSize = paginationSettings.resolveLimit(limit);
+        return CursorPage.of(questionDao.getQuestionsPage(after, pageSize + 1), pageSize, QUESTION_KEY);
+    }
 
     /**
-     * This method pulls all the question details from the database after validating the user authorization token
+     * This method validates the user authorization token and returns all the questions in the database as a stream,
+     * read row by row while it is consumed rather than loaded at once
      * If the token is not valid, throws an Authorization failure
      *
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return All the Questions added in the application present in the Database
+     * @return The Questions added in the application, newest first, read when the stream is consumed
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      */
-    public List<Question> getAllQuestions(String authorization) throws AuthorizationFailedException {
-        userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to get all questions");
-        return questionDao.getAllQuestions();
+    public RowStream<QuestionSummary> streamAllQuestions() throws AuthorizationFailedException {
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to get all questions");
+        final int fetchSize = paginationSettings.getStreamFetchSize();
+        return consumer -> readOnlyTransaction.execute(status -> {
+            readYourWrites.readFromPrimary();
+            questionDao.streamQuestions(fetchSize, consumer);
+            return null;
+        });
+    }
+
+    /**
+     * This method searches the questions by their content after validating the user authorization token
+     * The questions are ranked by how well they match the terms of the query, using the search index,
+     * or if it is not built yet, matched against the whole query text in the database
+     *
+     * @param query The search text
+     * @param limit The maximum number of questions requested, null for the default one
+     * @return The questions matching the query, best match first
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    public List<QuestionSummary> searchQuestions(final String query, final Integer limit) throws AuthorizationFailedException {
+        userBusinessService.validateUserAuthentication("User is signed out.Sign in first to search questions");
+        final int pageSize = paginationSettings.resolveLimit(limit);
+        final List<QuestionSummary> questions = questionSearchIndex.search(query, pageSize);
+        if (questions != null) {
+            return questions;
+        }
+        return query.trim().isEmpty() ? Collections.<QuestionSummary>emptyList() : questionDao.getQuestionsByContent(query.trim(), pageSize);
     }
 
     /**
@@ -51,93 +155,176 @@ public class QuestionBusinessService {
      * is thrown back to the client
      * Same applies when the userId itself doesn't match with any user in DB
      *
-     * @param userUUID      The user UUID whose questions have to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
-     * @return The list of all questions posted by the user matched with userId
+     * @param userUUID The user UUID whose questions have to be retrieved
+     * @param cursor   The cursor of the page to be retrieved, null for the first page
+     * @param limit    The page size requested, null for the default one
+     * @return A page of the questions posted by the user matched with userId, newest first
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws UserNotFoundException        If no user id with that UUID exists in DB
+     * @throws InvalidCursorException       If the cursor cannot be decoded
      */
-    public List<Question> getAllQuestionsByUser(String userUUID, String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,"User is signed out.Sign in first to post a question");
-        final User user = userDao.getUserByUUID(userUUID);
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public CursorPage<QuestionSummary> getAllQuestionsByUser(String userUUID, final String cursor, final Integer limit)
+            throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException {
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to post a question");
+        final Integer userId = userDao.getUserIdByUUID(userUUID);
         // No user matched with the UUID
-        if (user == null) {
+        if (userId == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
         }
-        return questionDao.findQuestionByUserId(user.getId());
+        final PageCursor after = PageCursor.decode(cursor);
+        final int pageSize = paginationSettings.resolveLimit(limit);
+        return CursorPage.of(questionDao.getQuestionsByUserIdPage(userId, after, pageSize + 1), pageSize, QUESTION_KEY);
     }
     /**
      * This method first validate the user calling the validate method is UserDao
      * than this method stores the question in database if user is validated successfully
      *
      * @param question      this is question object that needed to be stored in database
-     * @param authorization holds the Bearer access token for authenticating the user
      * @return the newly created question after saving in database
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Question createNewQuestion(Question question, String authorization) throws AuthorizationFailedException {
+    public Question createNewQuestion(Question question) throws AuthorizationFailedException {
 
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to post a question");
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to post a question");
+        // The UUID names the shard the question is stored on, the shard of its user
+        final int shard = shardRouter.shardOfUser(userAuthEntity.getUser().getId());
+        question.setUuid(TimeOrderedUuid.generate(shard).toString());
         question.setDate(ZonedDateTime.now());
         question.setUser(userAuthEntity.getUser());
-        Question createdQuestion = questionDao.createQuestion(question);
-        return createdQuestion;
+        // Committed by the transaction of the shard alone, along with the indexes
+        return shardRouter.writeInShard(shard, () -> {
+            Question createdQuestion = questionDao.createQuestion(question);
+            questionSearchIndex.questionSaved(createdQuestion);
+            listingVersions.questionsChanged();
+            return createdQuestion;
+        });
 
     }
 
+    /**
+     * This method validates the user once and stores many questions posted by the user
+     * The questions are inserted in chunks, each in a transaction of its own, so the outcome is reported per question
+     *
+     * @param questions The questions that needed to be stored in database, with their content set
+     * @return The outcome of every question, in the order of the questions
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     * @throws InvalidBulkRequestException  If more questions are posted at once than allowed
+     */
+    public List<BulkItemResult> createNewQuestions(final List<Question> questions)
+            throws AuthorizationFailedException, InvalidBulkRequestException {
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to post a question");
+        bulkWriter.checkItemCount(questions.size());
+        final ZonedDateTime now = ZonedDateTime.now();
+        final int shard = shardRouter.shardOfUser(userAuthEntity.getUser().getId());
+        for (Question question : questions) {
+            question.setUuid(TimeOrderedUuid.generate(shard).toString());
+            question.setDate(now);
+            question.setUser(userAuthEntity.getUser());
+        }
+        final List<BulkItemResult> results = bulkWriter.write(questions, Question::getUuid, shard, chunk -> {
+            questionDao.createQuestions(chunk);
+            for (Question question : chunk) {
+                questionSearchIndex.questionSaved(question);
+            }
+        });
+        if (results.stream().anyMatch(BulkItemResult::isCreated)) {
+            listingVersions.questionsChanged();
+        }
+        return results;
+    }
+
     /**
      * This method is used to edit question content :
      * checks for all the conditions and provides necessary response messages
+     * The question is edited by a single conditional statement, the reason of a failure being looked up afterwards
      *
-     * @param question      entity
-     * @param questionId    for the question which needs to be edited
-     * @param authorization holds the Bearer access token for authenticating
-     * @return updates the question as per the questionId provided
+     * @param question        entity
+     * @param questionId      for the question which needs to be edited
+     * @param expectedVersion The version the question has to be at, as sent in If-Match, null for any version
+     * @return the edited question with its new version
      * @throws AuthorizationFailedException if access token does not exit, if user has signed out, if non-owner tries to edit
      * @throws InvalidQuestionException     if question with uuid which is to be edited does not exist in the database
+     * @throws VersionConflictException     if the question is not at the expected version
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Question editQuestionContent(final Question question, final String questionId, final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to edit the question");
-        Question questionEntity = questionDao.getQuestionByUUID(questionId);
-        // If the question with uuid which is to be edited does not exist in the database, throw 'InvalidQuestionException'
-        if (questionEntity == null) {
-            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-        } else {
-            // if the user who is not the owner of the question tries to edit the question throw "AuthorizationFailedException"
-            if (questionEntity.getUser().getId() != userAuthEntity.getUser().getId()) {
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
+    public Question editQuestionContent(final Question question, final String questionId, final Integer expectedVersion)
+            throws AuthorizationFailedException, InvalidQuestionException, VersionConflictException {
+        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to edit the question");
+        final UUID uuid = TimeOrderedUuid.parse(questionId);
+        // Committed by the transaction of the shard holding the question alone, along with the indexes
+        final Question editedQuestion = uuid == null ? null : shardRouter.writeOnShardOf(uuid, (shard, fallback) -> {
+            final Question edited = questionDao.editQuestionContent(uuid, shard, question.getContent(),
+                    userAuthEntity.getUser().getId(), expectedVersion);
+            if (edited != null) {
+                questionSearchIndex.questionSaved(edited);
+                // The answer listing shows the question content as well
+                listingVersions.questionsChanged();
+                listingVersions.answersChanged(edited.getUuid());
             }
+            return edited;
+        });
+        if (editedQuestion == null) {
+            // if the user who is not the owner of the question tries to edit the question throw "AuthorizationFailedException"
+            throw rejectedWrite(questionId, userAuthEntity, false, "Only the question owner can edit the question");
         }
-        questionEntity.setContent(question.getContent());
-        return questionDao.updateQuestion(questionEntity);
+        return editedQuestion;
     }
 
     /**
      * This method is used to delete question
      * checks for all the conditions and provides necessary response messages
+     * The question is deleted by a single conditional statement, the reason of a failure being looked up afterwards
      *
-     * @param questionId    or the question which needs to be deleted
-     * @param authorization holds the Bearer access token for authenticating
+     * @param questionId      or the question which needs to be deleted
+     * @param expectedVersion The version the question has to be at, as sent in If-Match, null for any version
      * @return the uuid of the question that is deleted
      * @throws AuthorizationFailedException if access token does not exit, if user has signed out, if non-owner tries to delete
      * @throws InvalidQuestionException     if question with uuid which is to be edited does not exist in the database
+     * @throws VersionConflictException     if the question is not at the expected version
+     */
+    public String deleteQuestion(String questionId, final Integer expectedVersion)
+            throws AuthorizationFailedException, InvalidQuestionException, VersionConflictException {
+        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication("User is signed out.Sign in first to delete a question");
+        final boolean admin = QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole());
+        final UUID uuid = TimeOrderedUuid.parse(questionId);
+        // Committed by the transaction of the shard holding the question alone, along with the indexes
+        final Integer deletedQuestionId = uuid == null ? null : shardRouter.writeOnShardOf(uuid, (shard, fallback) -> {
+            final Integer deleted = questionDao.deleteQuestion(uuid, userAuthEntity.getUser().getId(), admin, expectedVersion);
+            if (deleted != null) {
+                questionSearchIndex.questionsRemoved(Collections.singletonList(deleted));
+                listingVersions.questionsChanged();
+                listingVersions.answersChanged(uuid.toString());
+            }
+            return deleted;
+        });
+        if (deletedQuestionId == null) {
+            throw rejectedWrite(questionId, userAuthEntity, admin, "Only the question owner or admin can delete the question");
+        }
+        return uuid.toString();
+    }
+
+    /**
+     * Finds out why a conditional edit or delete of a question changed nothing, checking the conditions in the order
+     * the errors are reported in
+     *
+     * @param questionId     The UUID of the question
+     * @param userAuthEntity The session of the user
+     * @param admin          Whether an admin may change any question
+     * @param ownerMessage   The message of the error reported to a user who may not change the question
+     * @return The error to be thrown when the question was only at another version
+     * @throws AuthorizationFailedException If the user may not change the question
+     * @throws InvalidQuestionException     If no question matched the UUID
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public String deleteQuestion(String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to delete a question");
-        Question question = questionDao.getQuestionByUUID(questionId);
+    private VersionConflictException rejectedWrite(final String questionId, final UserAuthEntity userAuthEntity, final boolean admin,
+                                                   final String ownerMessage) throws AuthorizationFailedException, InvalidQuestionException {
+        final Question question = questionDao.getQuestionByUUID(questionId);
+        // If the question with uuid which is to be changed does not exist in the database, throw 'InvalidQuestionException'
         if (question == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
-        if (QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole()) || question.getUser().getId() == userAuthEntity.getUser().getId()) {
-            questionDao.deleteQuestion(question);
-            return question.getUuid();
+        if (!admin && !question.getUser().getId().equals(userAuthEntity.getUser().getId())) {
+            throw new AuthorizationFailedException("ATHR-003", ownerMessage);
         }
-        throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
+        return new VersionConflictException("VER-001", "The question has been changed since the version entered in If-Match");
     }
 }
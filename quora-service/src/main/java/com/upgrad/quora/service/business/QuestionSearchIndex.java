@@ -0,0 +1,149 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.util.InvertedIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * In memory full text index over the content of the questions, ranking the matches with BM25.
+ * The index is built at startup by streaming the question table and tokenizing the questions in parallel,
+ * and is then kept up to date by the question changes once their transaction commits.
+ */
+@Component
+public class QuestionSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionSearchIndex.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.search.fetch-size:1000}")
+    private int fetchSize;
+
+    private volatile InvertedIndex<QuestionSummary> index;
+
+    // The changes committed while the index is being built, replayed on the built index. Guarded by this
+    private List<Consumer<InvertedIndex<QuestionSummary>>> pendingChanges;
+
+    private final Object buildMonitor = new Object();
+
+    /**
+     * Builds the index from the question table once the application is ready.
+     * Until then the searches fall back to the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        synchronized (buildMonitor) {
+            synchronized (this) {
+                pendingChanges = new ArrayList<>();
+            }
+            final List<QuestionSummary> questions = new ArrayList<>();
+            final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            final InvertedIndex<QuestionSummary> rebuilt;
+            try {
+                transactionTemplate.execute(status -> {
+                    questionDao.streamQuestions(fetchSize, questions::add);
+                    return null;
+                });
+                rebuilt = InvertedIndex.build(questions, QuestionSummary::getId, QuestionSummary::getContent, ForkJoinPool.commonPool());
+            } catch (RuntimeException e) {
+                // The searches keep falling back to the database until a later build succeeds
+                LOG.warn("Question search index could not be built", e);
+                synchronized (this) {
+                    pendingChanges = null;
+                }
+                return;
+            }
+            synchronized (this) {
+                // Changes are idempotent, so replaying the ones already read from the table is harmless
+                for (Consumer<InvertedIndex<QuestionSummary>> change : pendingChanges) {
+                    change.accept(rebuilt);
+                }
+                pendingChanges = null;
+                index = rebuilt;
+            }
+            LOG.info("Question search index built from {} questions", questions.size());
+        }
+    }
+
+    /**
+     * Builds the index if it could not be built at startup
+     */
+    @Scheduled(fixedDelayString = "${quora.search.rebuild-check-millis:60000}")
+    public void buildIfMissing() {
+        if (index == null) {
+            build();
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * @param query The search text
+     * @param limit The maximum number of questions returned
+     * @return The questions matching the terms of the query, best match first, null if the index is not built yet
+     */
+    public List<QuestionSummary> search(final String query, final int limit) {
+        final InvertedIndex<QuestionSummary> current = index;
+        return current == null ? null : current.search(query, limit);
+    }
+
+    /**
+     * Indexes a created or edited question once the current transaction commits
+     *
+     * @param question The question as saved
+     */
+    public void questionSaved(final Question question) {
+        final QuestionSummary summary = new QuestionSummary(question.getId(), question.getUuid(), question.getContent(), question.getDate());
+        afterCommit(current -> current.put(summary));
+    }
+
+    /**
+     * Removes questions from the index once the current transaction commits
+     *
+     * @param questionIds The ids of the deleted questions
+     */
+    public void questionsRemoved(final List<Integer> questionIds) {
+        afterCommit(current -> {
+            for (Integer questionId : questionIds) {
+                current.remove(questionId);
+            }
+        });
+    }
+
+    private void afterCommit(final Consumer<InvertedIndex<QuestionSummary>> change) {
+        AfterCommit.run(() -> apply(change));
+    }
+
+    private synchronized void apply(final Consumer<InvertedIndex<QuestionSummary>> change) {
+        if (index != null) {
+            change.accept(index);
+        }
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.AfterCommit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the sessions which wrote recently, so their reads are served by the primary database for a short window
+ * rather than by a replica which may not have caught up yet with their own writes.
+ * The window of a session opens when its write commits, and entries are dropped once their window has elapsed.
+ * The reads which have to see every write committed on the primary, whichever session made it, can also be routed
+ * to the primary for the rest of their transaction.
+ */
+@Component
+public class ReadYourWrites {
+
+    // Set while the current transaction reads from the primary, cleared once it completes
+    private static final ThreadLocal<Boolean> PRIMARY_READS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    @Value("${quora.replicas.enabled:false}")
+    private boolean replicasEnabled;
+
+    // A replica may be behind by up to max-lag-millis, so a shorter window would not cover it
+    @Value("${quora.replicas.sticky-millis:${quora.replicas.max-lag-millis:5000}}")
+    private long stickyMillis;
+
+    @Autowired
+    private RequestPrincipal requestPrincipal;
+
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the window of a session once the current transaction commits, e.g. of a session created by a sign in
+     *
+     * @param accessToken The access token of the session which wrote
+     */
+    public void wrote(final String accessToken) {
+        if (accessToken != null) {
+            AfterCommit.run(() -> stickyUntil.put(accessToken, System.currentTimeMillis() + stickyMillis));
+        }
+    }
+
+    /**
+     * Opens the window of the session of the current request, if any, once the current transaction commits
+     */
+    public void currentSessionWrote() {
+        wrote(currentAccessToken());
+    }
+
+    /**
+     * @return true if the session of the current request wrote within the window, so it has to read from the primary
+     */
+    public boolean isCurrentSessionSticky() {
+        final String accessToken = currentAccessToken();
+        if (accessToken == null) {
+            return false;
+        }
+        final Long until = stickyUntil.get(accessToken);
+        if (until == null) {
+            return false;
+        }
+        if (until <= System.currentTimeMillis()) {
+            stickyUntil.remove(accessToken, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Routes the reads of the current transaction to the primary, e.g. of a listing answered with an ETag bumped by the
+     * commits on the primary, under which the rows of a lagging replica would be cached.
+     * Has to be called before the first statement of the transaction, which fetches its connection
+     */
+    public void readFromPrimary() {
+        if (PRIMARY_READS.get() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        PRIMARY_READS.set(Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(final int status) {
+                PRIMARY_READS.remove();
+            }
+        });
+    }
+
+    /**
+     * @return true if the current transaction was routed to the primary by {@link #readFromPrimary()}
+     */
+    public boolean isPrimaryRead() {
+        return PRIMARY_READS.get();
+    }
+
+    /**
+     * @return true if the reads of the current transaction may be served by a replica
+     */
+    public boolean mayReadFromReplica() {
+        return replicasEnabled && TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPrimaryRead();
+    }
+
+    /**
+     * Checks the read-your-writes window covers the replication lag tolerated on the replicas
+     *
+     * @param maxLagMillis The replication lag above which a replica is not read from
+     */
+    public void checkWindowCovers(final long maxLagMillis) {
+        if (stickyMillis < maxLagMillis) {
+            throw new IllegalStateException("quora.replicas.sticky-millis (" + stickyMillis
+                    + ") must not be less than quora.replicas.max-lag-millis (" + maxLagMillis + ")");
+        }
+    }
+
+    /**
+     * Drops the sessions whose window has elapsed and which did not read since
+     */
+    public void purgeExpired() {
+        final long now = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= now);
+    }
+
+    // The request principal is request scoped, and the background jobs run outside of any request
+    private String currentAccessToken() {
+        if (RequestContextHolder.getRequestAttributes() == null) {
+            return null;
+        }
+        return requestPrincipal.getCredentials().getBearerToken();
+    }
+}
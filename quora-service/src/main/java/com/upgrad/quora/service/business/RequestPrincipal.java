@@ -0,0 +1,66 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.util.AuthorizationCredentials;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Holds the credentials of the current request and the session they resolve to.
+ * The credentials are parsed once from the authorization header before the request reaches the controllers,
+ * and the session is looked up on first use only, so the business services neither parse the header nor
+ * repeat the lookup within a request.
+ */
+@Component
+@RequestScope
+public class RequestPrincipal {
+
+    private AuthorizationCredentials credentials = AuthorizationCredentials.NONE;
+
+    private boolean resolved;
+
+    private UserAuthEntity session;
+
+    private String failureCode;
+
+    public AuthorizationCredentials getCredentials() {
+        return credentials;
+    }
+
+    public void setCredentials(final AuthorizationCredentials credentials) {
+        this.credentials = credentials;
+    }
+
+    /**
+     * @return true once the credentials were resolved to a session or failed to
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    public void resolved(final UserAuthEntity session) {
+        this.session = session;
+        this.failureCode = null;
+        this.resolved = true;
+    }
+
+    public void failed(final String failureCode) {
+        this.session = null;
+        this.failureCode = failureCode;
+        this.resolved = true;
+    }
+
+    /**
+     * @return The active session of the credentials, null if they could not be resolved to one
+     */
+    public UserAuthEntity getSession() {
+        return session;
+    }
+
+    /**
+     * @return The error code the resolution failed with, null if it succeeded
+     */
+    public String getFailureCode() {
+        return failureCode;
+    }
+}
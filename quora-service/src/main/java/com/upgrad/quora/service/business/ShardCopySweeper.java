@@ -0,0 +1,74 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes the copies of deleted users left on the shards other than shard 0, along with their questions and answers,
+ * when quora.shards.enabled is set. A user is deleted on shard 0 first and its copies once that committed, so a shard
+ * failing to delete its copy keeps the content of the user listed until this sweep, which retries on every run,
+ * deletes it.
+ */
+@Component
+public class ShardCopySweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardCopySweeper.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${quora.shards.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${quora.shards.sweep-millis:60000}")
+    public void sweep() {
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+            try {
+                final int deleted = sweep(shard);
+                if (deleted > 0) {
+                    LOG.info("Deleted {} copies of deleted users left on shard {}", deleted, shard);
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Sweep of shard {} failed, retried on the next run: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    private int sweep(final int shard) {
+        int deleted = 0;
+        Integer afterId = 0;
+        while (true) {
+            final List<Integer> copyIds = userDao.getUserCopyIds(shard, afterId, batchSize);
+            if (copyIds.isEmpty()) {
+                return deleted;
+            }
+            final Set<Integer> existingIds = new HashSet<>(userDao.getExistingUserIds(copyIds));
+            for (Integer copyId : copyIds) {
+                if (!existingIds.contains(copyId)) {
+                    userDao.deleteUserCopy(shard, copyId);
+                    deleted++;
+                }
+            }
+            if (copyIds.size() < batchSize) {
+                return deleted;
+            }
+            afterId = copyIds.get(copyIds.size() - 1);
+        }
+    }
+}
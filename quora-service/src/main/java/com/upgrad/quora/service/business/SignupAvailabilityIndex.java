@@ -0,0 +1,185 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filters over the usernames and emails of the registered users.
+ * A negative answer means the username or email is definitely free, which lets the signup skip the uniqueness
+ * lookups; a positive answer only means it may be taken and has to be checked against the database.
+ * The filters are built at startup by streaming the users table, updated on every signup, and rebuilt once
+ * enough users were deleted, since values cannot be removed from a Bloom filter.
+ * The filters of an instance only see the signups made on that instance since they were built, so behind a load
+ * balancer a negative answer is confirmed against the database before a value is reported as available, unless
+ * quora.signup-filter.single-instance is set.
+ */
+@Component
+public class SignupAvailabilityIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SignupAvailabilityIndex.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.signup-filter.expected-users:1000000}")
+    private long expectedUsers;
+
+    @Value("${quora.signup-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    @Value("${quora.signup-filter.stale-rebuild-threshold:10000}")
+    private long staleRebuildThreshold;
+
+    @Value("${quora.signup-filter.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${quora.signup-filter.single-instance:false}")
+    private boolean singleInstance;
+
+    private volatile Filters filters;
+
+    private final AtomicLong staleEntries = new AtomicLong();
+
+    /**
+     * Builds the filters from the users table once the application is ready.
+     * Until then every username and email is reported as possibly taken
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void build() {
+        final Filters rebuilt = new Filters(expectedUsers, falsePositiveProbability);
+        final long stale = staleEntries.get();
+        // Signups during the rebuild are added to the current filters, and forwarded to the new ones
+        final Filters previous = filters;
+        if (previous != null) {
+            previous.forwardTo(rebuilt);
+        }
+        final LongAdder users = new LongAdder();
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        try {
+            transactionTemplate.execute(status -> {
+                userDao.streamUserNamesAndEmails(fetchSize, (userName, email) -> {
+                    rebuilt.add(userName, email);
+                    users.increment();
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The current filters, if any, stay in use and the signup falls back to the database lookups
+            LOG.warn("Signup availability filters could not be built", e);
+            return;
+        }
+        filters = rebuilt;
+        staleEntries.addAndGet(-stale);
+        LOG.info("Signup availability filters built from {} users", users.sum());
+    }
+
+    /**
+     * Rebuilds the filters once the deleted users add up to the configured threshold, or if they could
+     * not be built at startup
+     */
+    @Scheduled(fixedDelayString = "${quora.signup-filter.rebuild-check-millis:60000}")
+    public void rebuildIfStale() {
+        if (filters == null || staleEntries.get() >= staleRebuildThreshold) {
+            build();
+        }
+    }
+
+    public boolean isReady() {
+        return filters != null;
+    }
+
+    /**
+     * @param userName The username to be checked
+     * @return true only if no registered user has the username
+     */
+    public boolean isUserNameFree(final String userName) {
+        final Filters current = filters;
+        return current != null && !current.userNames.mightContain(userName);
+    }
+
+    /**
+     * @param email The email to be checked
+     * @return true only if no registered user has the email
+     */
+    public boolean isEmailFree(final String email) {
+        final Filters current = filters;
+        return current != null && !current.emails.mightContain(email);
+    }
+
+    /**
+     * @param userName The username to be checked
+     * @return true if no registered user has the username, as far as the filters and, when other instances may
+     * have signed users up, a lookup of the username tell
+     */
+    public boolean isUserNameAvailable(final String userName) {
+        return isUserNameFree(userName) && (singleInstance || userDao.getUserByUserName(userName) == null);
+    }
+
+    /**
+     * @param email The email to be checked
+     * @return true if no registered user has the email, as far as the filters and, when other instances may
+     * have signed users up, a lookup of the email tell
+     */
+    public boolean isEmailAvailable(final String email) {
+        return isEmailFree(email) && (singleInstance || userDao.getUserByEmail(email) == null);
+    }
+
+    /**
+     * Records the username and email of a user who signed up
+     */
+    public void userAdded(final String userName, final String email) {
+        final Filters current = filters;
+        if (current != null) {
+            current.add(userName, email);
+        }
+    }
+
+    /**
+     * Records that a user was deleted. Their username and email keep being reported as possibly taken
+     * until the next rebuild
+     */
+    public void userRemoved() {
+        staleEntries.incrementAndGet();
+    }
+
+    private static final class Filters {
+        private final BloomFilter userNames;
+        private final BloomFilter emails;
+        private volatile Filters forward;
+
+        private Filters(final long expectedUsers, final double falsePositiveProbability) {
+            this.userNames = new BloomFilter(expectedUsers, falsePositiveProbability);
+            this.emails = new BloomFilter(expectedUsers, falsePositiveProbability);
+        }
+
+        private void add(final String userName, final String email) {
+            userNames.put(userName);
+            emails.put(email);
+            final Filters next = forward;
+            if (next != null) {
+                next.add(userName, email);
+            }
+        }
+
+        private void forwardTo(final Filters next) {
+            forward = next;
+        }
+    }
+}
@@ -1,108 +1,217 @@
 package com.upgrad.quora.service.business;
 
-import com.upgrad.quora.service.common.GenericErrorCode;
-import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.User;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.*;
+import com.upgrad.quora.service.util.AuthorizationCredentials;
 import com.upgrad.quora.service.util.QuoraUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.PersistenceException;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Base64;
+import java.util.List;
 
 @Service
 public class UserBusinessService {
     private static final Long EIGHT_HOURS_IN_MILLIS = 8 * 60 * 60 * 1000L;
+    private static final String USERNAME_UNIQUE_CONSTRAINT = "users_username_key";
+    private static final String EMAIL_UNIQUE_CONSTRAINT = "users_email_key";
 
     @Autowired
     private UserDao userDao;
 
     @Autowired
     private PasswordCryptographyProvider cryptographyProvider;
+
+    @Autowired
+    private UserSessionCache userSessionCache;
+
+    @Autowired
+    private JwtKeyRing jwtKeyRing;
+
+    @Autowired
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    @Autowired
+    private UserSessionSweeper userSessionSweeper;
+
+    @Autowired
+    private SignupAvailabilityIndex signupAvailabilityIndex;
+
+    @Autowired
+    private RequestPrincipal requestPrincipal;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate primarySessionLookup;
+
+    @PostConstruct
+    public void initialize() {
+        primarySessionLookup = new TransactionTemplate(transactionManager);
+        primarySessionLookup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        primarySessionLookup.setReadOnly(true);
+    }
+
+    /**
+     * This method replaces the password of a user signing up by its salted hash
+     * It is CPU work only, run on the password hashing pool before the user is saved by {@link #signup(User)}
+     *
+     * @param user The user information keyed in at signup, holding the raw password
+     */
+    public void encryptPassword(User user) {
+        String password = user.getPassword();
+
+        if (password != null) {
+            String[] encryptedText = cryptographyProvider.encrypt(password);
+            user.setSalt(encryptedText[0]);
+            user.setPassword(encryptedText[1]);
+            user.setRole(QuoraUtil.NON_ADMIN_ROLE);
+        }
+    }
+
     /**
      * This method saves the registered user information to the Database
-     * Encrypts the user password before storing in the DB
+     * The user password has been encrypted beforehand by {@link #encryptPassword(User)}
      * Checks if the existing user is trying to signup again by matching username/email
      * If so, throws error message as already username taken or already registered
+     * The check is skipped when the availability index knows both are free, and is otherwise a single query;
+     * a concurrent signup with the same username/email is caught by the unique constraints
      *
      * @param user The user information to be saved as part of signup
      * @return The persisted user details with the id value generated
      * @throws SignUpRestrictedException if the user details matches with the existing records
      */
-    @Transactional(propagation = Propagation.REQUIRED)
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = SignUpRestrictedException.class)
     public User signup(User user) throws SignUpRestrictedException {
+        if (!signupAvailabilityIndex.isUserNameFree(user.getUserName())
+                || !signupAvailabilityIndex.isEmailFree(user.getEmail())) {
+            List<User> existingUsers = userDao.getUsersByUserNameOrEmail(user.getUserName(), user.getEmail());
+            for (User existingUser : existingUsers) {
+                if (existingUser.getUserName().equals(user.getUserName())) {
+                    throw userNameTaken();
+                }
+            }
+            if (!existingUsers.isEmpty()) {
+                throw emailTaken();
+            }
+        }
 
+        try {
+            userDao.createUser(user);
+            // Flushed here so a unique constraint violation surfaces as a sign up error rather than on commit
+            userDao.flush();
+        } catch (PersistenceException | DataIntegrityViolationException ex) {
+            final String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(ex).getMessage()).toLowerCase();
+            if (message.contains(USERNAME_UNIQUE_CONSTRAINT)) {
+                throw userNameTaken();
+            }
+            if (message.contains(EMAIL_UNIQUE_CONSTRAINT)) {
+                throw emailTaken();
+            }
+            throw ex;
+        }
+        signupAvailabilityIndex.userAdded(user.getUserName(), user.getEmail());
+        return user;
+    }
 
-        if (userDao.getUserByUserName(user.getUserName()) != null) {
-            throw new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
+    private static SignUpRestrictedException userNameTaken() {
+        return new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
+    }
+
+    private static SignUpRestrictedException emailTaken() {
+        return new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
+    }
+
+    /**
+     * This method takes the basic credentials which hold the username and password, and looks up the user signing in
+     * It is the first step of a sign in, followed by {@link #verifyPassword(User, String)} and
+     * {@link #createSession(User, boolean)}
+     * The credentials are passed in, as the sign in runs outside of the request thread
+     *
+     * @param credentials holds the basic credentials used for authentication
+     * @return The user matching the username
+     * @throws AuthenticationFailedException if the credentials are missing, not basic or could not be decoded,
+     *                                       or if the username doesnot exists
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public User getSignInUser(AuthorizationCredentials credentials) throws AuthenticationFailedException {
+        // A user who just signed up may not have reached a lagging replica yet
+        readYourWrites.readFromPrimary();
+        if (!credentials.isBasic() || credentials.getUsername() == null) {
+            throw new AuthenticationFailedException("ATH-003", "Sign in with basic credentials holding the username and password");
         }
-        if (userDao.getUserByEmail(user.getEmail()) != null) {
-            throw new SignUpRestrictedException("SGR-002", "This user has already been registered, try with any other emailId");
+        User user = userDao.getUserByUserName(credentials.getUsername());
+        if (user == null) {
+            throw new AuthenticationFailedException("ATH-001", "This username does not exist");
         }
-        String password = user.getPassword();
+        return user;
+    }
 
-        if (password != null) {
-            String[] encryptedText = cryptographyProvider.encrypt(user.getPassword());
+    /**
+     * This method checks the password of a user signing in against the stored hash
+     * If the password doesnot match it throws Authentication failed exception
+     * It is CPU work only, run on the password hashing pool between the user lookup and the session creation
+     *
+     * @param user     The user signing in, as looked up by {@link #getSignInUser(AuthorizationCredentials)}
+     * @param password The raw password keyed in
+     * @return true if the stored hash was produced by outdated parameters, and the user now holds the upgraded hash
+     * @throws AuthenticationFailedException if the password doesnot match
+     */
+    public boolean verifyPassword(User user, String password) throws AuthenticationFailedException {
+        if (!cryptographyProvider.matches(password, user.getSalt(), user.getPassword())) {
+            throw new AuthenticationFailedException("ATH-002", "Password failed");
+        }
+        // Hashes produced by outdated parameters are transparently upgraded on a successful sign in
+        if (cryptographyProvider.needsRehash(user.getPassword())) {
+            String[] encryptedText = cryptographyProvider.encrypt(password);
             user.setSalt(encryptedText[0]);
             user.setPassword(encryptedText[1]);
-            user.setRole(QuoraUtil.NON_ADMIN_ROLE);
+            return true;
         }
-
-        return userDao.createUser(user);
+        return false;
     }
 
     /**
-     * This method takes the authorization string which is encoded username and password
-     * If the username and password doesnot matches than it throws Authentication failed exception
-     * If the username and password match than auth token is generated
-     * If the input is illegal it  throws Unexpected Exception
+     * This method creates the session of a user whose password has been verified, and generates its auth token
      *
-     * @param authorization holds the basic access token used for authentication
+     * @param user     The user signing in, as returned by {@link #verifyPassword(User, String)}
+     * @param rehashed true if the user holds an upgraded hash to be stored
      * @return userAuthTokenEntity that conatins acess token and user UUID
-     * @throws AuthenticationFailedException if the username doesnot exists or password doesnot match
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity signIn(String authorization) throws AuthenticationFailedException {
-        //this will be used to decode the request header authorization
-        try {
-            byte[] decode = Base64.getDecoder().decode(authorization.split(QuoraUtil.BASIC_TOKEN)[1]);
-            String decodedText = new String(decode);
-            String[] decodedArray = decodedText.split(QuoraUtil.COLON);
-            String username = decodedArray[0];
-            String password = decodedArray[1];
-            User user = userDao.getUserByUserName(username);
-            if (user == null) {
-                throw new AuthenticationFailedException("ATH-001", "This username does not exist");
-            }
-
-            final String encryptedPassword = cryptographyProvider.encrypt(password, user.getSalt());
-            if (encryptedPassword.equals(user.getPassword())) {
-
-                JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
-                UserAuthEntity userAuthTokenEntity = new UserAuthEntity();
-                userAuthTokenEntity.setUser(user);
-                final ZonedDateTime now = ZonedDateTime.now();
-                final ZonedDateTime expiresAt = now.plusHours(8);
-                userAuthTokenEntity.setAccessToken(jwtTokenProvider.generateToken(user.getUuid(), now, expiresAt));
-                userAuthTokenEntity.setLoginAt(now);
-                userAuthTokenEntity.setExpiresAt(expiresAt);
-                userAuthTokenEntity.setUuid(user.getUuid());
-                return userDao.createAuthToken(userAuthTokenEntity);
-
-            } else {
-                throw new AuthenticationFailedException("ATH-002", "Password failed");
-            }
-
-        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
-            GenericErrorCode genericErrorCode = GenericErrorCode.GEN_001;
-            throw new UnexpectedException(genericErrorCode, ex);
+    public UserAuthEntity createSession(User user, boolean rehashed) {
+        if (rehashed) {
+            user = userDao.updateUser(user);
         }
+        JwtTokenProvider jwtTokenProvider = jwtKeyRing.getActiveProvider();
+        UserAuthEntity userAuthTokenEntity = new UserAuthEntity();
+        userAuthTokenEntity.setUser(user);
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime expiresAt = now.plusHours(8);
+        userAuthTokenEntity.setAccessToken(jwtTokenProvider.generateToken(user.getUuid(), now, expiresAt));
+        userAuthTokenEntity.setLoginAt(now);
+        userAuthTokenEntity.setExpiresAt(expiresAt);
+        userAuthTokenEntity.setUuid(user.getUuid());
+        userDao.createAuthToken(userAuthTokenEntity);
+        userSessionSweeper.track(userAuthTokenEntity.getId(), expiresAt);
+        // The first requests of the new session read from the primary, which is sure to hold the session
+        readYourWrites.wrote(userAuthTokenEntity.getAccessToken());
+        return userAuthTokenEntity;
     }
 
 
@@ -110,22 +219,23 @@ public class UserBusinessService {
      * This method validates the user session by making use of the access token
      * If it is expired or invalid, then throws back the exception asking the user to sign in
      * If the user session is active, then pulls the UUID of the user̥
+     * The access token is the bearer token of the current request
+     * The session is looked up afresh rather than taken from the request principal, as it is updated
      *
-     * @param authorization holds the bearer access token for authenticating the user
      * @return uuid of the user
      * @throws SignOutRestrictedException if the access token is expired or user never signed in
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public String getUserUUID(String authorization) throws SignOutRestrictedException {
-        String[] bearerToken = authorization.split(QuoraUtil.BEARER_TOKEN);
-        // If Bearer Token prefix is missed, ignore and just use the authorization text
-        if (bearerToken != null && bearerToken.length > 1) {
-            authorization = bearerToken[1];
+    public String getUserUUID() throws SignOutRestrictedException {
+        final String authorization = requestPrincipal.getCredentials().getBearerToken();
+        if (authorization == null || jwtTokenVerifier.isRejected(authorization)) {
+            throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
         }
         UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
         if (isUserSessionValid(userAuthEntity)) {
             userAuthEntity.setLogoutAt(ZonedDateTime.now());
             userDao.updateUserAuthEntity(userAuthEntity);
+            userSessionCache.invalidate(authorization);
             return userAuthEntity.getUuid();
         }
 
@@ -133,59 +243,117 @@ public class UserBusinessService {
     }
 
     /**
-     * This method checks if the user session is active based on the access token/logout at time
+     * This method checks if the user session is active based on the access token/logout at/expires at time
      *
      * @param userAuthEntity The authentication Entity object holding the information about user login and access token
-     * @return true if the token exists in the DB and user is not logged out, false otherwise
+     * @return true if the token exists in the DB and user is not logged out and the session has not expired, false otherwise
      */
     public Boolean isUserSessionValid(UserAuthEntity userAuthEntity) {
         // userAuthEntity will be non null only if token exists in DB, and logoutAt null indicates user has not logged out yet
-        return (userAuthEntity != null && userAuthEntity.getLogoutAt() == null);
+        return (userAuthEntity != null && userAuthEntity.getLogoutAt() == null && !isUserSessionExpired(userAuthEntity));
+    }
+
+    /**
+     * This method checks if the user session has passed its expiry time
+     *
+     * @param userAuthEntity The authentication Entity object holding the information about user login and access token
+     * @return true if the session has expired, false otherwise
+     */
+    private boolean isUserSessionExpired(UserAuthEntity userAuthEntity) {
+        return userAuthEntity.getExpiresAt() != null && !userAuthEntity.getExpiresAt().isAfter(ZonedDateTime.now());
     }
 
     /**
-     * This method validates the authorization access token passed while accessing the apis after signing in
-     * Handles the token both with/without Bearer prefix in the authorization token
+     * This method validates the access token of the current request while accessing the apis after signing in
+     * The token is resolved to its session once per request, and the outcome is reused by later calls
      * Generic method used for different scenarios, so for ATHR-002 the message text will be used
      * from the dynamic value passed in
      *
-     * @param authorization  holds the Bearer access token for authenticating the user
      * @param athr002Message The message text for different scenarios of ATHR-002 error code
      * @return The userAuthEntity based on the matched authorization
      * @throws AuthorizationFailedException if the token is not present in DB or user already logged out
      */
-    public UserAuthEntity validateUserAuthentication(String authorization, String athr002Message)
-            throws AuthorizationFailedException {
-        String[] bearerToken = authorization.split(QuoraUtil.BEARER_TOKEN);
-        // If Bearer Token prefix is missed, ignore and just use the authorization text
-        if (bearerToken != null && bearerToken.length > 1) {
-            authorization = bearerToken[1];
+    public UserAuthEntity validateUserAuthentication(String athr002Message) throws AuthorizationFailedException {
+        if (!requestPrincipal.isResolved()) {
+            try {
+                requestPrincipal.resolved(resolveSession(requestPrincipal.getCredentials().getBearerToken()));
+            } catch (AuthorizationFailedException e) {
+                requestPrincipal.failed(e.getCode());
+            }
         }
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        final String failureCode = requestPrincipal.getFailureCode();
+        if (failureCode == null) {
+            return requestPrincipal.getSession();
+        }
+        if ("ATHR-002".equals(failureCode)) {
+            throw new AuthorizationFailedException(failureCode, athr002Message);
+        }
+        throw new AuthorizationFailedException(failureCode, "User has not signed in");
+    }
+
+    /**
+     * This method resolves a bearer access token to its active session
+     *
+     * @param authorization The bearer access token, null if the request has none
+     * @return The active session of the access token
+     * @throws AuthorizationFailedException ATHR-001 if the token is not present in DB, ATHR-002 if the user
+     *                                      already logged out or the session expired
+     */
+    private UserAuthEntity resolveSession(String authorization) throws AuthorizationFailedException {
+        // Missing, forged, malformed or expired tokens are rejected without a session lookup
+        if (authorization == null || jwtTokenVerifier.isRejected(authorization)) {
+            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+        }
+        // Sessions validated earlier are served from the cache, everything else is looked up in the DB
+        UserAuthEntity userAuthEntity = userSessionCache.get(authorization);
+        if (userAuthEntity != null) {
+            return userAuthEntity;
+        }
+        // Read before the lookup, so the session is not cached if it is signed out meanwhile
+        final long generation = userSessionCache.generation(authorization);
+        userAuthEntity = lookUpSession(authorization);
         // Token is not matched with the database records
         if (userAuthEntity == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
-        // Token matches, but the user has already logged out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", athr002Message);
+        // Token matches, but the user has already logged out or the session has expired
+        if (userAuthEntity.getLogoutAt() != null || isUserSessionExpired(userAuthEntity)) {
+            throw new AuthorizationFailedException("ATHR-002", "User is signed out");
         }
+        userSessionCache.put(authorization, userAuthEntity, generation);
         return userAuthEntity;
     }
 
+    /**
+     * This method looks a session up on the primary database, as a lagging replica may still hold a session which
+     * was signed out since, and the session would then be cached. Under a transaction which may be routed to a replica,
+     * the lookup runs in a read only transaction of its own routed to the primary.
+     *
+     * @param authorization The bearer access token
+     * @return The session of the access token, null if there is none
+     */
+    private UserAuthEntity lookUpSession(final String authorization) {
+        if (!readYourWrites.mayReadFromReplica()) {
+            return userDao.getUserAuthToken(authorization);
+        }
+        return primarySessionLookup.execute(status -> {
+            readYourWrites.readFromPrimary();
+            return userDao.getUserAuthToken(authorization);
+        });
+    }
+
     /**
      * This Method is used to get User Details from the database.
      *
-     * @param userUuid      user id to get details of specific user.
-     * @param authorization holds the Bearer access token for authenticating
+     * @param userUuid user id to get details of specific user.
      * @return the user profile if the conditions are satisfied
      * @throws AuthorizationFailedException If the access token provided by the user does not exist in the database,
      *                                      If the user has signed out
      * @throws UserNotFoundException        If the user with uuid whose profile is to be retrieved does not exist in the database
      */
-    public User getUser(final String userUuid, final String authorization) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to get user details");
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public User getUser(final String userUuid) throws AuthorizationFailedException, UserNotFoundException {
+        UserAuthEntity userAuthEntity = validateUserAuthentication("User is signed out.Sign in first to get user details");
         User user = userDao.getUserByUUID(userUuid);
         /**
          * If the user with uuid whose profile is to be retrieved does not exist
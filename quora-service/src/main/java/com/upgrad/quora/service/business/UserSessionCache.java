@@ -0,0 +1,219 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of validated user sessions keyed by access token.
+ * Entries are evicted when their TTL (capped by the session expiry) elapses or when the cache grows
+ * beyond its configured size, oldest entries first. Lookups are lock free so the cache can sit in front
+ * of every authenticated request; the changes take a lock which keeps the eviction order in step with the entries.
+ * A session is only cached if no invalidation of its access token happened since it was looked up, so a request
+ * which read the session before a sign out committed cannot cache it again afterwards. Invalidations are counted per
+ * stripe of access tokens, so a sign out only keeps the sessions of its stripe looked up meanwhile from being cached.
+ */
+@Component
+public class UserSessionCache {
+
+    private static final int INVALIDATION_STRIPES = 64;
+
+    @Value("${quora.session-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${quora.session-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, CachedSession> sessions = new ConcurrentHashMap<>();
+
+    // The cached sessions oldest first, holding the same entries as sessions; guarded by itself
+    private final Map<String, CachedSession> insertionOrder = new LinkedHashMap<>();
+
+    // The invalidations of the access tokens of each stripe; incremented under the lock of insertionOrder
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Returns the cached session for the access token if present and not yet expired
+     *
+     * @param accessToken The access token sent by the client
+     * @return The cached session, null if it has to be looked up from the database
+     */
+    public UserAuthEntity get(final String accessToken) {
+        final CachedSession cachedSession = sessions.get(accessToken);
+        if (cachedSession == null) {
+            misses.increment();
+            return null;
+        }
+        if (cachedSession.isExpired(System.nanoTime())) {
+            if (remove(cachedSession)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cachedSession.session;
+    }
+
+    /**
+     * Returns the invalidation generation of the access token, to be read before its session is looked up
+     *
+     * @param accessToken The access token sent by the client
+     * @return The generation to pass to {@link #put(String, UserAuthEntity, long)}
+     */
+    public long generation(final String accessToken) {
+        return invalidations.get(stripeOf(accessToken));
+    }
+
+    /**
+     * Caches a validated session. Sessions that are logged out or already expired are never cached, nor are the ones
+     * whose access token was invalidated since they were looked up
+     *
+     * @param accessToken    The access token the session was looked up with
+     * @param userAuthEntity The validated session holding the signed in user
+     * @param generation     The generation of the access token read before the session was looked up
+     */
+    public void put(final String accessToken, final UserAuthEntity userAuthEntity, final long generation) {
+        if (userAuthEntity.getLogoutAt() != null) {
+            return;
+        }
+        final long now = System.nanoTime();
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        if (userAuthEntity.getExpiresAt() != null) {
+            final long millisToExpiry = userAuthEntity.getExpiresAt().toInstant().toEpochMilli() - System.currentTimeMillis();
+            if (millisToExpiry <= 0) {
+                return;
+            }
+            ttlNanos = Math.min(ttlNanos, TimeUnit.MILLISECONDS.toNanos(millisToExpiry));
+        }
+        final CachedSession cachedSession = new CachedSession(accessToken, userAuthEntity, now + ttlNanos);
+        synchronized (insertionOrder) {
+            if (invalidations.get(stripeOf(accessToken)) != generation) {
+                return;
+            }
+            // Re-inserted, so a session cached again moves to the end of the eviction order
+            insertionOrder.remove(accessToken);
+            insertionOrder.put(accessToken, cachedSession);
+            sessions.put(accessToken, cachedSession);
+            final Iterator<CachedSession> eldest = insertionOrder.values().iterator();
+            while (eldest.hasNext()) {
+                final CachedSession candidate = eldest.next();
+                // Expired sessions which are not looked up again are dropped once they reach the front
+                if (insertionOrder.size() <= maxSize && !candidate.isExpired(now)) {
+                    break;
+                }
+                eldest.remove();
+                sessions.remove(candidate.accessToken, candidate);
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes the session cached for the access token, e.g. once the user signs out.
+     * The removal is repeated after the surrounding transaction commits so a concurrent request
+     * cannot re-populate the cache with the state before the commit
+     *
+     * @param accessToken The access token of the session to be removed
+     */
+    public void invalidate(final String accessToken) {
+        final Runnable removal = () -> {
+            synchronized (insertionOrder) {
+                invalidations.incrementAndGet(stripeOf(accessToken));
+                insertionOrder.remove(accessToken);
+                sessions.remove(accessToken);
+            }
+        };
+        removal.run();
+        afterCommit(removal);
+    }
+
+    /**
+     * Removes all the sessions cached for a user, e.g. once the user is deleted
+     *
+     * @param userId The id attribute of the user whose sessions are to be removed
+     */
+    public void invalidateUser(final Integer userId) {
+        final Runnable removal = () -> {
+            synchronized (insertionOrder) {
+                for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++) {
+                    invalidations.incrementAndGet(stripe);
+                }
+                insertionOrder.values().removeIf(cachedSession -> userId.equals(cachedSession.session.getUser().getId()));
+                sessions.values().removeIf(cachedSession -> userId.equals(cachedSession.session.getUser().getId()));
+            }
+        };
+        removal.run();
+        afterCommit(removal);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private boolean remove(final CachedSession cachedSession) {
+        synchronized (insertionOrder) {
+            insertionOrder.remove(cachedSession.accessToken, cachedSession);
+            return sessions.remove(cachedSession.accessToken, cachedSession);
+        }
+    }
+
+    private static int stripeOf(final String accessToken) {
+        return Math.floorMod(accessToken.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private static void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static final class CachedSession {
+        private final String accessToken;
+        private final UserAuthEntity session;
+        private final long expiresAtNanos;
+
+        private CachedSession(final String accessToken, final UserAuthEntity session, final long expiresAtNanos) {
+            this.accessToken = accessToken;
+            this.session = session;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(final long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.util.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purges expired sessions, signed out or not, from the user_auth table in the background.
+ * Session expirations are tracked in memory with a {@link HierarchicalTimingWheel}, so the table is only
+ * swept once sessions are known to be purgeable, plus a low frequency safety sweep for sessions created
+ * before startup or by other instances. Every batch is deleted in its own short transaction.
+ */
+@Component
+public class UserSessionSweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserSessionSweeper.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.session-sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quora.session-sweeper.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${quora.session-sweeper.safety-sweep-minutes:60}")
+    private long safetySweepMinutes;
+
+    private final HierarchicalTimingWheel<Integer> expirations =
+            new HierarchicalTimingWheel<>(1000L, 60, System.currentTimeMillis());
+
+    private final AtomicLong backlog = new AtomicLong();
+
+    private final LongAdder rowsPurged = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder totalBatchNanos = new LongAdder();
+
+    private volatile long lastBatchNanos;
+
+    private volatile long nextSafetySweepMillis;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Sessions left behind before the startup are unknown, so the first run sweeps the table
+        nextSafetySweepMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Tracks a new session so it is purged once it expires
+     *
+     * @param sessionId The id attribute of the session
+     * @param expiresAt The expiry time of the session
+     */
+    public void track(final Integer sessionId, final ZonedDateTime expiresAt) {
+        if (!expirations.schedule(sessionId, expiresAt.toInstant().toEpochMilli())) {
+            backlog.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quora.session-sweeper.tick-millis:1000}")
+    public void sweep() {
+        final long now = System.currentTimeMillis();
+        backlog.addAndGet(expirations.advance(now, sessionId -> {
+        }));
+        final boolean safetySweep = now >= nextSafetySweepMillis;
+        if (backlog.get() <= 0 && !safetySweep) {
+            return;
+        }
+        if (safetySweep) {
+            nextSafetySweepMillis = now + TimeUnit.MINUTES.toMillis(safetySweepMinutes);
+        }
+
+        int purged = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            final long start = System.nanoTime();
+            final ZonedDateTime purgeBefore = ZonedDateTime.now();
+            final Integer deleted = transactionTemplate.execute(status -> userDao.deleteExpiredSessions(purgeBefore, batchSize));
+            lastBatchNanos = System.nanoTime() - start;
+            totalBatchNanos.add(lastBatchNanos);
+            batches.increment();
+            rowsPurged.add(deleted);
+            purged += deleted;
+            if (deleted < batchSize) {
+                // Nothing left to purge, whatever the tracked backlog says
+                backlog.set(0);
+                break;
+            }
+            backlog.updateAndGet(pending -> Math.max(0, pending - deleted));
+        }
+        if (purged > 0) {
+            LOG.debug("Purged {} expired or signed out sessions", purged);
+        }
+    }
+
+    public long getRowsPurged() {
+        return rowsPurged.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getLastBatchLatencyNanos() {
+        return lastBatchNanos;
+    }
+
+    public long getTotalBatchLatencyNanos() {
+        return totalBatchNanos.sum();
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    public int getTrackedSessions() {
+        return expirations.size();
+    }
+}
@@ -0,0 +1,54 @@
+package com.upgrad.quora.service.common;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset paginated listing, along with the cursor of the next page if there is one
+ *
+ * @param <T> The type of the rows
+ */
+public final class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private CursorPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * This method builds a page from rows fetched with a limit of one more than the page size,
+     * the extra row only telling that there is a next page
+     *
+     * @param rows     The rows fetched, at most limit + 1
+     * @param limit    The page size
+     * @param keyOf    Extracts the keyset position of a row
+     * @param <T>      The type of the rows
+     * @return The page holding at most limit rows
+     */
+    public static <T> CursorPage<T> of(final List<T> rows, final int limit, final Function<T, PageCursor> keyOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        final List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(items, keyOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public static <T> CursorPage<T> empty() {
+        return new CursorPage<>(Collections.emptyList(), null);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The opaque cursor of the next page, null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
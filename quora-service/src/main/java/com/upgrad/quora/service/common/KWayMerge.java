@@ -0,0 +1,98 @@
+package com.upgrad.quora.service.common;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Merges rows read from several sources, each in the same order, into a single sequence in that order.
+ * A heap holds the next row of every source, so only one row per source is held at a time besides what the sources
+ * themselves buffer.
+ */
+public final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    /**
+     * @param sources  The sources, each returning its rows in the order
+     * @param order    The order of the rows
+     * @param limit    The maximum number of rows handed over
+     * @param consumer Receives the rows of all the sources in order
+     * @param <T>      The type of the rows
+     */
+    public static <T> void merge(final List<Iterator<T>> sources, final Comparator<? super T> order, final long limit,
+                                 final Consumer<T> consumer) {
+        final PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (left, right) -> order.compare(left.row, right.row));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+        long handedOver = 0;
+        while (!heads.isEmpty() && handedOver < limit) {
+            final Head<T> head = heads.poll();
+            consumer.accept(head.row);
+            handedOver++;
+            if (head.source.hasNext()) {
+                heads.add(new Head<>(head.source.next(), head.source));
+            }
+        }
+    }
+
+    /**
+     * This method reads a source page by page, the next page being read only once the previous one is consumed
+     *
+     * @param pageAfter Reads the page of rows following the row passed, or the first page when passed null.
+     *                  An empty page ends the source
+     * @param <T>       The type of the rows
+     * @return The rows of all the pages, in order
+     */
+    public static <T> Iterator<T> pages(final Function<T, List<T>> pageAfter) {
+        return new Iterator<T>() {
+
+            private Iterator<T> page = pageAfter.apply(null).iterator();
+
+            private T last;
+
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !ended) {
+                    final List<T> nextPage = last == null ? Collections.<T>emptyList() : pageAfter.apply(last);
+                    ended = nextPage.isEmpty();
+                    page = nextPage.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = page.next();
+                return last;
+            }
+        };
+    }
+
+    private static final class Head<T> {
+
+        private final T row;
+
+        private final Iterator<T> source;
+
+        private Head(final T row, final Iterator<T> source) {
+            this.row = row;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+
+/**
+ * The position of a keyset page: the (date, id) key of the last row of the previous page.
+ * Rows are ordered by date then id, both descending, so the next page starts right after this key whatever
+ * was inserted or deleted meanwhile, and is found through the index rather than by skipping rows.
+ * Clients only ever see the cursor as an opaque string.
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+    private static final char SEPARATOR = '.';
+
+    private final ZonedDateTime date;
+    private final Integer id;
+
+    private PageCursor(final ZonedDateTime date, final Integer id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public static PageCursor of(final ZonedDateTime date, final Integer id) {
+        return new PageCursor(date, id);
+    }
+
+    /**
+     * This method encodes the cursor into the opaque string handed to the clients
+     *
+     * @return URL safe encoded cursor
+     */
+    public String encode() {
+        final Instant instant = date.toInstant();
+        final String key = VERSION + SEPARATOR + instant.getEpochSecond() + SEPARATOR + instant.getNano() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * This method decodes a cursor received from a client
+     *
+     * @param cursor The opaque cursor string, null or empty for the first page
+     * @return The decoded cursor, null for the first page
+     * @throws InvalidCursorException if the cursor was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(final String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            final String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            final String[] parts = key.split("\\" + SEPARATOR);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new InvalidCursorException("PAG-001", "The cursor entered is invalid");
+            }
+            final Instant instant = Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            return new PageCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), Integer.valueOf(parts[3]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidCursorException("PAG-001", "The cursor entered is invalid");
+        }
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
@@ -0,0 +1,19 @@
+package com.upgrad.quora.service.common;
+
+import java.util.function.Consumer;
+
+/**
+ * A listing whose rows are read from the database one by one as they are consumed, without being collected.
+ * Every call to {@link #forEach(Consumer)} reads the rows afresh in its own read only transaction, so it can
+ * be run after the request thread returned, e.g. while streaming a response.
+ *
+ * @param <T> The type of the rows
+ */
+@FunctionalInterface
+public interface RowStream<T> {
+
+    /**
+     * @param consumer Receives each row in order; the rows must not be retained by it
+     */
+    void forEach(Consumer<T> consumer);
+}
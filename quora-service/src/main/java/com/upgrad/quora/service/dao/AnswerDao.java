@@ -1,12 +1,31 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.dto.AnswerRevision;
+import com.upgrad.quora.service.dto.AnswerSummary;
 import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.StringType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class AnswerDao {
@@ -14,15 +33,48 @@ public class AnswerDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserDao userDao;
+
     /**
-     * Saves the answer for the question
+     * Saves the answer for the question, on the shard named by its UUID, which is the shard of the question
      *
      * @param answerEntity answer for the question
      * @return answer for the question
      */
     public Answer createAnswer(Answer answerEntity) {
-        entityManager.persist(answerEntity);
-        return answerEntity;
+        final int shard = shardRouter.shardOf(answerEntity.getUuid());
+        return shardRouter.inShard(shard, () -> {
+            userDao.copyUserToShard(shard, answerEntity.getUser());
+            entityManager.persist(answerEntity);
+            return answerEntity;
+        });
+    }
+
+    /**
+     * Saves a chunk of new answers, which are inserted by JDBC batches when flushed,
+     * and then detached so the persistence context does not grow with the chunks of a bulk request
+     * The answers are posted by the same user to the same question, so they are stored on the same shard
+     *
+     * @param answers The answers to be saved
+     */
+    public void createAnswers(final List<Answer> answers) {
+        if (answers.isEmpty()) {
+            return;
+        }
+        final int shard = shardRouter.shardOf(answers.get(0).getUuid());
+        shardRouter.inShard(shard, () -> {
+            userDao.copyUserToShard(shard, answers.get(0).getUser());
+            for (Answer answer : answers) {
+                entityManager.persist(answer);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
     }
 
     /**
@@ -32,41 +84,142 @@ public class AnswerDao {
      * @return the answer present in db
      */
     public Answer getAnswerByUUID(String answerUUID) {
-        try {
-            return entityManager.createNamedQuery("answerByUUID", Answer.class).setParameter("uuid", answerUUID).getSingleResult();
-        } catch (NoResultException nre) {
+        final UUID uuid = TimeOrderedUuid.parse(answerUUID);
+        // A value which is not a UUID matches no answer
+        if (uuid == null) {
             return null;
         }
+        return shardRouter.onShardOf(uuid, (shard, fallback) -> {
+            try {
+                return entityManager.createNamedQuery("answerByUUID", Answer.class)
+                        .setParameter("uuid", uuid).setHint(QueryHints.CACHEABLE, !fallback).getSingleResult();
+            } catch (NoResultException nre) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves a page of the answer records based on the question, newest first
+     * The answers are read from the shard of the question, named by its UUID
+     *
+     * @param questionUUID The UUID of the question
+     * @param questionId   The question Id attribute to pull the answers with foreign key value
+     * @param after        The position of the last answer of the previous page, null for the first page
+     * @param limit        The maximum number of answers retrieved
+     * @return The list of answer summaries matched with the question Id following the position passed
+     */
+    public List<AnswerSummary> getAnswersByQuestionIdPage(final String questionUUID, final Integer questionId, final PageCursor after,
+                                                          final int limit) {
+        final List<AnswerSummary> page = shardRouter.onShardOf(TimeOrderedUuid.parse(questionUUID), (shard, fallback) -> {
+            final TypedQuery<AnswerSummary> query = after == null
+                    ? entityManager.createNamedQuery("answersByQuestionIdPage", AnswerSummary.class)
+                    : entityManager.createNamedQuery("answersByQuestionIdPageAfter", AnswerSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
+            final List<AnswerSummary> answers = query.setParameter("questionId", questionId).setMaxResults(limit).getResultList();
+            return answers.isEmpty() ? null : answers;
+        });
+        return page == null ? Collections.<AnswerSummary>emptyList() : page;
     }
 
     /**
-     * Retrieves all the answer records based on the question
+     * Streams the summaries of the answers to a question, newest first, without loading the answer entities
+     * Rows are read through a forward only cursor and handed over one by one, so none of them is retained.
+     * Has to be called within a transaction
+     * The answers are read from the shard of the question, named by its UUID
      *
-     * @param questionId The question Id attribute to pull the answers with foreign key value
-     * @return The list of all answers matched with the question Id
+     * @param questionUUID The UUID of the question
+     * @param questionId   The question Id attribute to pull the answers with foreign key value
+     * @param fetchSize    The number of rows fetched per round trip
+     * @param consumer     Receives each answer in order
      */
-    public List<Answer> getAllAnswersByQuestionId(Integer questionId) {
-        return entityManager.createNamedQuery("answerByQuestionId", Answer.class).setParameter("questionId", questionId).getResultList();
+    public void streamAnswersByQuestionId(final String questionUUID, final Integer questionId, final int fetchSize,
+                                          final Consumer<AnswerSummary> consumer) {
+        shardRouter.onShardOf(TimeOrderedUuid.parse(questionUUID), (shard, fallback) -> {
+            final ScrollableResults results = entityManager.createNamedQuery("answersByQuestionIdPage", AnswerSummary.class)
+                    .setParameter("questionId", questionId)
+                    .unwrap(Query.class).setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+            boolean found = false;
+            try {
+                while (results.next()) {
+                    consumer.accept((AnswerSummary) results.get(0));
+                    found = true;
+                }
+            } finally {
+                results.close();
+            }
+            return found ? Boolean.TRUE : null;
+        });
     }
 
     /**
-     * This method is used to delete the answer record from db
+     * Edits the content of an answer in a single conditional statement, which also checks the owner and the version,
+     * so the answer is neither read beforehand nor overwritten by a concurrent edit
+     * The statement runs in the transaction of the shard holding the answer, see {@link ShardRouter#writeOnShardOf}
      *
-     * @param answer entity to be deleted from db
+     * @param uuid            The UUID of the answer to be edited
+     * @param content         The new content of the answer
+     * @param userId          The id of the user editing the answer, who has to be its owner
+     * @param expectedVersion The version the answer has to be at, null for any version
+     * @return The edited answer with its new version, null if no answer matched all the conditions
      */
-    public void deleteAnswer(Answer answer) {
-        entityManager.remove(answer);
+    public AnswerRevision editAnswerContent(final UUID uuid, final String content, final Integer userId,
+                                            final Integer expectedVersion) {
+        final List<Object[]> rows = entityManager.createNativeQuery("UPDATE answer a SET ans = :content, version = a.version + 1"
+                + " FROM question q WHERE q.id = a.question_id AND a.uuid = :uuid AND a.user_id = :userId"
+                + " AND (:anyVersion OR a.version = :version) RETURNING a.id, a.version, CAST(q.uuid AS VARCHAR) AS question_uuid")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE).addScalar("version", IntegerType.INSTANCE).addScalar("question_uuid", StringType.INSTANCE)
+                .addSynchronizedEntityClass(Answer.class)
+                .setParameter("content", content).setParameter("uuid", uuid).setParameter("userId", userId)
+                .setParameter("anyVersion", expectedVersion == null).setParameter("version", expectedVersion == null ? 0 : expectedVersion)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        final AnswerRevision revision = new AnswerRevision((Integer) rows.get(0)[0], uuid.toString(), (Integer) rows.get(0)[1], (String) rows.get(0)[2]);
+        evictAfterCommit(revision.getId(), false);
+        return revision;
     }
 
     /**
-     * This method is used to update the answer content to db
+     * Deletes an answer in a single conditional statement, which also checks the owner and the version
+     * The statement runs in the transaction of the shard holding the answer, see {@link ShardRouter#writeOnShardOf}
      *
-     * @param answer Is the answer that needed to be merged to db
-     * @return answer that is merged in db
+     * @param uuid            The UUID of the answer to be deleted
+     * @param userId          The id of the user deleting the answer, who has to be its owner unless an admin
+     * @param admin           Whether the user is an admin, who can delete any answer
+     * @param expectedVersion The version the answer has to be at, null for any version
+     * @return The deleted answer, null if no answer matched all the conditions
      */
-    public Answer updateAnswerContent(Answer answer) {
-        entityManager.merge(answer);
-        return answer;
+    public AnswerRevision deleteAnswer(final UUID uuid, final Integer userId, final boolean admin, final Integer expectedVersion) {
+        final List<Object[]> rows = entityManager.createNativeQuery("DELETE FROM answer a USING question q"
+                + " WHERE q.id = a.question_id AND a.uuid = :uuid AND (a.user_id = :userId OR :admin)"
+                + " AND (:anyVersion OR a.version = :version) RETURNING a.id, CAST(q.uuid AS VARCHAR) AS question_uuid")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE).addScalar("question_uuid", StringType.INSTANCE)
+                .addSynchronizedEntityClass(Answer.class)
+                .setParameter("uuid", uuid).setParameter("userId", userId).setParameter("admin", admin)
+                .setParameter("anyVersion", expectedVersion == null).setParameter("version", expectedVersion == null ? 0 : expectedVersion)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        final AnswerRevision revision = new AnswerRevision((Integer) rows.get(0)[0], uuid.toString(), null, (String) rows.get(0)[1]);
+        evictAfterCommit(revision.getId(), true);
+        return revision;
+    }
+
+    // The statements run past the persistence context and the second level cache, which are told about the change here
+    private void evictAfterCommit(final Integer answerId, final boolean deleted) {
+        final Cache cache = entityManager.getEntityManagerFactory().getCache();
+        AfterCommit.run(() -> {
+            cache.evict(Answer.class, answerId);
+            if (deleted) {
+                // The cached lookups by UUID would still return the id of the deleted answer
+                cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+            }
+        });
     }
 
 }
@@ -1,71 +1,232 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import com.upgrad.quora.service.entity.Answer;
 import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.Query;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.ZonedDateTimeType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class QuestionDao {
 
+    // The order of the listings, in which the rows read from several shards are merged
+    private static final Comparator<QuestionSummary> NEWEST_FIRST =
+            Comparator.comparing(QuestionSummary::getDate).thenComparing(QuestionSummary::getId).reversed();
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private UserDao userDao;
+
     /**
-     * This method is to store the newly created question in DB
+     * This method is to store the newly created question in DB, on the shard named by its UUID
      *
      * @param question Is the question that needed to be saved in DB
      * @return The question that is saved in DB
      */
     public Question createQuestion(Question question) {
-        entityManager.persist(question);
-        return question;
+        final int shard = shardRouter.shardOf(question.getUuid());
+        return shardRouter.inShard(shard, () -> {
+            userDao.copyUserToShard(shard, question.getUser());
+            entityManager.persist(question);
+            question.setShard(shard);
+            return question;
+        });
+    }
+
+    /**
+     * This method stores a chunk of new questions, which are inserted by JDBC batches when flushed,
+     * and then detached so the persistence context does not grow with the chunks of a bulk request
+     * The questions are posted by the same user, so they are stored on the same shard
+     *
+     * @param questions The questions that needed to be saved in DB
+     */
+    public void createQuestions(final List<Question> questions) {
+        if (questions.isEmpty()) {
+            return;
+        }
+        final int shard = shardRouter.shardOf(questions.get(0).getUuid());
+        shardRouter.inShard(shard, () -> {
+            userDao.copyUserToShard(shard, questions.get(0).getUser());
+            for (Question question : questions) {
+                entityManager.persist(question);
+                question.setShard(shard);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
     }
 
 
     /**
-     * This method is update the existing question in DB
+     * Edits the content of a question in a single conditional statement, which also checks the owner and the version,
+     * so the question is neither read beforehand nor overwritten by a concurrent edit
+     * The statement runs in the transaction of the shard passed, see {@link ShardRouter#writeOnShardOf}
      *
-     * @param question Is the question that needed to be saved in DB
-     * @return The question that is updated in DB
+     * @param uuid            The UUID of the question to be edited
+     * @param shard           The shard of the current transaction
+     * @param content         The new content of the question
+     * @param userId          The id of the user editing the question, who has to be its owner
+     * @param expectedVersion The version the question has to be at, null for any version
+     * @return The edited question with its new version, not managed, null if no question matched all the conditions
      */
-    public Question updateQuestion(Question question) { // Edit Question method (JPA merge state)
-        entityManager.merge(question);
+    public Question editQuestionContent(final UUID uuid, final int shard, final String content, final Integer userId,
+                                        final Integer expectedVersion) {
+        final List<Object[]> rows = entityManager.createNativeQuery("UPDATE question SET content = :content, version = version + 1"
+                + " WHERE uuid = :uuid AND user_id = :userId AND (:anyVersion OR version = :version) RETURNING id, date, version")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE).addScalar("date", ZonedDateTimeType.INSTANCE).addScalar("version", IntegerType.INSTANCE)
+                .addSynchronizedEntityClass(Question.class)
+                .setParameter("content", content).setParameter("uuid", uuid).setParameter("userId", userId)
+                .setParameter("anyVersion", expectedVersion == null).setParameter("version", expectedVersion == null ? 0 : expectedVersion)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        final Question question = new Question();
+        question.setId((Integer) rows.get(0)[0]);
+        question.setUuid(uuid.toString());
+        question.setContent(content);
+        question.setDate((ZonedDateTime) rows.get(0)[1]);
+        question.setVersion((Integer) rows.get(0)[2]);
+        question.setShard(shard);
+        evictAfterCommit(question.getId(), false);
         return question;
     }
 
     /**
-     * This method is used to delete a question
+     * Deletes a question in a single conditional statement, which also checks the owner and the version
+     * The statement runs in the transaction of the shard holding the question, see {@link ShardRouter#writeOnShardOf}
      *
-     * @param question Is the question that needed to be deleted
+     * @param uuid            The UUID of the question to be deleted
+     * @param userId          The id of the user deleting the question, who has to be its owner unless an admin
+     * @param admin           Whether the user is an admin, who can delete any question
+     * @param expectedVersion The version the question has to be at, null for any version
+     * @return The id of the deleted question, null if no question matched all the conditions
      */
-    public void deleteQuestion(Question question) {
-        entityManager.remove(question);
+    public Integer deleteQuestion(final UUID uuid, final Integer userId, final boolean admin, final Integer expectedVersion) {
+        final List<Integer> ids = entityManager.createNativeQuery("DELETE FROM question"
+                + " WHERE uuid = :uuid AND (user_id = :userId OR :admin) AND (:anyVersion OR version = :version) RETURNING id")
+                .unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE)
+                .addSynchronizedEntityClass(Question.class)
+                .setParameter("uuid", uuid).setParameter("userId", userId).setParameter("admin", admin)
+                .setParameter("anyVersion", expectedVersion == null).setParameter("version", expectedVersion == null ? 0 : expectedVersion)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return null;
+        }
+        evictAfterCommit(ids.get(0), true);
+        return ids.get(0);
+    }
+
+    // The statements run past the persistence context and the second level cache, which are told about the change here
+    private void evictAfterCommit(final Integer questionId, final boolean deleted) {
+        final Cache cache = entityManager.getEntityManagerFactory().getCache();
+        AfterCommit.run(() -> {
+            cache.evict(Question.class, questionId);
+            if (deleted) {
+                // The answers are deleted along by the database
+                cache.evict(Answer.class);
+                cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+            }
+        });
     }
 
     /**
-     * Retrieves all the questions present in the Database question table and returns as a list
+     * Retrieves a page of the questions present in the Database question table, newest first
+     * The first questions of every shard are merged into the page
      *
-     * @return The list of questions present in the question table
+     * @param after The position of the last question of the previous page, null for the first page
+     * @param limit The maximum number of questions retrieved
+     * @return The list of question summaries following the position passed
      */
-    public List<Question> getAllQuestions() {
-        final List<Question> allQuestions = entityManager.createQuery("select q from Question q", Question.class).getResultList();
-        return allQuestions;
+    public List<QuestionSummary> getQuestionsPage(final PageCursor after, final int limit) {
+        return shardRouter.gather(shardRouter.allShards(), shard -> getShardQuestionsPage(after, limit), NEWEST_FIRST, limit);
+    }
+
+    private List<QuestionSummary> getShardQuestionsPage(final PageCursor after, final int limit) {
+        final TypedQuery<QuestionSummary> query = after == null
+                ? entityManager.createNamedQuery("questionsPage", QuestionSummary.class)
+                : entityManager.createNamedQuery("questionsPageAfter", QuestionSummary.class)
+                .setParameter("date", after.getDate()).setParameter("id", after.getId());
+        return query.setMaxResults(limit).getResultList();
     }
 
 
     /**
-     * Retrieves all the questions posted by a user matched with the userId field
+     * Retrieves a page of the questions posted by a user matched with the userId field, newest first
      * Here the userId is the Id attribute in User Entity
+     * Only the shards which may hold questions of the user are read
      *
      * @param userId The user id Id attribute of User Entity to pull the questions posted by that user
-     * @return The list of all questions posted by the matched user
+     * @param after  The position of the last question of the previous page, null for the first page
+     * @param limit  The maximum number of questions retrieved
+     * @return The list of question summaries posted by the matched user following the position passed
+     */
+    public List<QuestionSummary> getQuestionsByUserIdPage(final Integer userId, final PageCursor after, final int limit) {
+        return shardRouter.gather(shardRouter.shardsOfUser(userId), shard -> {
+            final TypedQuery<QuestionSummary> query = after == null
+                    ? entityManager.createNamedQuery("questionsByUserIdPage", QuestionSummary.class)
+                    : entityManager.createNamedQuery("questionsByUserIdPageAfter", QuestionSummary.class)
+                    .setParameter("date", after.getDate()).setParameter("id", after.getId());
+            return query.setParameter("userId", userId).setMaxResults(limit).getResultList();
+        }, NEWEST_FIRST, limit);
+    }
+
+    /**
+     * Streams the summaries of all the questions, newest first, without loading the question entities
+     * Rows are read through a forward only cursor and handed over one by one, so none of them is retained.
+     * Has to be called within a transaction
+     * When sharded, every shard is read by pages of the fetch size instead, the pages being merged as they are consumed
+     *
+     * @param fetchSize The number of rows fetched per round trip
+     * @param consumer  Receives each question in order
      */
-    public List<Question> findQuestionByUserId(Integer userId) {
-        return entityManager.createNamedQuery("questionByUserId", Question.class).setParameter("userId", userId).getResultList();
+    public void streamQuestions(final int fetchSize, final Consumer<QuestionSummary> consumer) {
+        if (shardRouter.isEnabled()) {
+            shardRouter.stream((shard, last) -> getShardQuestionsPage(last == null ? null : PageCursor.of(last.getDate(), last.getId()),
+                    fetchSize), NEWEST_FIRST, consumer);
+            return;
+        }
+        final ScrollableResults results = entityManager.createNamedQuery("questionsPage", QuestionSummary.class)
+                .unwrap(Query.class).setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((QuestionSummary) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
     }
 
     /**
@@ -74,11 +235,69 @@ public class QuestionDao {
      * @return The question present in the question table
      */
     public Question getQuestionByUUID(String questionUUID) {
-        try {
-            return entityManager.createNamedQuery("questionByUUID", Question.class).setParameter("uuid", questionUUID).getSingleResult();
-        } catch (NoResultException nre) {
+        final UUID uuid = TimeOrderedUuid.parse(questionUUID);
+        // A value which is not a UUID matches no question
+        if (uuid == null) {
+            return null;
+        }
+        return shardRouter.onShardOf(uuid, (shard, fallback) -> {
+            try {
+                final Question question = entityManager.createNamedQuery("questionByUUID", Question.class)
+                        .setParameter("uuid", uuid).setHint(QueryHints.CACHEABLE, !fallback).getSingleResult();
+                question.setShard(shard);
+                return question;
+            } catch (NoResultException nre) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Retrieves the ids of the questions posted by a user
+     *
+     * @param userId The Id attribute of User Entity
+     * @return The ids of the questions posted by the user
+     */
+    public List<Integer> getQuestionIdsByUserId(final Integer userId) {
+        final List<Integer> ids = new ArrayList<>();
+        shardRouter.onShards(shardRouter.shardsOfUser(userId), shard ->
+                ids.addAll(entityManager.createNamedQuery("questionIdsByUserId", Integer.class).setParameter("userId", userId).getResultList()));
+        return ids;
+    }
+
+    /**
+     * Retrieves the questions whose content contains the text passed, ignoring case, newest first
+     * Used for searching while the search index is not available, as it scans the question table
+     *
+     * @param text  The text to be contained in the question content
+     * @param limit The maximum number of questions retrieved
+     * @return The list of matching question summaries
+     */
+    public List<QuestionSummary> getQuestionsByContent(final String text, final int limit) {
+        final String pattern = "%" + text.toLowerCase(Locale.ROOT).replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return shardRouter.gather(shardRouter.allShards(), shard -> entityManager.createNamedQuery("questionsByContentLike", QuestionSummary.class)
+                .setParameter("pattern", pattern).setMaxResults(limit).getResultList(), NEWEST_FIRST, limit);
+    }
+
+    /**
+     * Retrieves the id of the question matched with the UUID, without loading the question
+     *
+     * @param questionUUID The UUID of the question
+     * @return The id of the question, null if no question matches
+     */
+    public Integer getQuestionIdByUUID(final String questionUUID) {
+        final UUID uuid = TimeOrderedUuid.parse(questionUUID);
+        if (uuid == null) {
             return null;
         }
+        return shardRouter.onShardOf(uuid, (shard, fallback) -> {
+            try {
+                return entityManager.createNamedQuery("questionIdByUUID", Integer.class)
+                        .setParameter("uuid", uuid).setHint(QueryHints.CACHEABLE, !fallback).getSingleResult();
+            } catch (NoResultException nre) {
+                return null;
+            }
+        });
     }
 
 }
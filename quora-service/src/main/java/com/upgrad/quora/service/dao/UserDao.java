@@ -1,19 +1,47 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.datasource.ShardRouter;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.User;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StringType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 @Repository
 public class UserDao {
 
+    private static final Logger LOG = LoggerFactory.getLogger(UserDao.class);
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private ShardRouter shardRouter;
+
+    // The users known to be copied to a shard, by shard and id, so the copy is not attempted by every write
+    private final Set<Long> usersCopiedToShards = ConcurrentHashMap.newKeySet();
+
     /**
      * Persists the User Information in the Database table
      *
@@ -25,6 +53,46 @@ public class UserDao {
         return user;
     }
 
+    /**
+     * Copies a user to a shard other than shard 0, which holds the users, so the questions and answers of the user
+     * stored on that shard refer to it. The copy is made by the first question or answer of the user on the shard,
+     * and holds no credentials, as the users sign in on shard 0 only.
+     * Has to be called within a transaction on the shard
+     *
+     * @param shard The shard the current transaction is on
+     * @param user  The user to be copied
+     */
+    public void copyUserToShard(final int shard, final User user) {
+        final long copyKey = copyKey(shard, user.getId());
+        if (shard == 0 || usersCopiedToShards.contains(copyKey)) {
+            return;
+        }
+        entityManager.createNativeQuery("INSERT INTO users (id, uuid, firstname, lastname, username, email, password, salt,"
+                + " country, aboutme, dob, role, contactnumber) VALUES (:id, :uuid, :firstName, :lastName, :userName, :email, '', '',"
+                + " :country, :aboutMe, :dob, :role, :contactNumber) ON CONFLICT (id) DO NOTHING")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(User.class)
+                .setParameter("id", user.getId()).setParameter("uuid", TimeOrderedUuid.parse(user.getUuid()))
+                .setParameter("firstName", user.getFirstName()).setParameter("lastName", user.getLastName())
+                .setParameter("userName", user.getUserName()).setParameter("email", user.getEmail())
+                // The optional details are typed, as a null is otherwise bound as binary
+                .setParameter("country", user.getCountry(), StringType.INSTANCE).setParameter("aboutMe", user.getAboutMe(), StringType.INSTANCE)
+                .setParameter("dob", user.getDob(), StringType.INSTANCE).setParameter("role", user.getRole(), StringType.INSTANCE)
+                .setParameter("contactNumber", user.getContactNumber(), StringType.INSTANCE)
+                .executeUpdate();
+        AfterCommit.run(() -> usersCopiedToShards.add(copyKey));
+    }
+
+    private static long copyKey(final int shard, final Integer userId) {
+        return ((long) shard << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Flushes the pending changes to the Database, so constraint violations are raised right away
+     */
+    public void flush() {
+        entityManager.flush();
+    }
+
     /**
      * This method is added to persist the authData in database
      *
@@ -64,6 +132,39 @@ public class UserDao {
         }
     }
 
+    /**
+     * Retrieves the users matching either the username or the email passed, in a single query
+     *
+     * @param username The username to match with the user records
+     * @param email    The email to match with the user records
+     * @return The users matching with the username or the email, at most one for each
+     */
+    public List<User> getUsersByUserNameOrEmail(final String username, final String email) {
+        return entityManager.createNamedQuery("usersByUserNameOrEmail", User.class)
+                .setParameter("userName", username).setParameter("email", email).getResultList();
+    }
+
+    /**
+     * Streams the username and email of every user, without loading the user entities.
+     * Rows are read through a forward only cursor, so the table is never held in memory at once.
+     * Has to be called within a transaction
+     *
+     * @param fetchSize The number of rows fetched per round trip
+     * @param consumer  Receives the username and email of each user
+     */
+    public void streamUserNamesAndEmails(final int fetchSize, final BiConsumer<String, String> consumer) {
+        final ScrollableResults results = entityManager.unwrap(Session.class)
+                .createQuery("select u.userName, u.email from User u")
+                .setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((String) results.get(0), (String) results.get(1));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
     /**
      * Retrieves the user auth record matched with the access token passed
      * The access token is the one generated at the time of login
@@ -79,6 +180,16 @@ public class UserDao {
         }
     }
 
+    /**
+     * Updates the User, like an upgraded password hash, to the Database
+     *
+     * @param updatedUser The User object to be updated in the Database
+     * @return The managed User holding the update
+     */
+    public User updateUser(final User updatedUser) {
+        return entityManager.merge(updatedUser);
+    }
+
     /**
      * Updates the User Auth Entity, like logout times or tokens to the Database
      *
@@ -87,24 +198,131 @@ public class UserDao {
     public void updateUserAuthEntity(final UserAuthEntity updatedUserAuthEntity) {
         entityManager.merge(updatedUserAuthEntity);
     }
+    /**
+     * Deletes a bounded batch of expired sessions, whether signed out or not.
+     * Signed out sessions are kept until they expire so their token is still reported as signed out.
+     * Rows locked by concurrent transactions are skipped rather than waited for, so a purge never blocks
+     * sign-in or sign-out
+     * The query is declared to touch the user_auth table alone, which is not cached, as a native update
+     * otherwise empties the whole second level cache
+     *
+     * @param now       The sessions expired before this time are deleted
+     * @param batchSize The maximum number of sessions deleted
+     * @return The number of sessions deleted
+     */
+    public int deleteExpiredSessions(final ZonedDateTime now, final int batchSize) {
+        return entityManager.createNativeQuery("DELETE FROM user_auth WHERE id IN (SELECT id FROM user_auth"
+                + " WHERE expires_at < :now LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("now", now).setParameter("batchSize", batchSize).executeUpdate();
+    }
+
     /**
      * Retrieves the user detail matched with the userId passed
      * @param userUUID Id of the user
      * @return matched userID detail
      */
     public User getUserByUUID(String userUUID) {
+        final UUID uuid = TimeOrderedUuid.parse(userUUID);
+        // A value which is not a UUID matches no user
+        if (uuid == null) {
+            return null;
+        }
         try {
-            return entityManager.createNamedQuery("userByUUID", User.class).setParameter("uuid", userUUID).getSingleResult();
+            return entityManager.createNamedQuery("userByUUID", User.class).setParameter("uuid", uuid).getSingleResult();
         } catch (NoResultException nre) {
             return null;
         }
     }
+
+    /**
+     * Retrieves the id of the user matched with the UUID, without loading the user
+     *
+     * @param userUUID The UUID of the user
+     * @return The id of the user, null if no user matches
+     */
+    public Integer getUserIdByUUID(final String userUUID) {
+        final UUID uuid = TimeOrderedUuid.parse(userUUID);
+        if (uuid == null) {
+            return null;
+        }
+        try {
+            return entityManager.createNamedQuery("userIdByUUID", Integer.class).setParameter("uuid", uuid).getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
     /**
      * This method is used to delete a user from db
+     * The user is deleted on shard 0 in the current transaction, and its copies on the other shards once that
+     * committed, each shard committing on its own, so a copy is never deleted for a deletion which is rolled back.
+     * A shard failing to delete its copy, e.g. while it is unavailable, keeps the copy and the questions and answers of
+     * the user on it, which stay listed until the ShardCopySweeper deletes them
      *
      * @param user Is User that needed to be deleted from db
      */
     public void deleteUser(User user) {
+        final Integer userId = user.getId();
         entityManager.remove(user);
+        // The questions and answers of the user are deleted along by the database, unknown to the second level cache
+        final Cache cache = entityManager.getEntityManagerFactory().getCache();
+        AfterCommit.run(() -> {
+            evictContent(cache);
+            for (int shard = 1; shard < shardRouter.getShardCount(); shard++) {
+                try {
+                    deleteUserCopy(shard, userId);
+                } catch (RuntimeException e) {
+                    LOG.warn("Copy of user {} left on shard {} for the sweep: {}", userId, shard, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the copy of a user on a shard other than shard 0, along with the questions and answers of the user
+     * stored on that shard, in a transaction of its own on the shard
+     *
+     * @param shard  The shard holding the copy
+     * @param userId The id of the user
+     */
+    public void deleteUserCopy(final int shard, final Integer userId) {
+        shardRouter.inShard(shard, () -> entityManager.createNativeQuery("DELETE FROM users WHERE id = :id")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(User.class, Question.class, Answer.class)
+                .setParameter("id", userId).executeUpdate());
+        usersCopiedToShards.remove(copyKey(shard, userId));
+        evictContent(entityManager.getEntityManagerFactory().getCache());
+    }
+
+    /**
+     * Reads the ids of the users copied to a shard other than shard 0, in order
+     *
+     * @param shard   The shard holding the copies
+     * @param afterId The id after which the ids are read
+     * @param limit   The maximum number of ids read
+     * @return The ids of the users copied to the shard
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> getUserCopyIds(final int shard, final Integer afterId, final int limit) {
+        return shardRouter.inShard(shard, () -> entityManager.createNativeQuery("SELECT id FROM users WHERE id > :afterId ORDER BY id")
+                .setParameter("afterId", afterId).setMaxResults(limit).getResultList());
+    }
+
+    /**
+     * Reads which of the users passed exist on shard 0, which holds the users
+     *
+     * @param userIds The ids of the users
+     * @return The ids of the users passed which exist
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> getExistingUserIds(final List<Integer> userIds) {
+        return shardRouter.inShard(0, () -> entityManager.createNativeQuery("SELECT id FROM users WHERE id IN (:ids)")
+                .setParameter("ids", userIds).getResultList());
+    }
+
+    private static void evictContent(final Cache cache) {
+        cache.evict(Question.class);
+        cache.evict(Answer.class);
+        cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
     }
 }
\ No newline at end of file
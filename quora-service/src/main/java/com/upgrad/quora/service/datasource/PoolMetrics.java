@@ -0,0 +1,35 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.sql.DataSource;
+
+/**
+ * Names the connection pools built by the routing data sources, and publishes their hikaricp.connections gauges and
+ * timers, e.g. of the active, idle and pending connections and of the acquire time, tagged by pool.
+ * The pool of spring.datasource is published by spring boot itself, as it is a bean, which these pools are not.
+ */
+final class PoolMetrics {
+
+    private PoolMetrics() {
+    }
+
+    /**
+     * @param dataSource    A pool built by a routing data source
+     * @param poolName      The name of the pool, tagging its metrics
+     * @param meterRegistry The registry the metrics are published to, null if there is none
+     * @return The pool passed
+     */
+    static DataSource track(final DataSource dataSource, final String poolName, final MeterRegistry meterRegistry) {
+        if (dataSource instanceof HikariDataSource) {
+            final HikariDataSource pool = (HikariDataSource) dataSource;
+            pool.setPoolName(poolName);
+            if (meterRegistry != null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            }
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.business.ReadYourWrites;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the data source of spring.datasource by one routing the read only transactions to replicas, when
+ * quora.replicas.enabled is set. The replicas share the driver and, unless configured otherwise, the credentials
+ * of the primary. A second database, or the primary itself, can stand in for a replica when run locally.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfiguration {
+
+    @Value("${quora.replicas.urls}")
+    private String[] replicaUrls;
+
+    @Value("${quora.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+
+    @Value("${quora.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+
+    @Value("${quora.replicas.max-lag-millis:5000}")
+    private long maxLagMillis;
+
+    @Value("${quora.replicas.validation-timeout-seconds:1}")
+    private int validationTimeoutSeconds;
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(final DataSourceProperties dataSourceProperties,
+                                                             final ReadYourWrites readYourWrites,
+                                                             final ObjectProvider<MeterRegistry> meterRegistry) {
+        readYourWrites.checkWindowCovers(maxLagMillis);
+        final DataSource primary = PoolMetrics.track(dataSourceProperties.initializeDataSourceBuilder().build(), "primary",
+                meterRegistry.getIfAvailable());
+        final List<DataSource> replicas = new ArrayList<>(replicaUrls.length);
+        for (String replicaUrl : replicaUrls) {
+            replicas.add(PoolMetrics.track(DataSourceBuilder.create()
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replicaUrl.trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build(), "replica-" + replicas.size(), meterRegistry.getIfAvailable()));
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWrites, maxLagMillis, validationTimeoutSeconds);
+    }
+
+    /**
+     * @return The data source used by JPA, deferring the choice of the target until the transaction has begun
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(final ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,174 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.business.ReadYourWrites;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes the connections of read only transactions to the healthy replicas in turn, and all the other connections to
+ * the primary. The reads of a session which wrote within the read-your-writes window stay on the primary, as do the
+ * reads which have to see every committed write and all the reads while no replica is healthy.
+ * The transaction is only known to be read only once it has begun, so this data source has to be wrapped by a
+ * LazyConnectionDataSourceProxy, which fetches the connection on the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+
+    // Zero on a database which is not a standby, e.g. a second primary standing in for a replica, and on a standby
+    // which replayed all the WAL it received: the age of the last replayed transaction keeps growing while the
+    // primary is idle, so it only measures the lag of a standby which still has WAL to replay
+    private static final String REPLICATION_LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0"
+            + " WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final ReadYourWrites readYourWrites;
+
+    private final long maxLagMillis;
+
+    private final int validationTimeoutSeconds;
+
+    // No replica is read from before it passed a health check
+    private volatile List<String> healthyReplicas = Collections.emptyList();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder replicaReads = new LongAdder();
+
+    /**
+     * @param primary                  The primary database, written to and read from by the read write transactions
+     * @param replicas                 The replicas of the primary
+     * @param readYourWrites           The sessions which have to read from the primary
+     * @param maxLagMillis             The replication lag above which a replica is not read from
+     * @param validationTimeoutSeconds The time a replica is given to answer a health check
+     */
+    public ReplicaRoutingDataSource(final DataSource primary, final List<DataSource> replicas, final ReadYourWrites readYourWrites,
+                                    final long maxLagMillis, final int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.maxLagMillis = maxLagMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int index = 0; index < replicas.size(); index++) {
+            targets.put(replicaKey(index), replicas.get(index));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.currentSessionWrote();
+            return PRIMARY;
+        }
+        final List<String> healthy = healthyReplicas;
+        if (healthy.isEmpty() || readYourWrites.isPrimaryRead() || readYourWrites.isCurrentSessionSticky()) {
+            return PRIMARY;
+        }
+        replicaReads.increment();
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    /**
+     * Checks that every replica answers and is not lagging behind the primary by more than the maximum lag,
+     * the replicas failing the check not being read from until they pass it again
+     */
+    @Scheduled(fixedDelayString = "${quora.replicas.health-check-millis:5000}")
+    public void checkReplicas() {
+        final List<String> healthy = new ArrayList<>(replicas.size());
+        for (int index = 0; index < replicas.size(); index++) {
+            final String key = replicaKey(index);
+            final String failure = check(replicas.get(index));
+            final boolean wasHealthy = healthyReplicas.contains(key);
+            if (failure == null) {
+                healthy.add(key);
+                if (!wasHealthy) {
+                    LOG.info("Replica {} is healthy, reads are routed to it", key);
+                }
+            } else if (wasHealthy) {
+                LOG.warn("Replica {} is unhealthy, reads are routed away from it: {}", key, failure);
+            }
+        }
+        healthyReplicas = Collections.unmodifiableList(healthy);
+        readYourWrites.purgeExpired();
+    }
+
+    /**
+     * @return The number of connections handed out by the replicas since startup
+     */
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return The number of replicas which passed their last health check
+     */
+    public int getHealthyReplicaCount() {
+        return healthyReplicas.size();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource replica : replicas) {
+            close(replica);
+        }
+        close(primary);
+    }
+
+    private String check(final DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds)) {
+                return "connection is not valid";
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(validationTimeoutSeconds);
+                try (ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_SQL)) {
+                    resultSet.next();
+                    final double lagMillis = resultSet.getDouble(1);
+                    return lagMillis > maxLagMillis ? "replication lag of " + (long) lagMillis + " ms" : null;
+                }
+            }
+        } catch (SQLException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String replicaKey(final int index) {
+        return "replica-" + index;
+    }
+
+    private static void close(final DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+}
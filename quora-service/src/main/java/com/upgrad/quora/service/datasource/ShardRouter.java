@@ -0,0 +1,270 @@
+package com.upgrad.quora.service.datasource;
+
+import com.upgrad.quora.service.common.KWayMerge;
+import com.upgrad.quora.service.util.TimeOrderedUuid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Places the questions and answers on the shards, when quora.shards.enabled is set, and runs the work of the DAOs on
+ * the shard holding the records:
+ * - the questions of a user are created on the shard of the user id, and the answers on the shard of their question
+ * - a record is looked up on the shard named by its UUID, see {@link TimeOrderedUuid}
+ * - the records written before sharding was enabled stay on shard 0, which the lookups missing on the shard named by
+ * the UUID fall back to
+ * The work on another shard than the one of the current transaction runs in a transaction of its own on that shard.
+ * When sharding is disabled there is a single shard, and the work runs as is in the current transaction.
+ */
+@Component
+public class ShardRouter {
+
+    // The ids are unique across the shards as each shard allocates them from a range of its own, the migrations
+    // starting the id sequences of shard N at N * 100000000, so the integer ids have room for 21 shards
+    private static final int MAX_SHARDS = 21;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = ThreadLocal.withInitial(() -> 0);
+
+    @Value("${quora.shards.enabled:false}")
+    private boolean enabled;
+
+    @Value("${quora.shards.urls:}")
+    private String[] shardUrls;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private int shardCount;
+
+    private TransactionTemplate shardTransaction;
+
+    private TransactionTemplate readOnlyShardTransaction;
+
+    @PostConstruct
+    public void initialize() {
+        shardCount = enabled ? shardUrls.length + 1 : 1;
+        if (shardCount > MAX_SHARDS) {
+            throw new IllegalStateException("At most " + MAX_SHARDS + " shards are supported");
+        }
+        shardTransaction = new TransactionTemplate(transactionManager);
+        shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyShardTransaction = new TransactionTemplate(transactionManager);
+        readOnlyShardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyShardTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return The shard the current thread works on, read by the {@link ShardRoutingDataSource}
+     */
+    static int currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @param userId The id of a user
+     * @return The shard the questions of the user are created on
+     */
+    public int shardOfUser(final Integer userId) {
+        return Math.floorMod(userId, shardCount);
+    }
+
+    /**
+     * @param userId The id of a user
+     * @return The shards holding the questions of the user, shard 0 holding those written before sharding was enabled
+     */
+    public int[] shardsOfUser(final Integer userId) {
+        final int shard = shardOfUser(userId);
+        return shard == 0 ? new int[]{0} : new int[]{0, shard};
+    }
+
+    /**
+     * @param recordUuid The UUID of a question or an answer
+     * @return The shard the record is created on, or looked up on first
+     */
+    public int shardOf(final String recordUuid) {
+        final int shard = TimeOrderedUuid.shardOf(UUID.fromString(recordUuid));
+        return shard < shardCount ? shard : 0;
+    }
+
+    /**
+     * @return The numbers of all the shards
+     */
+    public int[] allShards() {
+        final int[] shards = new int[shardCount];
+        Arrays.setAll(shards, shard -> shard);
+        return shards;
+    }
+
+    /**
+     * This method runs work on a shard, in the current transaction if it is on that shard already
+     *
+     * @param shard The shard
+     * @param work  The work, reading or writing the records of the shard only
+     * @param <T>   The type of the result
+     * @return The result of the work
+     */
+    public <T> T inShard(final int shard, final Supplier<T> work) {
+        if (!enabled || shard == CURRENT_SHARD.get() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        final TransactionTemplate transaction = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? readOnlyShardTransaction : shardTransaction;
+        final int previousShard = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return transaction.execute(status -> work.get());
+        } finally {
+            CURRENT_SHARD.set(previousShard);
+        }
+    }
+
+    /**
+     * This method runs a write in a single transaction on the shard holding the records, of its own unless the
+     * current transaction is on that shard already, also when sharding is disabled. The side effects deferred to the
+     * commit by the write, e.g. on the in memory indexes, are therefore applied exactly when the shard commits it, and
+     * no transaction on another shard is left to roll back once it is committed
+     *
+     * @param shard The shard
+     * @param work  The write, on the records of the shard only
+     * @param <T>   The type of the result
+     * @return The result of the write
+     */
+    public <T> T writeInShard(final int shard, final Supplier<T> work) {
+        if (enabled) {
+            return inShard(shard, work);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        return shardTransaction.execute(status -> work.get());
+    }
+
+    /**
+     * This method looks a record up on the shard named by its UUID, and on shard 0 if it finds nothing there,
+     * as the records written before sharding was enabled stay on shard 0
+     *
+     * @param recordUuid The UUID of the record
+     * @param lookup     The lookup, returning null if it did not find the record
+     * @param <T>        The type of the result
+     * @return The result of the lookup, null if the record was not found
+     */
+    public <T> T onShardOf(final UUID recordUuid, final ShardLookup<T> lookup) {
+        final int shard = shardOf(recordUuid.toString());
+        final T result = inShard(shard, () -> lookup.lookup(shard, false));
+        return result == null && shard != 0 ? inShard(0, () -> lookup.lookup(0, true)) : result;
+    }
+
+    /**
+     * This method writes a record on the shard named by its UUID, and on shard 0 if it finds nothing there, each
+     * attempt being a write of its own as by {@link #writeInShard}, so the side effects deferred to the commit by the
+     * write are applied when the shard holding the record commits it
+     *
+     * @param recordUuid The UUID of the record
+     * @param write      The write, returning null if it did not find the record
+     * @param <T>        The type of the result
+     * @return The result of the write, null if the record was not found
+     */
+    public <T> T writeOnShardOf(final UUID recordUuid, final ShardLookup<T> write) {
+        final int shard = shardOf(recordUuid.toString());
+        final T result = writeInShard(shard, () -> write.lookup(shard, false));
+        return result == null && shard != 0 ? writeInShard(0, () -> write.lookup(0, true)) : result;
+    }
+
+    /**
+     * This method runs work on every shard passed, one after the other
+     *
+     * @param shards The shards
+     * @param work   The work, passed the shard it runs on
+     */
+    public void onShards(final int[] shards, final IntConsumer work) {
+        for (int shard : shards) {
+            inShard(shard, () -> {
+                work.accept(shard);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * This method reads the first rows in order from the shards passed, each shard being read once
+     *
+     * @param shards       The shards holding the rows
+     * @param firstOfShard Reads at most limit rows in order from the shard passed
+     * @param order        The order of the rows
+     * @param limit        The maximum number of rows read
+     * @param <T>          The type of the rows
+     * @return The first rows of all the shards in order
+     */
+    public <T> List<T> gather(final int[] shards, final IntFunction<List<T>> firstOfShard, final Comparator<? super T> order,
+                              final int limit) {
+        if (shards.length == 1) {
+            return inShard(shards[0], () -> firstOfShard.apply(shards[0]));
+        }
+        final List<Iterator<T>> sources = new ArrayList<>(shards.length);
+        for (int shard : shards) {
+            sources.add(inShard(shard, () -> firstOfShard.apply(shard)).iterator());
+        }
+        final List<T> rows = new ArrayList<>(limit);
+        KWayMerge.merge(sources, order, limit, rows::add);
+        return rows;
+    }
+
+    /**
+     * This method streams the rows in order from all the shards, each shard being read page by page as the merged
+     * rows are consumed, so at most a page per shard is held at a time
+     *
+     * @param pageAfter Reads the page of rows of the shard passed following the row passed, null for the first page
+     * @param order     The order of the rows
+     * @param consumer  Receives the rows of all the shards in order
+     * @param <T>       The type of the rows
+     */
+    public <T> void stream(final BiFunction<Integer, T, List<T>> pageAfter, final Comparator<? super T> order, final Consumer<T> consumer) {
+        final List<Iterator<T>> sources = new ArrayList<>(shardCount);
+        for (int shard : allShards()) {
+            sources.add(KWayMerge.pages(after -> inShard(shard, () -> pageAfter.apply(shard, after))));
+        }
+        KWayMerge.merge(sources, order, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * A lookup of a record on a shard
+     *
+     * @param <T> The type of the result
+     */
+    @FunctionalInterface
+    public interface ShardLookup<T> {
+
+        /**
+         * @param shard    The shard the lookup runs on
+         * @param fallback Whether the record was not found on the shard named by its UUID, in which case the lookup
+         *                 has to bypass the query cache, which holds the miss under the same query and parameters
+         * @return The result of the lookup, null if the record was not found
+         */
+        T lookup(int shard, boolean fallback);
+    }
+}
@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the data source of spring.datasource by one routing to the shards, when quora.shards.enabled is set.
+ * The database of spring.datasource is shard 0, which also holds the sessions, and the databases of quora.shards.urls
+ * are the shards 1 to N - 1. They share the driver and, unless configured otherwise, the credentials of shard 0.
+ * Not combined with quora.replicas.enabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.shards.enabled", havingValue = "true")
+public class ShardRoutingConfiguration {
+
+    @Value("${quora.shards.urls}")
+    private String[] shardUrls;
+
+    @Value("${quora.shards.username:${spring.datasource.username}}")
+    private String shardUsername;
+
+    @Value("${quora.shards.password:${spring.datasource.password}}")
+    private String shardPassword;
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(final DataSourceProperties dataSourceProperties,
+                                                         final ObjectProvider<MeterRegistry> meterRegistry) {
+        final List<DataSource> shards = new ArrayList<>(shardUrls.length + 1);
+        shards.add(PoolMetrics.track(dataSourceProperties.initializeDataSourceBuilder().build(), "shard-0",
+                meterRegistry.getIfAvailable()));
+        for (String shardUrl : shardUrls) {
+            shards.add(PoolMetrics.track(DataSourceBuilder.create()
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(shardUrl.trim())
+                    .username(shardUsername)
+                    .password(shardPassword)
+                    .build(), "shard-" + shards.size(), meterRegistry.getIfAvailable()));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * @return The data source used by JPA, deferring the choice of the shard until the transaction has begun
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(final ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
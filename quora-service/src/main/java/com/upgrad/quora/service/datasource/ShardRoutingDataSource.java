@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.datasource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes the connections to the database of the shard the current thread is bound to by the {@link ShardRouter},
+ * shard 0 being the database of spring.datasource.
+ * The shard is bound when the transaction begins, so this data source has to be wrapped by a
+ * LazyConnectionDataSourceProxy, which fetches the connection on the first statement.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private final List<DataSource> shards;
+
+    /**
+     * @param shards The databases of the shards, in the order of their numbers
+     */
+    public ShardRoutingDataSource(final List<DataSource> shards) {
+        this.shards = shards;
+        final Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable) {
+                ((AutoCloseable) shard).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.upgrad.quora.service.dto;
+
+/**
+ * The state of an answer returned by its conditional edit or delete, along with the UUID of the question it answers,
+ * whose listing changes with it
+ */
+public class AnswerRevision {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final Integer version;
+
+    private final String questionUuid;
+
+    public AnswerRevision(final Integer id, final String uuid, final Integer version, final String questionUuid) {
+        this.id = id;
+        this.uuid = uuid;
+        this.version = version;
+        this.questionUuid = questionUuid;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return The version of the edited answer, null for a deleted one
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    public String getQuestionUuid() {
+        return questionUuid;
+    }
+}
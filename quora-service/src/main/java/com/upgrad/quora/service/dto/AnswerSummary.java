@@ -0,0 +1,51 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * The fields of an answer shown in the answer listings, along with the content of the question it answers, read
+ * through a constructor expression so no answer entity or its question and user is loaded. The id and date are the
+ * position of the answer in the listing
+ */
+public class AnswerSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String questionContent;
+
+    private final String answerContent;
+
+    private final ZonedDateTime date;
+
+    public AnswerSummary(final Integer id, final UUID uuid, final String questionContent, final String answerContent,
+                         final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid.toString();
+        this.questionContent = questionContent;
+        this.answerContent = answerContent;
+        this.date = date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public String getAnswerContent() {
+        return answerContent;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.dto;
+
+/**
+ * The outcome of one item of a bulk request, reported at the position of the item in the request
+ */
+public class BulkItemResult {
+
+    private final int index;
+
+    private final String uuid;
+
+    private final String code;
+
+    private final String message;
+
+    private BulkItemResult(final int index, final String uuid, final String code, final String message) {
+        this.index = index;
+        this.uuid = uuid;
+        this.code = code;
+        this.message = message;
+    }
+
+    public static BulkItemResult created(final int index, final String uuid) {
+        return new BulkItemResult(index, uuid, null, null);
+    }
+
+    public static BulkItemResult rejected(final int index, final String code, final String message) {
+        return new BulkItemResult(index, null, code, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The UUID of the created item, null for a rejected one
+     */
+    public String getUuid() {
+        return uuid;
+    }
+
+    public boolean isCreated() {
+        return uuid != null;
+    }
+
+    /**
+     * @return The error code of a rejected item, null for a created one
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * The fields of a question shown in the question listings, read through a constructor expression so no question
+ * entity or its user is loaded. The id and date are the position of the question in the listing
+ */
+public class QuestionSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final ZonedDateTime date;
+
+    public QuestionSummary(final Integer id, final String uuid, final String content, final ZonedDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+    }
+
+    // Read by the listing queries, which select the uuid column as is
+    public QuestionSummary(final Integer id, final UUID uuid, final String content, final ZonedDateTime date) {
+        this(id, uuid.toString(), content, date);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+}
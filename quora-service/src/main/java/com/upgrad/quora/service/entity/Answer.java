@@ -1,33 +1,45 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "answer")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NamedQueries(
         {
-                @NamedQuery(name = "answerByUUID", query = "select ans from Answer ans where ans.uuid = :uuid"),
-                @NamedQuery(name = "answerByQuestionId", query = "select ans from Answer ans where ans.question.id = :questionId")
+                @NamedQuery(name = "answerByUUID", query = "select ans from Answer ans join fetch ans.question where ans.uuid = :uuid", hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+                @NamedQuery(name = "answersByQuestionIdPage", query = Answer.SUMMARY + " where q.id = :questionId"
+                        + " order by ans.date desc, ans.id desc"),
+                @NamedQuery(name = "answersByQuestionIdPageAfter", query = Answer.SUMMARY + " where q.id = :questionId"
+                        + " and ans.date <= :date and (ans.date < :date or ans.id < :id) order by ans.date desc, ans.id desc")
         }
 )
 public class Answer implements Serializable {
 
+    // The listings read the summaries rather than the entities, as they need neither the user nor the managed state
+    static final String SUMMARY = "select new com.upgrad.quora.service.dto.AnswerSummary(ans.id, ans.uuid, q.content, ans.ans, ans.date) from Answer ans join ans.question q";
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_id_generator")
+    @SequenceGenerator(name = "answer_id_generator", sequenceName = "answer_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "uuid")
     @NotNull
-    @Size(max = 200)
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "ans")
     @NotNull
@@ -38,13 +50,17 @@ public class Answer implements Serializable {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "user_id")
     @NotNull
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "question_id")
     @NotNull
@@ -59,11 +75,11 @@ public class Answer implements Serializable {
     }
 
     public String getUuid() {
-        return uuid;
+        return uuid == null ? null : uuid.toString();
     }
 
     public void setUuid(String uuid) {
-        this.uuid = uuid;
+        this.uuid = uuid == null ? null : UUID.fromString(uuid);
     }
 
     public String getAns() {
@@ -82,6 +98,14 @@ public class Answer implements Serializable {
         this.date = date;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public User getUser() {
         return user;
     }
@@ -1,33 +1,52 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "question")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NamedQueries(
         {
-                @NamedQuery(name = "questionByUserId", query = "select q from Question q where q.user.id = :userId"),
-                @NamedQuery(name = "questionByUUID", query = "select q from Question q where q.uuid = :uuid")
+                @NamedQuery(name = "questionsPage", query = Question.SUMMARY + " order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionsPageAfter", query = Question.SUMMARY + " where q.date <= :date"
+                        + " and (q.date < :date or q.id < :id) order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionsByUserIdPage", query = Question.SUMMARY + " where q.user.id = :userId"
+                        + " order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionsByUserIdPageAfter", query = Question.SUMMARY + " where q.user.id = :userId"
+                        + " and q.date <= :date and (q.date < :date or q.id < :id) order by q.date desc, q.id desc"),
+                @NamedQuery(name = "questionByUUID", query = "select q from Question q where q.uuid = :uuid", hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+                @NamedQuery(name = "questionIdByUUID", query = "select q.id from Question q where q.uuid = :uuid", hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+                @NamedQuery(name = "questionIdsByUserId", query = "select q.id from Question q where q.user.id = :userId"),
+                @NamedQuery(name = "questionsByContentLike", query = Question.SUMMARY + " where lower(q.content) like :pattern escape '!'"
+                        + " order by q.date desc, q.id desc")
         }
 )
 public class Question implements Serializable {
 
+    // The listings read the summaries rather than the entities, as they need neither the user nor the managed state
+    static final String SUMMARY = "select new com.upgrad.quora.service.dto.QuestionSummary(q.id, q.uuid, q.content, q.date) from Question q";
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id_generator")
+    @SequenceGenerator(name = "question_id_generator", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "uuid")
     @NotNull
-    @Size(max = 200)
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "content")
     @NotNull
@@ -38,12 +57,21 @@ public class Question implements Serializable {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    // Incremented by every edit, checked against the If-Match version of the conditional edits and deletes
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "user_id")
     @NotNull
     private User user;
 
+    // The shard the question was read from or written to, which its answers are stored on as well
+    @Transient
+    private int shard;
+
     public Integer getId() {
         return id;
     }
@@ -53,11 +81,11 @@ public class Question implements Serializable {
     }
 
     public String getUuid() {
-        return uuid;
+        return uuid == null ? null : uuid.toString();
     }
 
     public void setUuid(String uuid) {
-        this.uuid = uuid;
+        this.uuid = uuid == null ? null : UUID.fromString(uuid);
     }
 
     public String getContent() {
@@ -76,6 +104,14 @@ public class Question implements Serializable {
         this.date = date;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public User getUser() {
         return user;
     }
@@ -83,4 +119,12 @@ public class Question implements Serializable {
     public void setUser(User user) {
         this.user = user;
     }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
 }
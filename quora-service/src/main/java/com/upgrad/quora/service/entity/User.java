@@ -3,32 +3,43 @@ package com.upgrad.quora.service.entity;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+// Users are read on every request and rarely change, mostly when their password hash is upgraded on sign in
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @NamedQueries(
         {
                 @NamedQuery(name = "userByUserName", query = "select u from User u where u.userName = :userName"),
                 @NamedQuery(name = "userByEmail", query = "select u from User u where u.email =:email"),
-                @NamedQuery(name = "userByUUID", query = "select u from User u where u.uuid = :uuid")
+                @NamedQuery(name = "usersByUserNameOrEmail", query = "select u from User u where u.userName = :userName or u.email = :email"),
+                @NamedQuery(name = "userByUUID", query = "select u from User u where u.uuid = :uuid", hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
+                @NamedQuery(name = "userIdByUUID", query = "select u.id from User u where u.uuid = :uuid", hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
         }
 )
 public class User implements Serializable {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids are allocated in blocks of the sequence increment, so inserts need no round trip for their id and can be batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = "users_id_seq", allocationSize = 50)
     private Integer id;
 
+    // Mapped to the native uuid type, the string form is only the public one
     @Column(name = "uuid")
     @NotNull
-    @Size(max = 200)
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "firstname")
     @NotNull
@@ -89,11 +100,11 @@ public class User implements Serializable {
     }
 
     public String getUuid() {
-        return uuid;
+        return uuid == null ? null : uuid.toString();
     }
 
     public void setUuid(String uuid) {
-        this.uuid = uuid;
+        this.uuid = uuid == null ? null : UUID.fromString(uuid);
     }
 
     public String getFirstName() {
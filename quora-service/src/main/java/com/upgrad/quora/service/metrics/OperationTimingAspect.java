@@ -0,0 +1,114 @@
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.common.UnexpectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the business services and of the DAOs, tagged by class, method and outcome: success,
+ * the error code of the exception thrown, e.g. ATHR-001 or QUES-001, or else the simple name of its class.
+ * The timers are looked up once per method and outcome, so a call costs a map lookup and a clock read on either side,
+ * see MetricsOverheadBenchmark of quora-bench for the budget.
+ * The service timers wrap the transaction, so they include the commit. A method returning a stream is timed until
+ * the stream is returned, not until it is consumed.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "quora.metrics.operations-enabled", havingValue = "true", matchIfMissing = true)
+public class OperationTimingAspect {
+
+    public static final String SERVICE_TIMER = "quora.service.operations";
+
+    public static final String DAO_TIMER = "quora.dao.queries";
+
+    public static final String SUCCESS = "success";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Method, ConcurrentMap<String, Timer>> serviceTimers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, ConcurrentMap<String, Timer>> daoTimers = new ConcurrentHashMap<>();
+
+    // The checked exceptions of the service each declare their error code, without sharing a type declaring it
+    private static final ClassValue<Method> CODE_ACCESSORS = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(final Class<?> type) {
+            try {
+                final Method accessor = type.getMethod("getCode");
+                return accessor.getReturnType() == String.class ? accessor : null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+    };
+
+    @Around("execution(public * com.upgrad.quora.service.business..*(..)) && @within(org.springframework.stereotype.Service)")
+    public Object timeServiceOperation(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_TIMER, serviceTimers);
+    }
+
+    @Around("execution(public * com.upgrad.quora.service.dao..*(..)) && @within(org.springframework.stereotype.Repository)")
+    public Object timeDaoQuery(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, DAO_TIMER, daoTimers);
+    }
+
+    private Object time(final ProceedingJoinPoint joinPoint, final String name,
+                        final ConcurrentMap<Method, ConcurrentMap<String, Timer>> timers) throws Throwable {
+        final long start = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            timers.computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(outcome, key -> Timer.builder(name)
+                            .tag("class", method.getDeclaringClass().getSimpleName())
+                            .tag("method", method.getName())
+                            .tag("outcome", key)
+                            .register(meterRegistry))
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @param e An exception thrown by a timed method
+     * @return The error code carried by the exception, or else the simple name of its class
+     */
+    static String outcomeOf(final Throwable e) {
+        if (e instanceof UnexpectedException) {
+            return ((UnexpectedException) e).getErrorCode().getCode();
+        }
+        final Method accessor = CODE_ACCESSORS.get(e.getClass());
+        if (accessor != null) {
+            try {
+                final Object code = accessor.invoke(e);
+                if (code != null) {
+                    return (String) code;
+                }
+            } catch (ReflectiveOperationException ignored) {
+                // Tagged by the class of the exception below
+            }
+        }
+        return e.getClass().getSimpleName();
+    }
+}
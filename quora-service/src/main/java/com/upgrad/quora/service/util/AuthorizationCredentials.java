@@ -0,0 +1,179 @@
+package com.upgrad.quora.service.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The credentials carried by an authorization header, either {@code Basic} (username and password)
+ * or {@code Bearer} (access token).
+ * The header is parsed by scanning it in place, without regular expressions or intermediate arrays: a bearer
+ * token costs a single substring, and basic credentials are decoded straight into one byte array that the
+ * username and password are read from. A header without a scheme prefix is taken as a bearer token as a whole.
+ */
+public final class AuthorizationCredentials {
+
+    private static final String BASIC_SCHEME = "Basic";
+    private static final String BEARER_SCHEME = "Bearer";
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    public static final AuthorizationCredentials NONE = new AuthorizationCredentials(null, null, null, null);
+
+    public enum Scheme {
+        BASIC, BEARER
+    }
+
+    private final Scheme scheme;
+    private final String token;
+    private final String username;
+    private final String password;
+
+    private AuthorizationCredentials(final Scheme scheme, final String token, final String username, final String password) {
+        this.scheme = scheme;
+        this.token = token;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * This method parses the value of an authorization header
+     *
+     * @param header The header value, may be null
+     * @return The credentials in the header, {@link #NONE} if there are none. Basic credentials which are not
+     * valid Base64 or lack the colon separator have a null username and password
+     */
+    public static AuthorizationCredentials parse(final String header) {
+        if (header == null) {
+            return NONE;
+        }
+        int start = 0;
+        int end = header.length();
+        while (start < end && header.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return NONE;
+        }
+        if (hasScheme(header, start, end, BASIC_SCHEME)) {
+            return parseBasic(header, skipSpaces(header, start + BASIC_SCHEME.length(), end), end);
+        }
+        if (hasScheme(header, start, end, BEARER_SCHEME)) {
+            start = skipSpaces(header, start + BEARER_SCHEME.length(), end);
+        }
+        return new AuthorizationCredentials(Scheme.BEARER, header.substring(start, end), null, null);
+    }
+
+    private static boolean hasScheme(final String header, final int start, final int end, final String scheme) {
+        final int schemeEnd = start + scheme.length();
+        return schemeEnd < end && header.charAt(schemeEnd) == ' '
+                && header.regionMatches(true, start, scheme, 0, scheme.length());
+    }
+
+    private static int skipSpaces(final String header, int index, final int end) {
+        while (index < end && header.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static AuthorizationCredentials parseBasic(final String header, final int start, final int end) {
+        final String token = header.substring(start, end);
+        final byte[] decoded = decodeBase64(header, start, end);
+        if (decoded == null) {
+            return new AuthorizationCredentials(Scheme.BASIC, token, null, null);
+        }
+        for (int i = 0; i < decoded.length; i++) {
+            if (decoded[i] == ':') {
+                return new AuthorizationCredentials(Scheme.BASIC, token,
+                        new String(decoded, 0, i, StandardCharsets.UTF_8),
+                        new String(decoded, i + 1, decoded.length - i - 1, StandardCharsets.UTF_8));
+            }
+        }
+        return new AuthorizationCredentials(Scheme.BASIC, token, null, null);
+    }
+
+    /**
+     * Decodes standard Base64, padded or not, from a range of the header
+     *
+     * @return The decoded bytes, null if the range is not valid Base64
+     */
+    private static byte[] decodeBase64(final String header, final int start, final int end) {
+        int dataEnd = end;
+        while (dataEnd > start && end - dataEnd < 2 && header.charAt(dataEnd - 1) == '=') {
+            dataEnd--;
+        }
+        final int dataLength = dataEnd - start;
+        if ((dataEnd < end && (end - start) % 4 != 0) || dataLength % 4 == 1) {
+            return null;
+        }
+        final byte[] decoded = new byte[dataLength * 3 / 4];
+        int bits = 0;
+        int pendingBits = 0;
+        int index = 0;
+        for (int i = start; i < dataEnd; i++) {
+            final char c = header.charAt(i);
+            final int value = c < 128 ? BASE64_VALUES[c] : -1;
+            if (value < 0) {
+                return null;
+            }
+            bits = bits << 6 | value;
+            pendingBits += 6;
+            if (pendingBits >= 8) {
+                pendingBits -= 8;
+                decoded[index++] = (byte) (bits >> pendingBits);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * @return true if the header carried any credentials
+     */
+    public boolean isPresent() {
+        return scheme != null;
+    }
+
+    public boolean isBasic() {
+        return scheme == Scheme.BASIC;
+    }
+
+    public boolean isBearer() {
+        return scheme == Scheme.BEARER;
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * @return The bearer access token, or the undecoded Base64 payload of basic credentials
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return The bearer access token, null for any other credentials
+     */
+    public String getBearerToken() {
+        return isBearer() ? token : null;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe Bloom filter over strings.
+ * {@link #mightContain(String)} never returns false for a value that was added, and returns true for a value
+ * that was not added with roughly the configured false positive probability. Values cannot be removed.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions        The number of values the filter is sized for
+     * @param falsePositiveProbability The false positive probability once the expected values are added
+     */
+    public BloomFilter(final long expectedInsertions, final double falsePositiveProbability) {
+        final long insertions = Math.max(1, expectedInsertions);
+        final long optimalBits = (long) (-insertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        final int words = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+    }
+
+    public void put(final String value) {
+        final long hash = hash(value);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            final long bitIndex = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+            setBit(bitIndex);
+        }
+    }
+
+    public boolean mightContain(final String value) {
+        final long hash = hash(value);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            final long bitIndex = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setBit(final long bitIndex) {
+        final int wordIndex = (int) (bitIndex >>> 6);
+        final long mask = 1L << bitIndex;
+        long word;
+        do {
+            word = bits.get(wordIndex);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(wordIndex, word, word | mask));
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters of the value, finished with the murmur3 mixer
+     */
+    private static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
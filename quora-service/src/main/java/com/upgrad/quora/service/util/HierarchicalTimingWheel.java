@@ -0,0 +1,134 @@
+package com.upgrad.quora.service.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel tracking in-memory expirations with a fixed tick resolution.
+ * Each level holds {@code wheelSize} buckets of one tick each; expirations beyond the span of a level
+ * are kept in a lazily created overflow level whose tick is the span of the level below. As the clock
+ * advances, the buckets of the overflow levels are cascaded down until their entries expire.
+ * Scheduling and advancing are O(1) per entry and per tick, no matter how many entries are tracked.
+ *
+ * @param <T> The type of the items whose expiration is tracked
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    private final long intervalMillis;
+
+    private final List<List<Entry<T>>> buckets;
+
+    private long currentTime;
+
+    private HierarchicalTimingWheel<T> overflowWheel;
+
+    private int size;
+
+    /**
+     * @param tickMillis  The resolution of the wheel, items expire at most one tick early
+     * @param wheelSize   The number of buckets per level
+     * @param startMillis The time the clock of the wheel starts at
+     */
+    public HierarchicalTimingWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.intervalMillis = tickMillis * wheelSize;
+        this.currentTime = startMillis - (startMillis % tickMillis);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Tracks the expiration of an item
+     *
+     * @param item             The item to be handed back once it expires
+     * @param expirationMillis The time the item expires at
+     * @return false if the item has already expired and was not scheduled
+     */
+    public synchronized boolean schedule(final T item, final long expirationMillis) {
+        if (!add(new Entry<>(item, expirationMillis))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Advances the clock of the wheel tick by tick and hands every expired item to the consumer
+     *
+     * @param nowMillis The current time
+     * @param onExpired Receives the items that expired
+     * @return The number of items that expired
+     */
+    public synchronized int advance(final long nowMillis, final Consumer<T> onExpired) {
+        int expired = 0;
+        while (currentTime + tickMillis <= nowMillis) {
+            expired += advanceTo(currentTime + tickMillis, this, onExpired);
+        }
+        size -= expired;
+        return expired;
+    }
+
+    /**
+     * @return The number of items whose expiration is tracked
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private boolean add(final Entry<T> entry) {
+        if (entry.expirationMillis < currentTime + tickMillis) {
+            return false;
+        }
+        if (entry.expirationMillis < currentTime + intervalMillis) {
+            buckets.get(bucketIndex(entry.expirationMillis)).add(entry);
+            return true;
+        }
+        if (overflowWheel == null) {
+            overflowWheel = new HierarchicalTimingWheel<>(intervalMillis, wheelSize, currentTime);
+        }
+        return overflowWheel.add(entry);
+    }
+
+    private int advanceTo(final long time, final HierarchicalTimingWheel<T> root, final Consumer<T> onExpired) {
+        currentTime = time;
+        int expired = 0;
+        final List<Entry<T>> bucket = buckets.get(bucketIndex(time));
+        if (!bucket.isEmpty()) {
+            final List<Entry<T>> due = new ArrayList<>(bucket);
+            bucket.clear();
+            for (Entry<T> entry : due) {
+                // Entries re-added to the root wheel either expire or cascade into a finer bucket
+                if (!root.add(entry)) {
+                    onExpired.accept(entry.item);
+                    expired++;
+                }
+            }
+        }
+        if (overflowWheel != null && time % overflowWheel.tickMillis == 0) {
+            expired += overflowWheel.advanceTo(time, root, onExpired);
+        }
+        return expired;
+    }
+
+    private int bucketIndex(final long timeMillis) {
+        return (int) ((timeMillis / tickMillis) % wheelSize);
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long expirationMillis;
+
+        private Entry(final T item, final long expirationMillis) {
+            this.item = item;
+            this.expirationMillis = expirationMillis;
+        }
+    }
+}
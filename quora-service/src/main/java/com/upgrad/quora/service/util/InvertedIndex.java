@@ -0,0 +1,428 @@
+package com.upgrad.quora.service.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread safe in memory inverted index over the text of documents, ranking the matches with BM25.
+ * Documents are identified by an int key and held in slots; the posting list of a term keeps the slots of the
+ * documents containing it, in ascending order, along with the term frequencies, in primitive int arrays.
+ * Searches share a read lock, while adding and removing documents takes the write lock.
+ * The common English words are not indexed: a query term matching most of the documents would have every one of them
+ * scored while adding next to nothing to the ranking, so a query made of such words only matches nothing.
+ *
+ * @param <T> The type of the documents
+ */
+public class InvertedIndex<T> {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "how", "i", "if", "in",
+            "is", "it", "my", "of", "on", "or", "so", "that", "the", "there", "this", "to", "was", "what", "when",
+            "where", "which", "who", "why", "will", "with", "you"));
+
+    // Below this number of documents a build task tokenizes the documents itself rather than splitting them
+    private static final int BUILD_THRESHOLD = 1024;
+
+    private final ToIntFunction<T> keyOf;
+
+    private final Function<T, String> textOf;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings;
+
+    private final Map<Integer, Integer> slotsByKey;
+
+    private Object[] documents;
+
+    private int[] lengths;
+
+    private int slotCount;
+
+    private int[] freeSlots = new int[16];
+
+    private int freeSlotCount;
+
+    private long totalLength;
+
+    /**
+     * @param keyOf  Gives the key of a document, unique within the index
+     * @param textOf Gives the text of a document to be indexed
+     */
+    public InvertedIndex(final ToIntFunction<T> keyOf, final Function<T, String> textOf) {
+        this(keyOf, textOf, new HashMap<>(), new Object[16], new int[16], 0, 0);
+    }
+
+    private InvertedIndex(final ToIntFunction<T> keyOf, final Function<T, String> textOf, final Map<String, Postings> postings,
+                          final Object[] documents, final int[] lengths, final int slotCount, final long totalLength) {
+        this.keyOf = keyOf;
+        this.textOf = textOf;
+        this.postings = postings;
+        this.documents = documents;
+        this.lengths = lengths;
+        this.slotCount = slotCount;
+        this.totalLength = totalLength;
+        this.slotsByKey = new HashMap<>(Math.max(16, slotCount * 4 / 3 + 1));
+        for (int slot = 0; slot < slotCount; slot++) {
+            @SuppressWarnings("unchecked") final T document = (T) documents[slot];
+            slotsByKey.put(keyOf.applyAsInt(document), slot);
+        }
+    }
+
+    /**
+     * Builds the index of the documents passed, tokenizing them in parallel on the fork join pool passed
+     *
+     * @param documents The documents to be indexed, with distinct keys
+     * @param keyOf     Gives the key of a document, unique within the index
+     * @param textOf    Gives the text of a document to be indexed
+     * @param pool      The pool the documents are tokenized on
+     * @param <T>       The type of the documents
+     * @return The index of the documents
+     */
+    public static <T> InvertedIndex<T> build(final List<T> documents, final ToIntFunction<T> keyOf,
+                                             final Function<T, String> textOf, final ForkJoinPool pool) {
+        final int count = documents.size();
+        final Object[] slots = documents.toArray(new Object[Math.max(16, count)]);
+        final int[] lengths = new int[slots.length];
+        final Map<String, Postings> postings = pool.invoke(new BuildTask<>(documents, textOf, lengths, 0, count));
+        long totalLength = 0;
+        for (int slot = 0; slot < count; slot++) {
+            totalLength += lengths[slot];
+        }
+        return new InvertedIndex<>(keyOf, textOf, postings, slots, lengths, count, totalLength);
+    }
+
+    /**
+     * Splits a text into lower case terms made of letters and digits, leaving the stopwords out
+     *
+     * @param text The text to be split
+     * @return The terms of the text with their number of occurrences
+     */
+    public static Map<String, Integer> termFrequencies(final String text) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        final int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            final boolean termCharacter = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (termCharacter && start < 0) {
+                start = i;
+            } else if (!termCharacter && start >= 0) {
+                final String term = text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase(Locale.ROOT);
+                if (!STOPWORDS.contains(term)) {
+                    frequencies.merge(term, 1, Integer::sum);
+                }
+                start = -1;
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Adds a document, replacing the document with the same key if any
+     *
+     * @param document The document to be indexed
+     */
+    public void put(final T document) {
+        lock.writeLock().lock();
+        try {
+            removeKey(keyOf.applyAsInt(document));
+            final int slot = allocateSlot();
+            documents[slot] = document;
+            int length = 0;
+            for (Map.Entry<String, Integer> term : termFrequencies(textOf.apply(document)).entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new Postings()).insert(slot, term.getValue());
+                length += term.getValue();
+            }
+            lengths[slot] = length;
+            totalLength += length;
+            slotsByKey.put(keyOf.applyAsInt(document), slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the document with the key passed, if any
+     *
+     * @param key The key of the document to be removed
+     */
+    public void remove(final int key) {
+        lock.writeLock().lock();
+        try {
+            removeKey(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents containing any of the terms of the query, best match first
+     *
+     * @param query The query text, split into terms as the documents are
+     * @param limit The maximum number of documents returned
+     * @return The best matching documents ranked by their BM25 score
+     */
+    public List<T> search(final String query, final int limit) {
+        final Map<String, Integer> terms = termFrequencies(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            final int documentCount = slotsByKey.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+            final double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+            final List<Postings> matched = new ArrayList<>(terms.size());
+            for (String term : terms.keySet()) {
+                final Postings termPostings = postings.get(term);
+                if (termPostings != null && termPostings.size > 0) {
+                    matched.add(termPostings);
+                }
+            }
+            final int termCount = matched.size();
+            final double[] idf = new double[termCount];
+            final int[] positions = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                final int df = matched.get(i).size;
+                idf[i] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+            }
+            // The posting lists are walked side by side, scoring one document at a time
+            final PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, 1024) + 1);
+            while (true) {
+                int slot = Integer.MAX_VALUE;
+                for (int i = 0; i < termCount; i++) {
+                    final Postings termPostings = matched.get(i);
+                    if (positions[i] < termPostings.size) {
+                        slot = Math.min(slot, termPostings.slots[positions[i]]);
+                    }
+                }
+                if (slot == Integer.MAX_VALUE) {
+                    break;
+                }
+                final double norm = K1 * (1 - B + B * lengths[slot] / averageLength);
+                double score = 0;
+                for (int i = 0; i < termCount; i++) {
+                    final Postings termPostings = matched.get(i);
+                    if (positions[i] < termPostings.size && termPostings.slots[positions[i]] == slot) {
+                        final int tf = termPostings.frequencies[positions[i]];
+                        score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                        positions[i]++;
+                    }
+                }
+                best.offer(new Hit(slot, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            final Hit[] hits = best.toArray(new Hit[0]);
+            Arrays.sort(hits, Collections.reverseOrder());
+            final List<T> results = new ArrayList<>(hits.length);
+            for (Hit hit : hits) {
+                @SuppressWarnings("unchecked") final T document = (T) documents[hit.slot];
+                results.add(document);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeKey(final int key) {
+        final Integer slot = slotsByKey.remove(key);
+        if (slot == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked") final T document = (T) documents[slot];
+        for (String term : termFrequencies(textOf.apply(document)).keySet()) {
+            final Postings termPostings = postings.get(term);
+            if (termPostings != null && termPostings.delete(slot) && termPostings.size == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengths[slot];
+        documents[slot] = null;
+        lengths[slot] = 0;
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == documents.length) {
+            documents = Arrays.copyOf(documents, slotCount * 2);
+            lengths = Arrays.copyOf(lengths, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * The slots of the documents containing a term in ascending order, and the frequency of the term in each
+     */
+    private static final class Postings {
+
+        private int[] slots;
+
+        private int[] frequencies;
+
+        private int size;
+
+        private Postings() {
+            this(4);
+        }
+
+        private Postings(final int capacity) {
+            slots = new int[capacity];
+            frequencies = new int[capacity];
+        }
+
+        private void insert(final int slot, final int frequency) {
+            // Slots are mostly handed out in ascending order, so the binary search is skipped for them
+            final int position = size == 0 || slots[size - 1] < slot ? size : -Arrays.binarySearch(slots, 0, size, slot) - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            slots[position] = slot;
+            frequencies[position] = frequency;
+            size++;
+        }
+
+        private boolean delete(final int slot) {
+            final int position = Arrays.binarySearch(slots, 0, size, slot);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        // Every slot of the postings passed has to be greater than the slots held
+        private void append(final Postings following) {
+            ensureCapacity(size + following.size);
+            System.arraycopy(following.slots, 0, slots, size, following.size);
+            System.arraycopy(following.frequencies, 0, frequencies, size, following.size);
+            size += following.size;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > slots.length) {
+                final int grown = Math.max(capacity, slots.length + (slots.length >> 1));
+                slots = Arrays.copyOf(slots, grown);
+                frequencies = Arrays.copyOf(frequencies, grown);
+            }
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+
+        private final int slot;
+
+        private final double score;
+
+        private Hit(final int slot, final double score) {
+            this.slot = slot;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final Hit other) {
+            final int byScore = Double.compare(score, other.score);
+            // On equal scores the later slot, usually the newer document, ranks higher
+            return byScore != 0 ? byScore : Integer.compare(slot, other.slot);
+        }
+    }
+
+    /**
+     * Tokenizes a range of the documents, splitting it in halves while it is above the threshold.
+     * The postings of the halves are merged by appending, as the slots of the second half all follow the first
+     */
+    private static final class BuildTask<T> extends RecursiveTask<Map<String, Postings>> {
+
+        private final List<T> documents;
+
+        private final Function<T, String> textOf;
+
+        private final int[] lengths;
+
+        private final int from;
+
+        private final int to;
+
+        private BuildTask(final List<T> documents, final Function<T, String> textOf, final int[] lengths,
+                          final int from, final int to) {
+            this.documents = documents;
+            this.textOf = textOf;
+            this.lengths = lengths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Postings> compute() {
+            if (to - from <= BUILD_THRESHOLD) {
+                final Map<String, Postings> postings = new HashMap<>();
+                for (int slot = from; slot < to; slot++) {
+                    int length = 0;
+                    for (Map.Entry<String, Integer> term : termFrequencies(textOf.apply(documents.get(slot))).entrySet()) {
+                        postings.computeIfAbsent(term.getKey(), key -> new Postings()).insert(slot, term.getValue());
+                        length += term.getValue();
+                    }
+                    lengths[slot] = length;
+                }
+                return postings;
+            }
+            final int middle = (from + to) >>> 1;
+            final BuildTask<T> second = new BuildTask<>(documents, textOf, lengths, middle, to);
+            second.fork();
+            final Map<String, Postings> postings = new BuildTask<>(documents, textOf, lengths, from, middle).compute();
+            for (Map.Entry<String, Postings> term : second.join().entrySet()) {
+                final Postings first = postings.get(term.getKey());
+                if (first == null) {
+                    postings.put(term.getKey(), term.getValue());
+                } else {
+                    first.append(term.getValue());
+                }
+            }
+            return postings;
+        }
+    }
+}
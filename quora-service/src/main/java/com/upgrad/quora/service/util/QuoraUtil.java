@@ -6,6 +6,7 @@ public interface QuoraUtil {
     public static final String BEARER_TOKEN = "Bearer ";
     public static final String BASIC_TOKEN = "Basic ";
     public static final String COLON = ":";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     public static final String ADMIN_ROLE = "admin";
     public static final String NON_ADMIN_ROLE = "nonadmin";
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the UUIDs of the users, questions and answers in the version 7 layout: the first 48 bits are the
+ * creation time in milliseconds and the remaining ones, apart from the version and variant, are random.
+ * The UUIDs created close together are close in their unique index too, so inserts touch the rightmost index pages
+ * rather than random ones.
+ * The random bits are drawn from {@link ThreadLocalRandom}, so concurrent requests do not contend on a shared
+ * {@link java.security.SecureRandom}. The UUIDs identify records and grant no access, so they need not be
+ * unpredictable.
+ * The 12 bits following the version hold the number of the shard the record is stored in, so a record is looked up
+ * by its UUID on its shard alone. They are zero on an unsharded database, where every record is on shard 0.
+ */
+public final class TimeOrderedUuid {
+
+    private static final int CANONICAL_LENGTH = 36;
+
+    public static final int MAX_SHARDS = 1 << 12;
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * @return A new UUID ordered by its creation time, of a record stored on shard 0
+     */
+    public static UUID generate() {
+        return generate(0);
+    }
+
+    /**
+     * @param shard The shard the record is stored in, below {@link #MAX_SHARDS}
+     * @return A new UUID ordered by its creation time, naming the shard passed
+     */
+    public static UUID generate(final int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard " + shard + " is out of range");
+        }
+        final long mostSignificantBits = (System.currentTimeMillis() << 16) | 0x7000L | shard;
+        final long leastSignificantBits = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * @param uuid A UUID generated by this class, or a legacy one
+     * @return The shard the record of the UUID is stored in
+     */
+    public static int shardOf(final UUID uuid) {
+        return (int) (uuid.getMostSignificantBits() & 0x0FFFL);
+    }
+
+    /**
+     * Parses a UUID in its canonical form, the one {@link UUID#toString()} produces
+     *
+     * @param value The UUID as entered by the user
+     * @return The parsed UUID, null if the value is not a UUID in the canonical form, which no record can have
+     */
+    public static UUID parse(final String value) {
+        if (value == null || value.length() != CANONICAL_LENGTH || value.charAt(8) != '-' || value.charAt(13) != '-'
+                || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            return null;
+        }
+        for (int i = 0; i < CANONICAL_LENGTH; i++) {
+            final char c = value.charAt(i);
+            if (c != '-' && Character.digit(c, 16) < 0) {
+                return null;
+            }
+        }
+        return UUID.fromString(value);
+    }
+}
@@ -0,0 +1,109 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JwtTokenVerifierTest {
+
+    private static final String USER_UUID = "00000000-0000-7000-8000-000000001025";
+
+    private JwtTokenVerifier jwtTokenVerifier;
+
+    @Before
+    public void createVerifier() {
+        final JwtKeyRing jwtKeyRing = jwtKeyRing("active_key:active_secret,retired_key:retired_secret", new MockEnvironment());
+        jwtTokenVerifier = new JwtTokenVerifier();
+        ReflectionTestUtils.setField(jwtTokenVerifier, "jwtKeyRing", jwtKeyRing);
+        ReflectionTestUtils.setField(jwtTokenVerifier, "verificationMode", "local");
+    }
+
+    //This test case passes when a token signed with the active key, or a retired one still configured, is accepted.
+    @Test
+    public void acceptTokenOfConfiguredKey() {
+        assertFalse(jwtTokenVerifier.isRejected(token("active_key", "active_secret", ZonedDateTime.now().plusHours(8))));
+        assertFalse(jwtTokenVerifier.isRejected(token("retired_key", "retired_secret", ZonedDateTime.now().plusHours(8))));
+    }
+
+    //This test case passes when a token whose signature was not made with the key of its key id is rejected.
+    @Test
+    public void rejectForgedSignature() {
+        assertTrue(jwtTokenVerifier.isRejected(token("active_key", "forged_secret", ZonedDateTime.now().plusHours(8))));
+        assertTrue(jwtTokenVerifier.isRejected(token("active_key", "retired_secret", ZonedDateTime.now().plusHours(8))));
+    }
+
+    //This test case passes when a token with an unknown key id, or none, is rejected.
+    @Test
+    public void rejectUnknownKeyId() {
+        assertTrue(jwtTokenVerifier.isRejected(token("dropped_key", "active_secret", ZonedDateTime.now().plusHours(8))));
+        assertTrue(jwtTokenVerifier.isRejected(JWT.create().withIssuer("https://quora.io").withAudience(USER_UUID)
+                .withExpiresAt(Date.from(ZonedDateTime.now().plusHours(8).toInstant())).sign(Algorithm.HMAC512("active_secret"))));
+    }
+
+    //This test case passes when a token issued by another issuer is rejected, even if signed with the active key.
+    @Test
+    public void rejectWrongIssuer() {
+        assertTrue(jwtTokenVerifier.isRejected(JWT.create().withIssuer("https://other.io").withKeyId("active_key").withAudience(USER_UUID)
+                .withExpiresAt(Date.from(ZonedDateTime.now().plusHours(8).toInstant())).sign(Algorithm.HMAC512("active_secret"))));
+    }
+
+    //This test case passes when an expired token is rejected.
+    @Test
+    public void rejectExpiredToken() {
+        assertTrue(jwtTokenVerifier.isRejected(token("active_key", "active_secret", ZonedDateTime.now().minusMinutes(1))));
+    }
+
+    //This test case passes when an access token which is not a JWT is rejected.
+    @Test
+    public void rejectMalformedToken() {
+        for (String accessToken : new String[]{"", "database_accesstoken", "a.b.c", "a.b"}) {
+            assertTrue(accessToken, jwtTokenVerifier.isRejected(accessToken));
+        }
+    }
+
+    //This test case passes when nothing is rejected in memory with the default database verification.
+    @Test
+    public void acceptAnyTokenWithDatabaseVerification() {
+        ReflectionTestUtils.setField(jwtTokenVerifier, "verificationMode", "database");
+        assertFalse(jwtTokenVerifier.isRejected("database_accesstoken"));
+        assertFalse(jwtTokenVerifier.isRejected(token("active_key", "forged_secret", ZonedDateTime.now().plusHours(8))));
+    }
+
+    //This test case passes when local verification without configured keys is refused at startup, unless the dev profile is active.
+    @Test
+    public void localVerificationWithoutConfiguredKeys() {
+        try {
+            jwtKeyRing("", new MockEnvironment());
+            fail();
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getMessage());
+        }
+        final MockEnvironment devEnvironment = new MockEnvironment();
+        devEnvironment.setActiveProfiles("dev");
+        assertNotNull(jwtKeyRing("", devEnvironment).getActiveProvider());
+    }
+
+    private static JwtKeyRing jwtKeyRing(final String configuredKeys, final MockEnvironment environment) {
+        final JwtKeyRing jwtKeyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(jwtKeyRing, "configuredKeys", configuredKeys);
+        ReflectionTestUtils.setField(jwtKeyRing, "verificationMode", "local");
+        ReflectionTestUtils.setField(jwtKeyRing, "environment", environment);
+        jwtKeyRing.initialize();
+        return jwtKeyRing;
+    }
+
+    private static String token(final String keyId, final String secret, final ZonedDateTime expiresAt) {
+        return new JwtTokenProvider(keyId, secret).generateToken(USER_UUID, expiresAt.minusHours(8), expiresAt);
+    }
+}
@@ -0,0 +1,105 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordCryptographyProviderTest {
+
+    private static final String[] PASSWORDS = {"", "database_password", "pésswörd_€", "emoji_😀_𝄞"};
+
+    private static final int[] KEY_LENGTHS = {64, 512, 1024, 520};
+
+    private static final String SALT = Base64.getEncoder().encodeToString("database_salt".getBytes(StandardCharsets.UTF_8));
+
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    @Before
+    public void createProvider() {
+        cryptographyProvider = new PasswordCryptographyProvider();
+        ReflectionTestUtils.setField(cryptographyProvider, "configuredIterations", 2000);
+        ReflectionTestUtils.setField(cryptographyProvider, "keyLength", 512);
+        cryptographyProvider.calibrate();
+    }
+
+    //This test case passes when the legacy hash is the one PBKDF2WithHmacSHA512 derives with 1000 iterations and a 64 bit key.
+    @Test
+    public void legacyHashMatchesJdk() throws Exception {
+        for (String password : PASSWORDS) {
+            assertEquals(password, jdkHash(password, 1000, 64), PasswordCryptographyProvider.encrypt(password, SALT));
+        }
+    }
+
+    //This test case passes when a versioned hash derived by PBKDF2WithHmacSHA512 matches, whatever the password and key length.
+    @Test
+    public void versionedHashMatchesJdk() throws Exception {
+        for (String password : PASSWORDS) {
+            for (int keyLength : KEY_LENGTHS) {
+                final String storedHash = "$pbkdf2-sha512$1500$" + keyLength + "$" + jdkHash(password, 1500, keyLength);
+                assertTrue(password + " " + keyLength, cryptographyProvider.matches(password, SALT, storedHash));
+                assertFalse(password + " " + keyLength, cryptographyProvider.matches(password + "x", SALT, storedHash));
+            }
+        }
+    }
+
+    //This test case passes when a new hash records the current parameters and matches the password it was derived from.
+    @Test
+    public void encryptWithCurrentParameters() {
+        final String[] encrypted = cryptographyProvider.encrypt("database_password");
+        assertTrue(encrypted[1].startsWith("$pbkdf2-sha512$2000$512$"));
+        assertTrue(cryptographyProvider.matches("database_password", encrypted[0], encrypted[1]));
+        assertFalse(cryptographyProvider.matches("wrong_password", encrypted[0], encrypted[1]));
+        assertFalse(cryptographyProvider.needsRehash(encrypted[1]));
+    }
+
+    //This test case passes when a legacy hash or a hash weaker than the current parameters has to be rehashed.
+    @Test
+    public void needsRehashForOutdatedHashes() {
+        assertTrue(cryptographyProvider.needsRehash(PasswordCryptographyProvider.encrypt("database_password", SALT)));
+        assertTrue(cryptographyProvider.needsRehash("$pbkdf2-sha512$1000$512$00"));
+        assertTrue(cryptographyProvider.needsRehash("$pbkdf2-sha512$2000$1024$00"));
+        assertFalse(cryptographyProvider.needsRehash("$pbkdf2-sha512$4000$512$00"));
+    }
+
+    //This test case passes when a stored hash of a malformed format does not match, and is rehashed, rather than failing.
+    @Test
+    public void matchesWithMalformedHash() throws Exception {
+        final String hex = jdkHash("database_password", 1000, 512);
+        final String[] malformedHashes = {
+                "",
+                "not_hex",
+                "$pbkdf2-sha512$1000$512",
+                "$pbkdf2-sha512$1000$512$" + hex + "$" + hex,
+                "$bcrypt$1000$512$" + hex,
+                "$pbkdf2-sha512$1000$512$Z" + hex.substring(1),
+                "$pbkdf2-sha512$many$512$" + hex,
+                "$pbkdf2-sha512$1000$big$" + hex,
+                "$pbkdf2-sha512$99999999999$512$" + hex,
+                "$pbkdf2-sha512$0$512$" + hex,
+                "$pbkdf2-sha512$1000$-512$" + hex};
+        for (String malformedHash : malformedHashes) {
+            assertFalse(malformedHash, cryptographyProvider.matches("database_password", SALT, malformedHash));
+            assertTrue(malformedHash, cryptographyProvider.needsRehash(malformedHash));
+        }
+        assertFalse(cryptographyProvider.matches("database_password", "not base64!", "$pbkdf2-sha512$1000$512$" + hex));
+    }
+
+    private static String jdkHash(final String password, final int iterations, final int keyLength) throws Exception {
+        final byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512").generateSecret(new PBEKeySpec(
+                password.toCharArray(), Base64.getDecoder().decode(SALT), iterations, keyLength)).getEncoded();
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02X", b));
+        }
+        return hex.toString();
+    }
+}
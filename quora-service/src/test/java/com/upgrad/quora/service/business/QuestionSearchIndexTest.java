@@ -0,0 +1,164 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dto.QuestionSummary;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class QuestionSearchIndexTest {
+
+    private final CountDownLatch streamStarted = new CountDownLatch(1);
+
+    private final CountDownLatch streamReleased = new CountDownLatch(1);
+
+    private final List<String> contentSearches = new ArrayList<>();
+
+    private volatile boolean failStream;
+
+    private QuestionSearchIndex questionSearchIndex;
+
+    private QuestionBusinessService questionBusinessService;
+
+    @Before
+    public void createIndex() {
+        final QuestionDao questionDao = new QuestionDao() {
+            @Override
+            public void streamQuestions(final int fetchSize, final Consumer<QuestionSummary> consumer) {
+                if (failStream) {
+                    throw new IllegalStateException("database down");
+                }
+                consumer.accept(summary(1, "java streams"));
+                consumer.accept(summary(2, "python generators"));
+                streamStarted.countDown();
+                try {
+                    streamReleased.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public List<QuestionSummary> getQuestionsByContent(final String text, final int limit) {
+                contentSearches.add(text);
+                return Collections.singletonList(summary(1, "java streams"));
+            }
+        };
+        questionSearchIndex = new QuestionSearchIndex();
+        ReflectionTestUtils.setField(questionSearchIndex, "questionDao", questionDao);
+        ReflectionTestUtils.setField(questionSearchIndex, "transactionManager", new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(final TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(final TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(final TransactionStatus status) {
+            }
+        });
+        ReflectionTestUtils.setField(questionSearchIndex, "fetchSize", 1000);
+
+        final PaginationSettings paginationSettings = new PaginationSettings();
+        ReflectionTestUtils.setField(paginationSettings, "defaultLimit", 100);
+        ReflectionTestUtils.setField(paginationSettings, "maxLimit", 500);
+        questionBusinessService = new QuestionBusinessService();
+        ReflectionTestUtils.setField(questionBusinessService, "questionDao", questionDao);
+        ReflectionTestUtils.setField(questionBusinessService, "questionSearchIndex", questionSearchIndex);
+        ReflectionTestUtils.setField(questionBusinessService, "paginationSettings", paginationSettings);
+        ReflectionTestUtils.setField(questionBusinessService, "userBusinessService", new UserBusinessService() {
+            @Override
+            public UserAuthEntity validateUserAuthentication(final String athr002Message) {
+                return new UserAuthEntity();
+            }
+        });
+    }
+
+    //This test case passes when the searches fall back to the LIKE query while the index builds, and the changes made meanwhile are in the built index.
+    @Test
+    public void searchWhileIndexBuilds() throws Exception {
+        final Thread builder = new Thread(questionSearchIndex::build);
+        builder.start();
+        assertTrue(streamStarted.await(10, TimeUnit.SECONDS));
+
+        assertFalse(questionSearchIndex.isReady());
+        assertNull(questionSearchIndex.search("java", 10));
+        assertEquals(1, questionBusinessService.searchQuestions("  java  ", null).size());
+        assertEquals(Collections.singletonList("java"), contentSearches);
+        assertTrue(questionBusinessService.searchQuestions("   ", null).isEmpty());
+        assertEquals(1, contentSearches.size());
+
+        questionSearchIndex.questionSaved(question(3, "kotlin coroutines"));
+        questionSearchIndex.questionSaved(question(2, "python streams"));
+        questionSearchIndex.questionsRemoved(Collections.singletonList(1));
+        streamReleased.countDown();
+        builder.join(10_000);
+
+        assertTrue(questionSearchIndex.isReady());
+        assertEquals(Collections.singletonList(3), ids(questionSearchIndex.search("kotlin", 10)));
+        assertEquals(Collections.singletonList(2), ids(questionSearchIndex.search("streams", 10)));
+        assertTrue(questionSearchIndex.search("java generators", 10).isEmpty());
+        assertEquals(Collections.singletonList(2), ids(questionBusinessService.searchQuestions("python", null)));
+        assertEquals(1, contentSearches.size());
+    }
+
+    //This test case passes when the searches keep falling back to the LIKE query after a failed build, until a later build succeeds.
+    @Test
+    public void searchAfterFailedBuild() throws Exception {
+        failStream = true;
+        questionSearchIndex.build();
+        assertFalse(questionSearchIndex.isReady());
+        assertEquals(1, questionBusinessService.searchQuestions("java", null).size());
+        assertEquals(Collections.singletonList("java"), contentSearches);
+
+        failStream = false;
+        streamReleased.countDown();
+        questionSearchIndex.buildIfMissing();
+        assertTrue(questionSearchIndex.isReady());
+        assertEquals(Collections.singletonList(2), ids(questionBusinessService.searchQuestions("generators", null)));
+        assertEquals(1, contentSearches.size());
+    }
+
+    private static List<Integer> ids(final List<QuestionSummary> questions) {
+        final List<Integer> ids = new ArrayList<>();
+        for (QuestionSummary question : questions) {
+            ids.add(question.getId());
+        }
+        return ids;
+    }
+
+    private static QuestionSummary summary(final int id, final String content) {
+        return new QuestionSummary(id, "00000000-0000-7000-8001-00000000000" + id, content, ZonedDateTime.now());
+    }
+
+    private static Question question(final int id, final String content) {
+        final Question question = new Question();
+        question.setId(id);
+        question.setUuid("00000000-0000-7000-8001-00000000000" + id);
+        question.setContent(content);
+        question.setDate(ZonedDateTime.now());
+        return question;
+    }
+}
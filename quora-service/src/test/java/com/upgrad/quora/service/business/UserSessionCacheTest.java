@@ -0,0 +1,110 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.User;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserSessionCacheTest {
+
+    private UserSessionCache userSessionCache;
+
+    @Before
+    public void createCache() {
+        userSessionCache = new UserSessionCache();
+        ReflectionTestUtils.setField(userSessionCache, "maxSize", 2);
+        ReflectionTestUtils.setField(userSessionCache, "ttlSeconds", 300L);
+    }
+
+    //This test case passes when a cached session is served from the cache and counted as a hit.
+    @Test
+    public void getCachedSession() {
+        final UserAuthEntity session = session(1, ZonedDateTime.now().plusHours(8));
+        assertNull(userSessionCache.get("access_token"));
+        userSessionCache.put("access_token", session, userSessionCache.generation("access_token"));
+        assertSame(session, userSessionCache.get("access_token"));
+        assertEquals(1, userSessionCache.getHitCount());
+        assertEquals(1, userSessionCache.getMissCount());
+    }
+
+    //This test case passes when a session is dropped from the cache once its TTL or its expiry elapses.
+    @Test
+    public void getExpiredSession() throws Exception {
+        userSessionCache.put("access_token", session(1, ZonedDateTime.now().plusNanos(50_000_000L)), userSessionCache.generation("access_token"));
+        ReflectionTestUtils.setField(userSessionCache, "ttlSeconds", 0L);
+        userSessionCache.put("access_token1", session(1, ZonedDateTime.now().plusHours(8)), userSessionCache.generation("access_token1"));
+        Thread.sleep(100);
+        assertNull(userSessionCache.get("access_token"));
+        assertNull(userSessionCache.get("access_token1"));
+        assertEquals(0, userSessionCache.size());
+    }
+
+    //This test case passes when a signed out or expired session is never cached.
+    @Test
+    public void putInactiveSession() {
+        final UserAuthEntity signedOut = session(1, ZonedDateTime.now().plusHours(8));
+        signedOut.setLogoutAt(ZonedDateTime.now());
+        userSessionCache.put("access_token", signedOut, userSessionCache.generation("access_token"));
+        userSessionCache.put("access_token1", session(1, ZonedDateTime.now().minusSeconds(1)), userSessionCache.generation("access_token1"));
+        assertEquals(0, userSessionCache.size());
+    }
+
+    //This test case passes when the session of an access token signed out is removed from the cache.
+    @Test
+    public void invalidateSignedOutSession() {
+        userSessionCache.put("access_token", session(1, ZonedDateTime.now().plusHours(8)), userSessionCache.generation("access_token"));
+        userSessionCache.invalidate("access_token");
+        assertNull(userSessionCache.get("access_token"));
+    }
+
+    //This test case passes when a session looked up before its access token was signed out is not cached after it.
+    @Test
+    public void putSessionLookedUpBeforeSignOut() {
+        final long generation = userSessionCache.generation("access_token");
+        userSessionCache.invalidate("access_token");
+        userSessionCache.put("access_token", session(1, ZonedDateTime.now().plusHours(8)), generation);
+        assertNull(userSessionCache.get("access_token"));
+        userSessionCache.put("access_token", session(1, ZonedDateTime.now().plusHours(8)), userSessionCache.generation("access_token"));
+        assertEquals(1, userSessionCache.size());
+    }
+
+    //This test case passes when all the sessions of a deleted user are removed from the cache, and only theirs.
+    @Test
+    public void invalidateDeletedUser() {
+        userSessionCache.put("access_token", session(1, ZonedDateTime.now().plusHours(8)), userSessionCache.generation("access_token"));
+        userSessionCache.put("access_token1", session(2, ZonedDateTime.now().plusHours(8)), userSessionCache.generation("access_token1"));
+        final long generation = userSessionCache.generation("access_token2");
+        userSessionCache.invalidateUser(1);
+        userSessionCache.put("access_token2", session(1, ZonedDateTime.now().plusHours(8)), generation);
+        assertNull(userSessionCache.get("access_token"));
+        assertNull(userSessionCache.get("access_token2"));
+        assertEquals(2, userSessionCache.get("access_token1").getUser().getId().intValue());
+    }
+
+    //This test case passes when the oldest session is evicted once the cache grows beyond its size.
+    @Test
+    public void putBeyondMaxSize() {
+        for (String accessToken : new String[]{"access_token", "access_token1", "access_token2"}) {
+            userSessionCache.put(accessToken, session(1, ZonedDateTime.now().plusHours(8)), userSessionCache.generation(accessToken));
+        }
+        assertEquals(2, userSessionCache.size());
+        assertNull(userSessionCache.get("access_token"));
+        assertEquals(1, userSessionCache.getEvictionCount());
+    }
+
+    private static UserAuthEntity session(final int userId, final ZonedDateTime expiresAt) {
+        final User user = new User();
+        user.setId(userId);
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setUser(user);
+        session.setExpiresAt(expiresAt);
+        return session;
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalTimingWheelTest {
+
+    //This test case passes when an item expiring within the span of the first level is handed back on its tick.
+    @Test
+    public void advanceWithinFirstLevel() {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10L, 8, 0L);
+        final List<String> expired = new ArrayList<>();
+        assertTrue(wheel.schedule("item", 35L));
+        assertEquals(0, wheel.advance(29L, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(30L, expired::add));
+        assertEquals(Arrays.asList("item"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    //This test case passes when items beyond the span of the first level are cascaded down the overflow levels and handed back on their tick.
+    @Test
+    public void advanceCascadingOverflowLevels() {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10L, 8, 0L);
+        final List<String> expired = new ArrayList<>();
+        assertTrue(wheel.schedule("second_level", 500L));
+        assertTrue(wheel.schedule("third_level", 5000L));
+        assertEquals(2, wheel.size());
+        assertEquals(0, wheel.advance(499L, expired::add));
+        assertEquals(1, wheel.advance(500L, expired::add));
+        assertEquals(Arrays.asList("second_level"), expired);
+        assertEquals(0, wheel.advance(4999L, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(5000L, expired::add));
+        assertEquals(Arrays.asList("second_level", "third_level"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    //This test case passes when all the items expired since the last advance are handed back and counted at once.
+    @Test
+    public void advanceOverSeveralTicks() {
+        final HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(10L, 8, 1234L);
+        final List<Integer> expired = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(wheel.schedule(i, 1240L + i * 10L));
+        }
+        assertEquals(100, wheel.size());
+        assertEquals(50, wheel.advance(1730L, expired::add));
+        assertEquals(50, wheel.size());
+        assertEquals(50, wheel.advance(10_000L, expired::add));
+        assertEquals(100, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    //This test case passes when an item which already expired is not scheduled.
+    @Test
+    public void scheduleExpiredItem() {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10L, 8, 100L);
+        assertFalse(wheel.schedule("expired", 50L));
+        assertFalse(wheel.schedule("expiring", 105L));
+        assertEquals(0, wheel.size());
+    }
+}
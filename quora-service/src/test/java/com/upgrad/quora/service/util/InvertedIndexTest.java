@@ -0,0 +1,123 @@
+package com.upgrad.quora.service.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InvertedIndexTest {
+
+    //This test case passes when the documents are ranked by BM25: more occurrences, shorter documents and rarer terms rank higher, the newer document on equal scores, and the case and punctuation of the query are ignored.
+    @Test
+    public void searchRankedByBm25() {
+        final InvertedIndex<Document> index = index(
+                new Document(1, "java streams java"),
+                new Document(2, "java"),
+                new Document(3, "python streams and generators"),
+                new Document(4, "rust"),
+                new Document(5, "java generics"),
+                new Document(6, "java threads"));
+        assertEquals(Arrays.asList(1, 3, 2, 6, 5), keys(index.search("java streams", 10)));
+        assertEquals(Arrays.asList(5, 3), keys(index.search("generators generics", 10)));
+        assertEquals(keys(index.search("java", 10)), keys(index.search("JAVA!!", 10)));
+        assertEquals(Collections.emptyList(), keys(index.search("haskell", 10)));
+    }
+
+    //This test case passes when the number of documents returned is capped by the limit, keeping the best matches.
+    @Test
+    public void searchWithLimit() {
+        final InvertedIndex<Document> index = index(
+                new Document(1, "java"),
+                new Document(2, "java java java"),
+                new Document(3, "java java"));
+        assertEquals(Arrays.asList(2, 3), keys(index.search("java", 2)));
+        assertEquals(Collections.emptyList(), keys(index.search("java", 0)));
+    }
+
+    //This test case passes when a document put again with the same key replaces the one indexed, and a removed document is no longer found.
+    @Test
+    public void putAndRemoveDocuments() {
+        final InvertedIndex<Document> index = index(
+                new Document(1, "java streams"),
+                new Document(2, "python streams"));
+        index.put(new Document(2, "kotlin coroutines"));
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(1), keys(index.search("streams", 10)));
+        assertEquals(Arrays.asList(2), keys(index.search("kotlin", 10)));
+        index.remove(1);
+        index.remove(42);
+        assertEquals(1, index.size());
+        assertEquals(Collections.emptyList(), keys(index.search("java streams", 10)));
+        index.put(new Document(3, "java again"));
+        assertEquals(Arrays.asList(3), keys(index.search("java", 10)));
+    }
+
+    //This test case passes when the stopwords are neither indexed nor searched, so a query made only of them matches nothing.
+    @Test
+    public void searchWithStopwords() {
+        final InvertedIndex<Document> index = index(
+                new Document(1, "What is the best way to learn java"),
+                new Document(2, "How do I learn the guitar"));
+        assertEquals(Collections.emptyList(), keys(index.search("what is the", 10)));
+        assertEquals(keys(index.search("java", 10)), keys(index.search("what is java", 10)));
+        assertEquals(Collections.singletonMap("java", 1), InvertedIndex.termFrequencies("The java"));
+    }
+
+    //This test case passes when the index built in parallel finds the same documents, in the same order, as the index built one document at a time.
+    @Test
+    public void buildInParallel() {
+        final List<Document> documents = new ArrayList<>();
+        final String[] words = {"java", "python", "rust", "streams", "threads", "generics", "memory", "index"};
+        for (int key = 0; key < 5000; key++) {
+            documents.add(new Document(key, words[key % words.length] + " " + words[key % 7] + " " + words[key % 3] + " q" + key));
+        }
+        final InvertedIndex<Document> built = InvertedIndex.build(documents, Document::getKey, Document::getText, new ForkJoinPool(4));
+        final InvertedIndex<Document> incremental = index(documents.toArray(new Document[0]));
+        assertEquals(5000, built.size());
+        for (String query : new String[]{"java", "rust streams", "memory index generics", "q4999", "q0 q2048"}) {
+            final List<Integer> found = keys(built.search(query, 50));
+            assertTrue(query, !found.isEmpty());
+            assertEquals(query, keys(incremental.search(query, 50)), found);
+        }
+    }
+
+    private static InvertedIndex<Document> index(final Document... documents) {
+        final InvertedIndex<Document> index = new InvertedIndex<>(Document::getKey, Document::getText);
+        for (Document document : documents) {
+            index.put(document);
+        }
+        return index;
+    }
+
+    private static List<Integer> keys(final List<Document> documents) {
+        final List<Integer> keys = new ArrayList<>();
+        for (Document document : documents) {
+            keys.add(document.getKey());
+        }
+        return keys;
+    }
+
+    private static final class Document {
+        private final int key;
+        private final String text;
+
+        private Document(final int key, final String text) {
+            this.key = key;
+            this.text = text;
+        }
+
+        private int getKey() {
+            return key;
+        }
+
+        private String getText() {
+            return text;
+        }
+    }
+}